@@ -0,0 +1,116 @@
+package by.polikarpov.benchmark;
+
+import by.polikarpov.dao.LibraryDao;
+import by.polikarpov.util.ConnectionManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Creates the schema and seeds it with a deterministic data set of a given scale.
+ * Every library holds {@value #BOOKS_PER_LIBRARY} books, there is one reader per
+ * {@value #BOOKS_PER_READER} books and every reader borrows {@value #LENDINGS_PER_READER} books.
+ */
+final class BenchmarkDatabase {
+
+    static final int BOOKS_PER_LIBRARY = 1000;
+    static final int BOOKS_PER_READER = 10;
+    static final int LENDINGS_PER_READER = 5;
+
+    private static final int BATCH_SIZE = 1000;
+    /**
+     * The migrations H2 understands; the trigram indexes need PostgreSQL.
+     */
+    private static final List<String> SCHEMA = List.of(
+            "migration/001_create_tables.sql",
+            "migration/002_index_foreign_keys.sql"
+    );
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Drops and recreates all tables, then inserts the data set.
+     *
+     * @param books the number of books to create
+     * @throws SQLException if a database access error occurs
+     * @throws IOException  if the schema script cannot be read
+     */
+    static void seed(int books) throws SQLException, IOException {
+        int libraries = Math.max(1, books / BOOKS_PER_LIBRARY);
+        int readers = Math.max(1, books / BOOKS_PER_READER);
+        try (Connection connection = ConnectionManager.getConnection()) {
+            connection.setAutoCommit(false);
+            createSchema(connection);
+            insert(connection, "INSERT INTO library (library_name) VALUES (?)", libraries,
+                    (statement, i) -> statement.setString(1, "Library " + i));
+            insert(connection, "INSERT INTO books (title, author, library_id) VALUES (?, ?, ?)", books,
+                    (statement, i) -> {
+                        statement.setString(1, "Title " + i);
+                        statement.setString(2, "Author " + i % 5000);
+                        statement.setLong(3, i % libraries + 1);
+                    });
+            insert(connection, "INSERT INTO readers (readers_name) VALUES (?)", readers,
+                    (statement, i) -> statement.setString(1, "Reader " + i));
+            insert(connection, "INSERT INTO book_lending (reader_id, book_id) VALUES (?, ?)", readers * LENDINGS_PER_READER,
+                    (statement, i) -> {
+                        statement.setLong(1, i / LENDINGS_PER_READER + 1);
+                        statement.setLong(2, i % books + 1);
+                    });
+            connection.commit();
+        }
+        LibraryDao.getInstance().invalidateCache();
+    }
+
+    private static void createSchema(Connection connection) throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS book_lending, readers, books, library");
+            for (String script : SCHEMA) {
+                for (String sql : readScript(script).split(";")) {
+                    if (!sql.isBlank()) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String readScript(String script) throws IOException {
+        try (InputStream inputStream = BenchmarkDatabase.class.getClassLoader().getResourceAsStream(script)) {
+            if (inputStream == null) {
+                throw new IOException("Schema script " + script + " not found");
+            }
+            StringBuilder sql = new StringBuilder();
+            for (String line : new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.trim().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            return sql.toString();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement statement, int row) throws SQLException;
+    }
+
+    private static void insert(Connection connection, String sql, int rows, RowBinder binder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int row = 0; row < rows; row++) {
+                binder.bind(statement, row);
+                statement.addBatch();
+                if ((row + 1) % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+}
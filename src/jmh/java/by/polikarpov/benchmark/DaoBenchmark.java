@@ -0,0 +1,95 @@
+package by.polikarpov.benchmark;
+
+import by.polikarpov.dao.BookLendingDao;
+import by.polikarpov.dao.BooksDao;
+import by.polikarpov.dao.LibraryDao;
+import by.polikarpov.entity.BookLending;
+import by.polikarpov.entity.Books;
+import by.polikarpov.entity.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of single DAO calls against a seeded database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int scale;
+
+    private final BooksDao booksDao = BooksDao.getInstance();
+    private final BookLendingDao bookLendingDao = BookLendingDao.getInstance();
+    private final LibraryDao libraryDao = LibraryDao.getInstance();
+
+    private long middleBookId;
+    private long readerId;
+
+    @Setup
+    public void seed() throws Exception {
+        BenchmarkDatabase.seed(scale);
+        middleBookId = scale / 2;
+        readerId = Math.max(1, scale / BenchmarkDatabase.BOOKS_PER_READER / 2);
+    }
+
+    @Benchmark
+    public List<Books> booksFindAll() {
+        return booksDao.findAll();
+    }
+
+    @Benchmark
+    public long booksStreamAll() {
+        try (Stream<Books> books = booksDao.streamAll()) {
+            return books.count();
+        }
+    }
+
+    @Benchmark
+    public List<Books> booksFindPage() {
+        return booksDao.findPage(middleBookId, 50);
+    }
+
+    @Benchmark
+    public Optional<Books> booksFindById() {
+        return booksDao.findById(middleBookId);
+    }
+
+    @Benchmark
+    public List<Books> bookLendingFindByNotReaderId() {
+        return bookLendingDao.findByNotReaderId(readerId, null, 50);
+    }
+
+    @Benchmark
+    public List<BookLending> bookLendingFindPage() {
+        return bookLendingDao.findPage(readerId, 50);
+    }
+
+    @Benchmark
+    public List<Books> bookLendingFindByReaderId() {
+        return bookLendingDao.findByReaderId(readerId);
+    }
+
+    @Benchmark
+    public Optional<Library> libraryFindByIdCached() {
+        return libraryDao.findById(1L);
+    }
+}
@@ -0,0 +1,83 @@
+package by.polikarpov.benchmark;
+
+import by.polikarpov.dto.BookLendingDto;
+import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
+import by.polikarpov.service.BookLendingService;
+import by.polikarpov.service.BooksService;
+import by.polikarpov.service.CachingService;
+import by.polikarpov.util.BoundedCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of service calls, which add DTO mapping and caching on top of the DAOs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int scale;
+
+    private final BooksService booksService = BooksService.getInstance();
+    private final BookLendingService bookLendingService = BookLendingService.getInstance();
+
+    private CachingService<Long, BooksDto> cachedBooksService;
+    private long middleBookId;
+
+    @Setup
+    public void seed() throws Exception {
+        BenchmarkDatabase.seed(scale);
+        middleBookId = scale / 2;
+        cachedBooksService = new CachingService<>("books", booksService, BooksDto::id,
+                new BoundedCache<>(1000, 60_000, BoundedCache.Policy.TINY_LFU));
+    }
+
+    @Benchmark
+    public List<BooksDto> booksGetAll() {
+        return booksService.getAll();
+    }
+
+    @Benchmark
+    public Page<Long, BooksDto> booksGetPage() {
+        return booksService.getPage(middleBookId, 50);
+    }
+
+    @Benchmark
+    public Optional<BooksDto> booksGetById() {
+        return booksService.getById(middleBookId);
+    }
+
+    @Benchmark
+    public Optional<BooksDto> booksGetByIdCached() {
+        return cachedBooksService.getById(middleBookId);
+    }
+
+    @Benchmark
+    public List<BookLendingDto> bookLendingGetAll() {
+        return bookLendingService.getAll();
+    }
+
+    @Benchmark
+    public Page<Long, BookLendingDto> bookLendingGetPage() {
+        return bookLendingService.getPage(null, 50);
+    }
+}
@@ -0,0 +1,133 @@
+package by.polikarpov.benchmark;
+
+import by.polikarpov.servlet.BookServlet;
+import by.polikarpov.servlet.LibraryServlet;
+import by.polikarpov.servlet.ReadersServlet;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handling a GET request in the servlets, from parameter parsing to rendering.
+ * Requests and responses are lightweight proxies: HTML requests stop at the JSP forward,
+ * JSON responses are written to a discarding writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServletBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int scale;
+
+    private final BookServlet bookServlet = new BookServlet();
+    private final ReadersServlet readersServlet = new ReadersServlet();
+    private final LibraryServlet libraryServlet = new LibraryServlet();
+
+    private HttpServletResponse response;
+    private HttpServletRequest booksPageHtml;
+    private HttpServletRequest booksPageJson;
+    private HttpServletRequest bookDetailJson;
+    private HttpServletRequest readerDetailJson;
+    private HttpServletRequest libraryDetailJson;
+
+    @Setup
+    public void seed() throws Exception {
+        BenchmarkDatabase.seed(scale);
+        String bookId = String.valueOf(scale / 2);
+        String readerId = String.valueOf(Math.max(1, scale / BenchmarkDatabase.BOOKS_PER_READER / 2));
+        response = response();
+        booksPageHtml = request(Map.of("cursor", bookId), Map.of());
+        booksPageJson = request(Map.of("cursor", bookId), Map.of("Accept", "application/json"));
+        bookDetailJson = request(Map.of("id", bookId, "format", "json"), Map.of());
+        readerDetailJson = request(Map.of("id", readerId, "format", "json"), Map.of());
+        libraryDetailJson = request(Map.of("id", "1", "format", "json"), Map.of());
+    }
+
+    @Benchmark
+    public void booksPageHtml() throws Exception {
+        bookServlet.doGet(booksPageHtml, response);
+    }
+
+    @Benchmark
+    public void booksPageJson() throws Exception {
+        bookServlet.doGet(booksPageJson, response);
+    }
+
+    @Benchmark
+    public void bookDetailJson() throws Exception {
+        bookServlet.doGet(bookDetailJson, response);
+    }
+
+    @Benchmark
+    public void readerDetailJson() throws Exception {
+        readersServlet.doGet(readerDetailJson, response);
+    }
+
+    @Benchmark
+    public void libraryDetailJson() throws Exception {
+        libraryServlet.doGet(libraryDetailJson, response);
+    }
+
+    private static HttpServletRequest request(Map<String, String> parameters, Map<String, String> headers) {
+        RequestDispatcher dispatcher = stub(RequestDispatcher.class, (method, args) -> null);
+        return stub(HttpServletRequest.class, (method, args) -> switch (method) {
+            case "getParameter" -> parameters.get((String) args[0]);
+            case "getHeader" -> headers.get((String) args[0]);
+            case "getRequestDispatcher" -> dispatcher;
+            case "getContextPath" -> "";
+            default -> null;
+        });
+    }
+
+    private static HttpServletResponse response() {
+        PrintWriter writer = new PrintWriter(Writer.nullWriter());
+        return stub(HttpServletResponse.class, (method, args) -> "getWriter".equals(method) ? writer : null);
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    /**
+     * Creates a proxy that answers by method name and returns the default value
+     * of primitive return types for unanswered calls.
+     */
+    private static <T> T stub(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = answer.answer(method.getName(), args);
+            if (result != null || !method.getReturnType().isPrimitive()) {
+                return result;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == void.class) {
+                return null;
+            }
+            return returnType == long.class ? 0L : returnType == int.class ? 0 : null;
+        }));
+    }
+}
@@ -0,0 +1,94 @@
+package by.polikarpov.cli;
+
+import by.polikarpov.dao.BulkImportDao;
+import by.polikarpov.util.ConnectionManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Command line tool that loads a CSV or TSV file into one table with {@link BulkImportDao}.
+ * The database is configured by application.properties; {@code -Ddb.url=...} and the other
+ * {@code db.*} system properties override it.
+ *
+ * <pre>
+ * BulkImportCli &lt;library|books|readers|book_lending&gt; &lt;file|-&gt; [--format=csv|tsv] [--header]
+ * </pre>
+ */
+public class BulkImportCli {
+
+    private static final String USAGE = "Usage: BulkImportCli <library|books|readers|book_lending> <file|-> "
+                                        + "[--format=csv|tsv] [--header]";
+
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private BulkImportCli() {
+    }
+
+    /**
+     * Runs an import. Reads standard input when the file is {@code -}.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int status;
+        try {
+            status = run(args, System.out, System.err);
+        } finally {
+            ConnectionManager.closePool();
+        }
+        System.exit(status);
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length < 2) {
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        BulkImportDao.Target target;
+        BulkImportDao.Format format = BulkImportDao.Format.CSV;
+        boolean header = false;
+        try {
+            target = BulkImportDao.Target.valueOf(args[0].toUpperCase(Locale.ROOT));
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("--header")) {
+                    header = true;
+                } else if (args[i].startsWith("--format=")) {
+                    format = BulkImportDao.Format.valueOf(args[i].substring("--format=".length()).toUpperCase(Locale.ROOT));
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        try (Reader input = open(args[1])) {
+            BulkImportDao.Result result = BulkImportDao.getInstance().importRows(target, input, format, header);
+            out.printf(Locale.ROOT, "Imported %d of %d rows into %s in %.1f s (%.0f rows/s)%n",
+                    result.rowsInserted(), result.rowsRead(), target.table(),
+                    result.elapsedNanos() / 1e9, result.rowsPerSecond());
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            err.println("Import failed: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            return EXIT_FAILED;
+        }
+    }
+
+    private static Reader open(String file) throws IOException {
+        if (file.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package by.polikarpov.dao;
+
+import by.polikarpov.exception.DaoException;
+import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.PropertiesUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Helper for DAO methods that insert many rows with JDBC batching.
+ * All rows are inserted in one transaction on one connection, in batches of
+ * {@code db.batchSize} statements. With {@code reWriteBatchedInserts=true} in the
+ * connection URL the PostgreSQL driver turns every batch into multi-row INSERTs.
+ */
+final class BatchInserts {
+
+    private static final String BATCH_SIZE_KEY = "db.batchSize";
+
+    /**
+     * Number of rows sent to the server per batch.
+     */
+    static final int BATCH_SIZE = PropertiesUtil.getInt(BATCH_SIZE_KEY, 1000);
+
+    /**
+     * Binds the parameters of one row.
+     *
+     * @param <E> the type of the entity
+     */
+    @FunctionalInterface
+    interface Binder<E> {
+        void bind(PreparedStatement statement, E entity) throws SQLException;
+    }
+
+    /**
+     * Copies the generated key of one row into its entity.
+     *
+     * @param <E> the type of the entity
+     */
+    @FunctionalInterface
+    interface KeySetter<E> {
+        void set(E entity, ResultSet keys) throws SQLException;
+    }
+
+    /**
+     * Inserts all entities without reading generated keys.
+     *
+     * @param sql      the INSERT statement
+     * @param entities the entities to insert
+     * @param binder   binds the parameters of one entity
+     * @param <E>      the type of the entities
+     * @return the inserted entities in insertion order
+     * @throws DaoException if there is a data access error; no row is inserted in that case
+     */
+    static <E> List<E> insertAll(String sql, Collection<E> entities, Binder<E> binder) {
+        return insertAll(sql, entities, binder, null, null);
+    }
+
+    /**
+     * Inserts all entities and stores the generated key of every row in its entity.
+     *
+     * @param sql       the INSERT statement
+     * @param entities  the entities to insert
+     * @param binder    binds the parameters of one entity
+     * @param keyColumn the name of the generated key column
+     * @param keySetter copies the generated key into the entity
+     * @param <E>       the type of the entities
+     * @return the inserted entities in insertion order
+     * @throws DaoException if there is a data access error; no row is inserted in that case
+     */
+    static <E> List<E> insertAll(String sql, Collection<E> entities, Binder<E> binder,
+                                 String keyColumn, KeySetter<E> keySetter) {
+        List<E> rows = new ArrayList<>(entities);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        try (var connection = ConnectionManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var statement = prepare(connection, sql, keyColumn)) {
+                int keyed = 0;
+                for (int i = 0; i < rows.size(); i++) {
+                    binder.bind(statement, rows.get(i));
+                    statement.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0 || i == rows.size() - 1) {
+                        statement.executeBatch();
+                        if (keySetter != null) {
+                            keyed = readKeys(statement, rows, keyed, keySetter);
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, String keyColumn) throws SQLException {
+        return keyColumn == null
+                ? connection.prepareStatement(sql)
+                : connection.prepareStatement(sql, new String[]{keyColumn});
+    }
+
+    /**
+     * Reads the keys generated by the last batch, which belong to the rows starting at {@code from}.
+     *
+     * @return the index of the first row without a key
+     */
+    private static <E> int readKeys(PreparedStatement statement, List<E> rows, int from,
+                                    KeySetter<E> keySetter) throws SQLException {
+        int next = from;
+        try (var keys = statement.getGeneratedKeys()) {
+            while (keys.next() && next < rows.size()) {
+                keySetter.set(rows.get(next++), keys);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BatchInserts() {
+    }
+}
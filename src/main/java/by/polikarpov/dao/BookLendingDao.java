@@ -2,15 +2,27 @@ package by.polikarpov.dao;
 
 import by.polikarpov.entity.BookLending;
 import by.polikarpov.entity.Books;
+import by.polikarpov.entity.Library;
 import by.polikarpov.entity.Readers;
 import by.polikarpov.exception.DaoException;
 import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.TableVersions;
+import org.postgresql.PGConnection;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) for managing information about book lendings
@@ -21,6 +33,34 @@ public class BookLendingDao implements Dao<Long, BookLending> {
 
     private static final BookLendingDao INSTANCE = new BookLendingDao();
 
+    private static final DaoMetrics METRICS = DaoMetrics.of(BookLendingDao.class);
+
+    /**
+     * Outcome of {@link #deleteLending(Long, Long)}.
+     */
+    public enum DeleteOutcome {
+
+        /**
+         * The book was lent to the reader and the lending has been deleted.
+         */
+        DELETED,
+
+        /**
+         * The reader and the book exist, but the book is not lent to the reader.
+         */
+        NOT_LENT,
+
+        /**
+         * There is no reader with the given ID.
+         */
+        READER_MISSING,
+
+        /**
+         * The reader exists, but there is no book with the given ID.
+         */
+        BOOK_MISSING
+    }
+
     private BookLendingDao() {
     }
 
@@ -36,8 +76,12 @@ public class BookLendingDao implements Dao<Long, BookLending> {
     }
 
     private static final String FIND_ALL_SQL = """
-            SELECT reader_id, book_id
-            FROM book_lending
+            SELECT bl.reader_id, r.readers_name, bl.book_id, b.title, b.author, b.library_id, l.library_name
+            FROM book_lending bl
+            JOIN readers r ON r.id = bl.reader_id
+            JOIN books b ON b.id = bl.book_id
+            JOIN library l ON l.id = b.library_id
+            ORDER BY bl.reader_id, bl.book_id
             """;
 
     /**
@@ -48,12 +92,135 @@ public class BookLendingDao implements Dao<Long, BookLending> {
      */
     @Override
     public List<BookLending> findAll() {
+        return METRICS.record("findAll", this::doFindAll);
+    }
+
+    private List<BookLending> doFindAll() {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_ALL_SQL)) {
             List<BookLending> bookLending = new ArrayList<>();
+            Map<Long, Readers> readers = new HashMap<>();
+            Map<Long, Books> books = new HashMap<>();
+            Map<Long, Library> libraries = new HashMap<>();
+            var result = statement.executeQuery();
+            while (result.next()) {
+                bookLending.add(new BookLending(
+                        builderReader(result, readers),
+                        builderBook(result, books, libraries)
+                ));
+            }
+            return bookLending;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    /**
+     * Streams all book lending records ordered by reader and book ID through a server-side
+     * cursor, so memory use does not depend on the size of the table. Consecutive rows of
+     * the same reader share one Readers instance; books are not deduplicated because that
+     * would keep every book of the table in memory. The stream holds a connection until it
+     * is closed and must be used in a try-with-resources block.
+     *
+     * @return a lazy stream of BookLending objects
+     * @throws DaoException if there is a data access error
+     */
+    public Stream<BookLending> streamAll() {
+        return METRICS.record("streamAll", this::doStreamAll);
+    }
+
+    private Stream<BookLending> doStreamAll() {
+        Map<Long, Readers> currentReader = new HashMap<>();
+        Map<Long, Library> libraries = new HashMap<>();
+        return ResultSetStreams.stream(FIND_ALL_SQL, result -> {
+            if (!currentReader.containsKey(result.getLong("reader_id"))) {
+                currentReader.clear();
+            }
+            return new BookLending(
+                    builderReader(result, currentReader),
+                    builderBook(result, new HashMap<>(), libraries)
+            );
+        });
+    }
+
+    private static final String EXPORT_SQL = """
+            COPY (
+                SELECT bl.reader_id, r.readers_name, bl.book_id, b.title, b.author, b.library_id, l.library_name
+                FROM book_lending bl
+                JOIN readers r ON r.id = bl.reader_id
+                JOIN books b ON b.id = bl.book_id
+                JOIN library l ON l.id = b.library_id
+                ORDER BY bl.reader_id, bl.book_id
+            ) TO STDOUT (FORMAT csv, HEADER true)
+            """;
+
+    /**
+     * Writes all book lending records joined with their readers, books and libraries as CSV
+     * with a header line. The rows are produced by PostgreSQL {@code COPY ... TO STDOUT} and
+     * written to the stream as they arrive, so no row is turned into an object or kept in memory.
+     *
+     * @param out the stream to write the CSV to; it is not closed
+     * @return the number of exported rows
+     * @throws DaoException if there is a data access error or the stream cannot be written
+     */
+    public long exportAll(OutputStream out) {
+        return METRICS.record("exportAll", () -> doExportAll(out));
+    }
+
+    private long doExportAll(OutputStream out) {
+        try (var connection = ConnectionManager.getConnection()) {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(EXPORT_SQL, out);
+        } catch (SQLException | IOException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private static final String FIND_PAGE_SQL = """
+            SELECT bl.reader_id, r.readers_name, bl.book_id, b.title, b.author, b.library_id, l.library_name
+            FROM (
+                SELECT DISTINCT reader_id
+                FROM book_lending
+                WHERE reader_id > ?
+                ORDER BY reader_id
+                LIMIT ?
+            ) page
+            JOIN book_lending bl ON bl.reader_id = page.reader_id
+            JOIN readers r ON r.id = bl.reader_id
+            JOIN books b ON b.id = bl.book_id
+            JOIN library l ON l.id = b.library_id
+            ORDER BY bl.reader_id, bl.book_id
+            """;
+
+    /**
+     * Retrieves one page of book lending records ordered by reader and book ID.
+     * Lendings have a composite key, so a page is made of whole readers: it contains
+     * every lending of the next {@code limit} readers that have any lendings.
+     *
+     * @param afterReaderId the ID of the last reader of the previous page, or null for the first page
+     * @param limit         the maximum number of readers whose lendings are returned
+     * @return a list of BookLending objects
+     * @throws DaoException if there is a data access error
+     */
+    @Override
+    public List<BookLending> findPage(Long afterReaderId, int limit) {
+        return METRICS.record("findPage", () -> doFindPage(afterReaderId, limit));
+    }
+
+    private List<BookLending> doFindPage(Long afterReaderId, int limit) {
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(FIND_PAGE_SQL)) {
+            statement.setLong(1, afterReaderId == null ? 0L : afterReaderId);
+            statement.setInt(2, limit);
+            List<BookLending> bookLending = new ArrayList<>();
+            Map<Long, Readers> readers = new HashMap<>();
+            Map<Long, Books> books = new HashMap<>();
+            Map<Long, Library> libraries = new HashMap<>();
             var result = statement.executeQuery();
             while (result.next()) {
-                bookLending.add(builderBookLending(result));
+                bookLending.add(new BookLending(
+                        builderReader(result, readers),
+                        builderBook(result, books, libraries)
+                ));
             }
             return bookLending;
         } catch (SQLException e) {
@@ -68,35 +235,64 @@ public class BookLendingDao implements Dao<Long, BookLending> {
     }
 
     /**
-     * Builds a BookLending object from the result set.
+     * Builds a Readers object from a result set row containing the joined reader columns.
+     * Rows of the same result set that reference the same reader share one instance.
      *
-     * @param result the result set
-     * @return a BookLending object
-     * @throws SQLException if the reader or book cannot be found
-     */
-    private BookLending builderBookLending(ResultSet result) throws SQLException {
-        Optional<Readers> optionalReaders = ReadersDao.getInstance().findById(result.getLong("reader_id"));
-        if (optionalReaders.isEmpty()) {
-            throw new SQLException("Not found reader");
+     * @param result  the result set
+     * @param readers the readers already built for this result set, keyed by ID
+     * @return a Readers object
+     * @throws SQLException if there is an error accessing the result set
+     */
+    private Readers builderReader(ResultSet result, Map<Long, Readers> readers) throws SQLException {
+        Long readerId = result.getLong("reader_id");
+        Readers reader = readers.get(readerId);
+        if (reader == null) {
+            reader = new Readers(result.getString("readers_name"));
+            reader.setId(readerId);
+            readers.put(readerId, reader);
         }
-        Readers reader = optionalReaders.get();
+        return reader;
+    }
 
-        Optional<Books> optionalBook = BooksDao.getInstance().findById(result.getLong("book_id"));
-        if (optionalBook.isEmpty()) {
-            throw new SQLException("Not found book");
+    /**
+     * Builds a Books object from a result set row containing the joined book and library columns.
+     * Rows of the same result set that reference the same book or library share one instance.
+     *
+     * @param result    the result set
+     * @param books     the books already built for this result set, keyed by ID
+     * @param libraries the libraries already built for this result set, keyed by ID
+     * @return a Books object
+     * @throws SQLException if there is an error accessing the result set
+     */
+    private Books builderBook(ResultSet result, Map<Long, Books> books, Map<Long, Library> libraries) throws SQLException {
+        Long bookId = result.getLong("book_id");
+        Books book = books.get(bookId);
+        if (book == null) {
+            Long libraryId = result.getLong("library_id");
+            Library library = libraries.get(libraryId);
+            if (library == null) {
+                library = new Library(result.getString("library_name"));
+                library.setId(libraryId);
+                libraries.put(libraryId, library);
+            }
+            book = new Books(
+                    result.getString("title"),
+                    result.getString("author"),
+                    library
+            );
+            book.setId(bookId);
+            books.put(bookId, book);
         }
-        Books book = optionalBook.get();
-
-        return new BookLending(
-                reader,
-                book
-        );
+        return book;
     }
 
     private static final String FIND_BY_READER_ID_SQL = """
-            SELECT book_id
-            FROM book_lending
-            WHERE reader_id = ?
+            SELECT bl.book_id, b.title, b.author, b.library_id, l.library_name
+            FROM book_lending bl
+            JOIN books b ON b.id = bl.book_id
+            JOIN library l ON l.id = b.library_id
+            WHERE bl.reader_id = ?
+            ORDER BY bl.book_id
             """;
 
     /**
@@ -107,18 +303,19 @@ public class BookLendingDao implements Dao<Long, BookLending> {
      * @throws DaoException if there is a data access error
      */
     public List<Books> findByReaderId(Long id) {
-        BooksDao booksDao = BooksDao.getInstance();
+        return METRICS.record("findByReaderId", () -> doFindByReaderId(id));
+    }
+
+    private List<Books> doFindByReaderId(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_BY_READER_ID_SQL)) {
             statement.setLong(1, id);
             var result = statement.executeQuery();
             List<Books> books = new ArrayList<>();
+            Map<Long, Books> booksById = new HashMap<>();
+            Map<Long, Library> libraries = new HashMap<>();
             while (result.next()) {
-                Optional<Books> optional = booksDao.findById(result.getLong("book_id"));
-                if (optional.isEmpty()) {
-                    throw new SQLException("Not found book");
-                }
-                books.add(optional.get());
+                books.add(builderBook(result, booksById, libraries));
             }
             return books;
         } catch (SQLException e) {
@@ -127,35 +324,46 @@ public class BookLendingDao implements Dao<Long, BookLending> {
     }
 
     private static final String FIND_BY_NOT_READER_ID_SQL = """
-            SELECT id
-            FROM books
-            WHERE id NOT IN (
-                SELECT book_id
-                FROM book_lending
-                WHERE reader_id = ?
-            );
+            SELECT b.id AS book_id, b.title, b.author, b.library_id, l.library_name
+            FROM books b
+            JOIN library l ON l.id = b.library_id
+            WHERE b.id > ?
+              AND NOT EXISTS (
+                  SELECT 1
+                  FROM book_lending bl
+                  WHERE bl.book_id = b.id
+                    AND bl.reader_id = ?
+              )
+            ORDER BY b.id
+            LIMIT ?
             """;
 
     /**
-     * Finds all books that have not been lent to a specific reader.
+     * Finds one page of books that have not been lent to a specific reader,
+     * ordered by book ID.
      *
-     * @param id the reader's ID
+     * @param id          the reader's ID
+     * @param afterBookId only books with an ID greater than this are returned; null starts from the first book
+     * @param limit       the maximum number of books to return
      * @return a list of Books
      * @throws DaoException if there is a data access error
      */
-    public List<Books> findByNotReaderId(Long id) {
-        BooksDao booksDao = BooksDao.getInstance();
+    public List<Books> findByNotReaderId(Long id, Long afterBookId, int limit) {
+        return METRICS.record("findByNotReaderId", () -> doFindByNotReaderId(id, afterBookId, limit));
+    }
+
+    private List<Books> doFindByNotReaderId(Long id, Long afterBookId, int limit) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_BY_NOT_READER_ID_SQL)) {
-            statement.setLong(1, id);
+            statement.setLong(1, afterBookId == null ? 0L : afterBookId);
+            statement.setLong(2, id);
+            statement.setInt(3, limit);
             var result = statement.executeQuery();
             List<Books> books = new ArrayList<>();
+            Map<Long, Books> booksById = new HashMap<>();
+            Map<Long, Library> libraries = new HashMap<>();
             while (result.next()) {
-                Optional<Books> optional = booksDao.findById(result.getLong("id"));
-                if (optional.isEmpty()) {
-                    throw new SQLException("Not found book");
-                }
-                books.add(optional.get());
+                books.add(builderBook(result, booksById, libraries));
             }
             return books;
         } catch (SQLException e) {
@@ -164,9 +372,11 @@ public class BookLendingDao implements Dao<Long, BookLending> {
     }
 
     private static final String FIND_BY_BOOK_ID_SQL = """
-            SELECT reader_id
-            FROM book_lending
-            WHERE book_id = ?
+            SELECT bl.reader_id, r.readers_name
+            FROM book_lending bl
+            JOIN readers r ON r.id = bl.reader_id
+            WHERE bl.book_id = ?
+            ORDER BY bl.reader_id
             """;
 
     /**
@@ -177,18 +387,18 @@ public class BookLendingDao implements Dao<Long, BookLending> {
      * @throws DaoException if there is a data access error
      */
     public List<Readers> findByBookId(Long id) {
-        ReadersDao readersDao = ReadersDao.getInstance();
+        return METRICS.record("findByBookId", () -> doFindByBookId(id));
+    }
+
+    private List<Readers> doFindByBookId(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_BY_BOOK_ID_SQL)) {
             statement.setLong(1, id);
             var result = statement.executeQuery();
             List<Readers> readers = new ArrayList<>();
+            Map<Long, Readers> readersById = new HashMap<>();
             while (result.next()) {
-                Optional<Readers> optional = readersDao.findById(result.getLong("reader_id"));
-                if (optional.isEmpty()) {
-                    throw new SQLException("Not found book");
-                }
-                readers.add(optional.get());
+                readers.add(builderReader(result, readersById));
             }
             return readers;
         } catch (SQLException e) {
@@ -196,6 +406,47 @@ public class BookLendingDao implements Dao<Long, BookLending> {
         }
     }
 
+    private static final String EXISTS_BY_READER_ID_SQL = """
+            SELECT EXISTS (SELECT 1 FROM book_lending WHERE reader_id = ?)
+            """;
+
+    /**
+     * Checks whether a reader has borrowed any book, without loading the books.
+     *
+     * @param id the reader's ID
+     * @return true if at least one book is lent to the reader
+     * @throws DaoException if there is a data access error
+     */
+    public boolean existsByReaderId(Long id) {
+        return METRICS.record("existsByReaderId", () -> exists(EXISTS_BY_READER_ID_SQL, id));
+    }
+
+    private static final String EXISTS_BY_BOOK_ID_SQL = """
+            SELECT EXISTS (SELECT 1 FROM book_lending WHERE book_id = ?)
+            """;
+
+    /**
+     * Checks whether a book is lent to any reader, without loading the readers.
+     *
+     * @param id the book's ID
+     * @return true if the book is lent to at least one reader
+     * @throws DaoException if there is a data access error
+     */
+    public boolean existsByBookId(Long id) {
+        return METRICS.record("existsByBookId", () -> exists(EXISTS_BY_BOOK_ID_SQL, id));
+    }
+
+    private boolean exists(String sql, Long id) {
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, id);
+            var result = statement.executeQuery();
+            return result.next() && result.getBoolean(1);
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
     private static final String SAVE_SQL = """
             INSERT INTO book_lending (reader_id, book_id)
             VALUES (?, ?)
@@ -209,6 +460,10 @@ public class BookLendingDao implements Dao<Long, BookLending> {
      * @throws DaoException if there is a data access error
      */
     public BookLending save(BookLending entity) {
+        return METRICS.record("save", () -> doSave(entity));
+    }
+
+    private BookLending doSave(BookLending entity) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(SAVE_SQL)) {
             statement.setLong(1, entity.getReader().getId());
@@ -217,6 +472,92 @@ public class BookLendingDao implements Dao<Long, BookLending> {
             return entity;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            TableVersions.changed(TableVersions.Table.BOOK_LENDING);
+        }
+    }
+
+    private static final String SAVE_ALL_SQL = """
+            WITH requested AS (
+                SELECT r.reader_id, r.book_id,
+                       EXISTS (SELECT 1 FROM readers WHERE id = r.reader_id) AS reader_exists,
+                       EXISTS (SELECT 1 FROM books WHERE id = r.book_id) AS book_exists
+                FROM (SELECT DISTINCT reader_id, book_id
+                      FROM unnest(?::bigint[], ?::bigint[]) AS u(reader_id, book_id)) r
+            ), inserted AS (
+                INSERT INTO book_lending (reader_id, book_id)
+                SELECT reader_id, book_id
+                FROM requested
+                WHERE NOT EXISTS (SELECT 1 FROM requested WHERE NOT (reader_exists AND book_exists))
+                ON CONFLICT DO NOTHING
+                RETURNING reader_id, book_id
+            )
+            SELECT r.reader_id, r.book_id, r.reader_exists, r.book_exists,
+                   i.book_id IS NOT NULL AS inserted
+            FROM requested r
+            LEFT JOIN inserted i ON i.reader_id = r.reader_id AND i.book_id = r.book_id
+            """;
+
+    /**
+     * Saves book lending records in the database in one statement. Lendings that already
+     * exist, or appear twice in the input, are skipped; the readers and books are checked
+     * in the same statement.
+     *
+     * @param entities the BookLending objects to be saved
+     * @return the BookLending objects that were inserted, in the given order
+     * @throws IllegalArgumentException if a lending references a reader or book that does not
+     *                                  exist; no record is saved in that case
+     * @throws DaoException             if there is a data access error; no record is saved in that case
+     */
+    @Override
+    public List<BookLending> saveAll(Collection<BookLending> entities) {
+        return METRICS.record("saveAll", () -> doSaveAll(entities));
+    }
+
+    private List<BookLending> doSaveAll(Collection<BookLending> entities) {
+        if (entities.isEmpty()) {
+            return List.of();
+        }
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(SAVE_ALL_SQL)) {
+            statement.setArray(1, connection.createArrayOf("bigint",
+                    entities.stream().map(entity -> entity.getReader().getId()).toArray()));
+            statement.setArray(2, connection.createArrayOf("bigint",
+                    entities.stream().map(entity -> entity.getBook().getId()).toArray()));
+            Set<List<Long>> inserted = new HashSet<>();
+            Set<Long> missingReaders = new TreeSet<>();
+            Set<Long> missingBooks = new TreeSet<>();
+            var result = statement.executeQuery();
+            while (result.next()) {
+                long readerId = result.getLong("reader_id");
+                long bookId = result.getLong("book_id");
+                if (result.getBoolean("inserted")) {
+                    inserted.add(List.of(readerId, bookId));
+                }
+                if (!result.getBoolean("reader_exists")) {
+                    missingReaders.add(readerId);
+                }
+                if (!result.getBoolean("book_exists")) {
+                    missingBooks.add(bookId);
+                }
+            }
+            if (!missingReaders.isEmpty()) {
+                throw new IllegalArgumentException("Readers " + missingReaders + " do not exist");
+            }
+            if (!missingBooks.isEmpty()) {
+                throw new IllegalArgumentException("Books " + missingBooks + " do not exist");
+            }
+            List<BookLending> saved = new ArrayList<>(inserted.size());
+            for (BookLending entity : entities) {
+                if (inserted.remove(List.of(entity.getReader().getId(), entity.getBook().getId()))) {
+                    saved.add(entity);
+                }
+            }
+            return saved;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        } finally {
+            TableVersions.changed(TableVersions.Table.BOOK_LENDING);
         }
     }
 
@@ -241,6 +582,10 @@ public class BookLendingDao implements Dao<Long, BookLending> {
      */
     @Override
     public boolean delete(Long readerId, Long bookId) {
+        return METRICS.record("deleteByReaderAndBook", () -> doDelete(readerId, bookId));
+    }
+
+    private boolean doDelete(Long readerId, Long bookId) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(DELETE_FROM_READER_SQL)) {
             statement.setLong(1, readerId);
@@ -248,6 +593,60 @@ public class BookLendingDao implements Dao<Long, BookLending> {
             return statement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            TableVersions.changed(TableVersions.Table.BOOK_LENDING);
+        }
+    }
+
+    private static final String DELETE_WITH_VALIDATION_SQL = """
+            WITH deleted AS (
+                DELETE FROM book_lending
+                WHERE reader_id = ?
+                AND book_id = ?
+                RETURNING reader_id
+            )
+            SELECT EXISTS (SELECT 1 FROM deleted) AS deleted,
+                   EXISTS (SELECT 1 FROM readers WHERE id = ?) AS reader_exists,
+                   EXISTS (SELECT 1 FROM books WHERE id = ?) AS book_exists
+            """;
+
+    /**
+     * Deletes the lending of a book to a reader and tells why nothing was deleted, in one
+     * round trip: the delete and the existence checks of the reader and the book run as a
+     * single statement.
+     *
+     * @param readerId the reader's ID
+     * @param bookId   the book's ID
+     * @return the outcome of the deletion
+     * @throws DaoException if there is a data access error
+     */
+    public DeleteOutcome deleteLending(Long readerId, Long bookId) {
+        return METRICS.record("deleteLending", () -> doDeleteLending(readerId, bookId));
+    }
+
+    private DeleteOutcome doDeleteLending(Long readerId, Long bookId) {
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(DELETE_WITH_VALIDATION_SQL)) {
+            statement.setLong(1, readerId);
+            statement.setLong(2, bookId);
+            statement.setLong(3, readerId);
+            statement.setLong(4, bookId);
+            var result = statement.executeQuery();
+            result.next();
+            if (result.getBoolean("deleted")) {
+                return DeleteOutcome.DELETED;
+            }
+            if (!result.getBoolean("reader_exists")) {
+                return DeleteOutcome.READER_MISSING;
+            }
+            if (!result.getBoolean("book_exists")) {
+                return DeleteOutcome.BOOK_MISSING;
+            }
+            return DeleteOutcome.NOT_LENT;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        } finally {
+            TableVersions.changed(TableVersions.Table.BOOK_LENDING);
         }
     }
 }
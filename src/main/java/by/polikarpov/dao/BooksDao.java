@@ -4,13 +4,21 @@ import by.polikarpov.entity.Books;
 import by.polikarpov.entity.Library;
 import by.polikarpov.exception.DaoException;
 import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.IdentityMap;
+import by.polikarpov.util.TableVersions;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for managing book entities in the database.
@@ -21,6 +29,8 @@ public class BooksDao implements Dao<Long, Books> {
 
     private static final BooksDao INSTANCE = new BooksDao();
 
+    private static final DaoMetrics METRICS = DaoMetrics.of(BooksDao.class);
+
     private BooksDao() {
     }
 
@@ -50,6 +60,10 @@ public class BooksDao implements Dao<Long, Books> {
      */
     @Override
     public boolean update(Books entity) {
+        return METRICS.record("update", () -> doUpdate(entity));
+    }
+
+    private boolean doUpdate(Books entity) {
         try (var connection = ConnectionManager.getConnection();
              var preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
 
@@ -60,13 +74,17 @@ public class BooksDao implements Dao<Long, Books> {
             return preparedStatement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            IdentityMap.evict(Books.class, entity.getId());
+            TableVersions.changed(TableVersions.Table.BOOKS);
         }
     }
 
     private static final String FIND_ALL_SQL = """
-            SELECT id, title, author, library_id
-            FROM books
-            ORDER BY id
+            SELECT b.id, b.title, b.author, b.library_id, l.library_name
+            FROM books b
+            JOIN library l ON l.id = b.library_id
+            ORDER BY b.id
             """;
 
     /**
@@ -77,12 +95,17 @@ public class BooksDao implements Dao<Long, Books> {
      */
     @Override
     public List<Books> findAll() {
+        return METRICS.record("findAll", this::doFindAll);
+    }
+
+    private List<Books> doFindAll() {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_ALL_SQL)) {
             List<Books> books = new ArrayList<>();
+            Map<Long, Library> libraries = new HashMap<>();
             var result = statement.executeQuery();
             while (result.next()) {
-                books.add(builderBook(result));
+                books.add(builderBook(result, libraries));
             }
             return books;
         } catch (SQLException e) {
@@ -91,39 +114,97 @@ public class BooksDao implements Dao<Long, Books> {
     }
 
     /**
-     * Builds a Books object from the result set.
+     * Builds a Books object from a result set row that contains the joined library columns.
+     * Rows of the same result set that reference the same library share one Library instance.
      *
-     * @param result the result set containing book data
+     * @param result    the result set containing book and library data
+     * @param libraries the libraries already built for this result set, keyed by ID
      * @return a Books object
-     * @throws SQLException if the library associated with the book cannot be found
+     * @throws SQLException if there is an error accessing the result set
      */
-    private Books builderBook(ResultSet result) throws SQLException {
-        LibraryDao libraryDao = LibraryDao.getInstance();
-        Library library;
-        Books book;
-        var libraryDB = libraryDao.findById(result.getLong("library_id"));
-        if (libraryDB.isPresent()) {
-            library = libraryDB.get();
-            book = new Books(
-                    result.getString("title"),
-                    result.getString("author"),
-                    library
-            );
-        } else {
-            throw new SQLException("Library not found");
+    private Books builderBook(ResultSet result, Map<Long, Library> libraries) throws SQLException {
+        Long libraryId = result.getLong("library_id");
+        Library library = libraries.get(libraryId);
+        if (library == null) {
+            library = new Library(result.getString("library_name"));
+            library.setId(libraryId);
+            libraries.put(libraryId, library);
         }
+        Books book = new Books(
+                result.getString("title"),
+                result.getString("author"),
+                library
+        );
         book.setId(result.getLong("id"));
         return book;
     }
 
+    /**
+     * Streams all book records ordered by ID through a server-side cursor, so memory use
+     * does not depend on the size of the table. The stream holds a connection until it is
+     * closed and must be used in a try-with-resources block.
+     *
+     * @return a lazy stream of Books objects
+     * @throws DaoException if there is a data access error
+     */
+    public Stream<Books> streamAll() {
+        return METRICS.record("streamAll", this::doStreamAll);
+    }
+
+    private Stream<Books> doStreamAll() {
+        Map<Long, Library> libraries = new HashMap<>();
+        return ResultSetStreams.stream(FIND_ALL_SQL, result -> builderBook(result, libraries));
+    }
+
+    private static final String FIND_PAGE_SQL = """
+            SELECT b.id, b.title, b.author, b.library_id, l.library_name
+            FROM books b
+            JOIN library l ON l.id = b.library_id
+            WHERE b.id > ?
+            ORDER BY b.id
+            LIMIT ?
+            """;
+
+    /**
+     * Retrieves one page of book records ordered by ID.
+     *
+     * @param afterId the ID of the last book of the previous page, or null for the first page
+     * @param limit   the maximum number of books to return
+     * @return a list of Books objects
+     * @throws DaoException if there is a data access error
+     */
+    @Override
+    public List<Books> findPage(Long afterId, int limit) {
+        return METRICS.record("findPage", () -> doFindPage(afterId, limit));
+    }
+
+    private List<Books> doFindPage(Long afterId, int limit) {
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(FIND_PAGE_SQL)) {
+            statement.setLong(1, afterId == null ? 0L : afterId);
+            statement.setInt(2, limit);
+            List<Books> books = new ArrayList<>();
+            Map<Long, Library> libraries = new HashMap<>();
+            var result = statement.executeQuery();
+            while (result.next()) {
+                books.add(builderBook(result, libraries));
+            }
+            return books;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
     private static final String FIND_BY_ID_SQL = """
-            SELECT id, title, author, library_id
-            FROM books
-            WHERE id = ?
+            SELECT b.id, b.title, b.author, b.library_id, l.library_name
+            FROM books b
+            JOIN library l ON l.id = b.library_id
+            WHERE b.id = ?
             """;
 
     /**
      * Finds a book by its ID.
+     * Within a request every ID is loaded at most once, see {@link IdentityMap}.
      *
      * @param id the book's ID
      * @return an Optional containing the found Books object or empty if not found
@@ -131,13 +212,17 @@ public class BooksDao implements Dao<Long, Books> {
      */
     @Override
     public Optional<Books> findById(Long id) {
+        return METRICS.record("findById", () -> IdentityMap.find(Books.class, id, () -> queryById(id)));
+    }
+
+    private Optional<Books> queryById(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_BY_ID_SQL)) {
             statement.setLong(1, id);
             var result = statement.executeQuery();
             Optional<Books> book = Optional.empty();
             if (result.next()) {
-                book = Optional.of(builderBook(result));
+                book = Optional.of(builderBook(result, new HashMap<>()));
             }
             return book;
         } catch (SQLException e) {
@@ -146,9 +231,11 @@ public class BooksDao implements Dao<Long, Books> {
     }
 
     private static final String FIND_ALL_BY_LIBRARY_ID_SQL = """
-            SELECT id, title, author, library_id
-            FROM books
-            WHERE library_id = ?
+            SELECT b.id, b.title, b.author, b.library_id, l.library_name
+            FROM books b
+            JOIN library l ON l.id = b.library_id
+            WHERE b.library_id = ?
+            ORDER BY b.id
             """;
 
     /**
@@ -159,13 +246,18 @@ public class BooksDao implements Dao<Long, Books> {
      * @throws DaoException if there is a data access error
      */
     public List<Books> findAllByLibraryId(Long libraryId) {
+        return METRICS.record("findAllByLibraryId", () -> doFindAllByLibraryId(libraryId));
+    }
+
+    private List<Books> doFindAllByLibraryId(Long libraryId) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_ALL_BY_LIBRARY_ID_SQL)) {
             statement.setLong(1, libraryId);
             List<Books> books = new ArrayList<>();
+            Map<Long, Library> libraries = new HashMap<>();
             var result = statement.executeQuery();
             while (result.next()) {
-                books.add(builderBook(result));
+                books.add(builderBook(result, libraries));
             }
             return books;
         } catch (SQLException e) {
@@ -173,6 +265,69 @@ public class BooksDao implements Dao<Long, Books> {
         }
     }
 
+    private static final String SEARCH_SQL = """
+            SELECT b.id, b.title, b.author, b.library_id, l.library_name
+            FROM books b
+            JOIN library l ON l.id = b.library_id,
+                 to_tsquery('simple', ?) query
+            WHERE b.search_vector @@ query
+            ORDER BY ts_rank(b.search_vector, query) DESC, b.id
+            LIMIT ?
+            """;
+
+    /**
+     * Searches books by words of their title and author. Every word of the query must
+     * match the beginning of a word of the book, so results appear while the last word is
+     * still being typed. Matches in the title rank higher than matches in the author.
+     *
+     * @param query the words to search for
+     * @param limit the maximum number of books to return
+     * @return the matching books, best matches first; empty if the query has no words
+     * @throws DaoException if there is a data access error
+     */
+    public List<Books> search(String query, int limit) {
+        return METRICS.record("search", () -> doSearch(query, limit));
+    }
+
+    private List<Books> doSearch(String query, int limit) {
+        String tsQuery = toPrefixQuery(query);
+        if (tsQuery.isEmpty()) {
+            return List.of();
+        }
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(SEARCH_SQL)) {
+            statement.setString(1, tsQuery);
+            statement.setInt(2, limit);
+            List<Books> books = new ArrayList<>();
+            Map<Long, Library> libraries = new HashMap<>();
+            var result = statement.executeQuery();
+            while (result.next()) {
+                books.add(builderBook(result, libraries));
+            }
+            return books;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    /**
+     * Turns free text into a tsquery that requires every word as a prefix, e.g.
+     * {@code "War pea"} becomes {@code "war:* & pea:*"}. Everything except letters and
+     * digits is dropped, so user input cannot produce tsquery syntax errors.
+     */
+    static String toPrefixQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringJoiner tsQuery = new StringJoiner(" & ");
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                tsQuery.add(word + ":*");
+            }
+        }
+        return tsQuery.toString();
+    }
+
     private static final String SAVE_SQL = """
             INSERT INTO books (title, author, library_id)
             VALUES (?, ?, ?)
@@ -187,6 +342,10 @@ public class BooksDao implements Dao<Long, Books> {
      */
     @Override
     public Books save(Books entity) {
+        return METRICS.record("save", () -> doSave(entity));
+    }
+
+    private Books doSave(Books entity) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(SAVE_SQL, Statement.RETURN_GENERATED_KEYS)) {
             statement.setString(1, entity.getTitle());
@@ -201,6 +360,32 @@ public class BooksDao implements Dao<Long, Books> {
             return entity;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            TableVersions.changed(TableVersions.Table.BOOKS);
+        }
+    }
+
+    /**
+     * Saves new book records in the database with JDBC batching.
+     *
+     * @param entities the Books objects to be saved
+     * @return the saved Books objects with the generated IDs
+     * @throws DaoException if there is a data access error; no record is saved in that case
+     */
+    @Override
+    public List<Books> saveAll(Collection<Books> entities) {
+        return METRICS.record("saveAll", () -> doSaveAll(entities));
+    }
+
+    private List<Books> doSaveAll(Collection<Books> entities) {
+        try {
+            return BatchInserts.insertAll(SAVE_SQL, entities, (statement, entity) -> {
+                statement.setString(1, entity.getTitle());
+                statement.setString(2, entity.getAuthor());
+                statement.setLong(3, entity.getLibrary().getId());
+            }, "id", (entity, keys) -> entity.setId(keys.getLong("id")));
+        } finally {
+            TableVersions.changed(TableVersions.Table.BOOKS);
         }
     }
 
@@ -218,12 +403,19 @@ public class BooksDao implements Dao<Long, Books> {
      */
     @Override
     public boolean delete(Long id) {
+        return METRICS.record("delete", () -> doDelete(id));
+    }
+
+    private boolean doDelete(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(DELETE_SQL)) {
             statement.setLong(1, id);
             return statement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            IdentityMap.evict(Books.class, id);
+            TableVersions.changed(TableVersions.Table.BOOKS, TableVersions.Table.BOOK_LENDING);
         }
     }
 
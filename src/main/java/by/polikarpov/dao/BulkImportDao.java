@@ -0,0 +1,231 @@
+package by.polikarpov.dao;
+
+import by.polikarpov.exception.DaoException;
+import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.TableVersions;
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object (DAO) class for loading large amounts of rows with PostgreSQL {@code COPY}.
+ * The input is streamed into a temporary staging table, the foreign keys of all staged rows
+ * are checked with one query per referenced table, and the rows are then moved into the
+ * target table with a single {@code INSERT ... SELECT}. Everything runs in one transaction,
+ * so an import either loads every row or none.
+ */
+public class BulkImportDao {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkImportDao.class.getName());
+
+    private static final BulkImportDao INSTANCE = new BulkImportDao();
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A table that can be imported.
+     */
+    public enum Target {
+
+        LIBRARY("library", List.of("library_name"), Map.of(), ""),
+        BOOKS("books", List.of("title", "author", "library_id"), Map.of("library_id", "library"), ""),
+        READERS("readers", List.of("readers_name"), Map.of(), ""),
+
+        /**
+         * Lendings that already exist, or appear twice in the input, are skipped.
+         */
+        BOOK_LENDING("book_lending", List.of("reader_id", "book_id"),
+                Map.of("reader_id", "readers", "book_id", "books"), "ON CONFLICT DO NOTHING");
+
+        private final String table;
+        private final List<String> columns;
+        private final Map<String, String> foreignKeys;
+        private final String conflictClause;
+
+        Target(String table, List<String> columns, Map<String, String> foreignKeys, String conflictClause) {
+            this.table = table;
+            this.columns = columns;
+            this.foreignKeys = foreignKeys;
+            this.conflictClause = conflictClause;
+        }
+
+        /**
+         * Returns the name of the table.
+         *
+         * @return the table name
+         */
+        public String table() {
+            return table;
+        }
+
+        /**
+         * Returns the columns expected in every input row, in input order.
+         *
+         * @return the column names
+         */
+        public List<String> columns() {
+            return columns;
+        }
+
+        private String stagingTable() {
+            return "import_" + table;
+        }
+    }
+
+    /**
+     * The format of the input.
+     */
+    public enum Format {
+
+        /**
+         * Comma separated values with double-quote quoting.
+         */
+        CSV("csv"),
+
+        /**
+         * Tab separated values in the PostgreSQL text format, with {@code \N} for null.
+         */
+        TSV("text");
+
+        private final String copyFormat;
+
+        Format(String copyFormat) {
+            this.copyFormat = copyFormat;
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     *
+     * @param target       the imported table
+     * @param rowsRead     the number of rows read from the input
+     * @param rowsInserted the number of rows inserted into the table
+     * @param elapsedNanos the duration of the whole import
+     */
+    public record Result(Target target, long rowsRead, long rowsInserted, long elapsedNanos) {
+
+        /**
+         * Returns the import throughput.
+         *
+         * @return the number of rows read per second
+         */
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    private BulkImportDao() {
+    }
+
+    /**
+     * Returns a singleton instance of the BulkImportDao class.
+     *
+     * @return an instance of BulkImportDao
+     */
+    public static BulkImportDao getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Imports rows into a table. Every input row must contain the {@link Target#columns()} in order.
+     *
+     * @param target the table to import into
+     * @param input  the rows to import
+     * @param format the format of the input
+     * @param header whether the first line of the input is a header to skip; only allowed for CSV
+     * @return the number of imported rows and the duration of the import
+     * @throws IllegalArgumentException if rows reference libraries, readers or books that do not exist;
+     *                                  no row is imported in that case
+     * @throws DaoException             if there is a data access error or the input cannot be read
+     */
+    public Result importRows(Target target, Reader input, Format format, boolean header) {
+        if (header && format != Format.CSV) {
+            throw new IllegalArgumentException("A header line is only supported for CSV input");
+        }
+        long start = System.nanoTime();
+        try (var connection = ConnectionManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                createStagingTable(connection, target);
+                long rowsRead = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(copySql(target, format, header), input, COPY_BUFFER_SIZE);
+                LOGGER.info(() -> "Copied " + rowsRead + " rows into " + target.stagingTable());
+                execute(connection, "ANALYZE " + target.stagingTable());
+                checkForeignKeys(connection, target);
+                long rowsInserted = moveRows(connection, target);
+                connection.commit();
+                if (target == Target.LIBRARY) {
+                    LibraryDao.getInstance().invalidateCache();
+                }
+                TableVersions.changed(TableVersions.Table.valueOf(target.name()));
+                return new Result(target, rowsRead, rowsInserted, System.nanoTime() - start);
+            } catch (SQLException | IOException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+        } catch (SQLException | IOException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    /**
+     * The staging table has the column types of the target table but none of its
+     * constraints or defaults, so staged rows do not consume sequence values.
+     */
+    private void createStagingTable(Connection connection, Target target) throws SQLException {
+        execute(connection, "CREATE TEMPORARY TABLE " + target.stagingTable() + " ON COMMIT DROP AS SELECT "
+                            + String.join(", ", target.columns) + " FROM " + target.table + " WITH NO DATA");
+    }
+
+    private String copySql(Target target, Format format, boolean header) {
+        return "COPY " + target.stagingTable() + " (" + String.join(", ", target.columns) + ") FROM STDIN"
+               + " (FORMAT " + format.copyFormat + (header ? ", HEADER true" : "") + ")";
+    }
+
+    /**
+     * Counts the staged rows whose foreign key has no match, one anti-join per referenced table.
+     */
+    private void checkForeignKeys(Connection connection, Target target) throws SQLException {
+        for (Map.Entry<String, String> foreignKey : target.foreignKeys.entrySet()) {
+            String column = foreignKey.getKey();
+            String sql = "SELECT count(*) AS missing, min(s." + column + ") AS example"
+                         + " FROM " + target.stagingTable() + " s"
+                         + " WHERE NOT EXISTS (SELECT 1 FROM " + foreignKey.getValue() + " r WHERE r.id = s." + column + ")";
+            try (var statement = connection.prepareStatement(sql);
+                 var result = statement.executeQuery()) {
+                result.next();
+                long missing = result.getLong("missing");
+                if (missing > 0) {
+                    throw new IllegalArgumentException(missing + " rows reference a missing " + foreignKey.getValue()
+                                                       + " id in " + column + ", for example "
+                                                       + result.getObject("example"));
+                }
+            }
+        }
+    }
+
+    private long moveRows(Connection connection, Target target) throws SQLException {
+        String columns = String.join(", ", target.columns);
+        String sql = "INSERT INTO " + target.table + " (" + columns + ") SELECT " + columns
+                     + " FROM " + target.stagingTable() + " " + target.conflictClause;
+        try (var statement = connection.prepareStatement(sql)) {
+            return statement.executeLargeUpdate();
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (var statement = connection.prepareStatement(sql)) {
+            statement.execute();
+        }
+    }
+}
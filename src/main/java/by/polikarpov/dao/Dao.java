@@ -1,5 +1,6 @@
 package by.polikarpov.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +28,15 @@ public interface Dao<T, E> {
      */
     List<E> findAll();
 
+    /**
+     * Retrieves one page of entities ordered by identifier, starting after the given identifier.
+     *
+     * @param afterId the identifier of the last entity of the previous page, or null for the first page
+     * @param limit   the maximum number of entities to return
+     * @return a list of at most {@code limit} entities
+     */
+    List<E> findPage(T afterId, int limit);
+
     /**
      * Finds an entity by its identifier.
      *
@@ -43,6 +53,15 @@ public interface Dao<T, E> {
      */
     E save(E entity);
 
+    /**
+     * Saves new entities in the database in one transaction, sending the inserts in batches.
+     * Either all entities are saved or none.
+     *
+     * @param entities the entities to be saved
+     * @return the saved entities in the given order, with any generated values (e.g., ID)
+     */
+    List<E> saveAll(Collection<E> entities);
+
     /**
      * Deletes an entity from the database by its identifier.
      *
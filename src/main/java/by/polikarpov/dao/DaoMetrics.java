@@ -0,0 +1,67 @@
+package by.polikarpov.dao;
+
+import by.polikarpov.util.Metrics;
+import by.polikarpov.util.StatementMonitor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency, errors and returned rows of the public methods of one DAO in the
+ * {@code dao_call} metrics, labelled with the DAO and the method name. While a method runs,
+ * its statements are attributed to it in the {@link StatementMonitor}.
+ */
+final class DaoMetrics {
+
+    private static final Metrics.Family FAMILY =
+            Metrics.family("dao_call", "DAO method calls", true);
+
+    private final String dao;
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    private record Operation(String name, Metrics.Timer timer) {
+    }
+
+    private DaoMetrics(String dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Creates the metrics of a DAO.
+     *
+     * @param daoClass the DAO class, whose simple name becomes the {@code dao} label
+     * @return the metrics
+     */
+    static DaoMetrics of(Class<?> daoClass) {
+        return new DaoMetrics(daoClass.getSimpleName());
+    }
+
+    /**
+     * Runs a DAO method and records it.
+     *
+     * @param method the method name
+     * @param call   the method body
+     * @param <T>    the type of the result
+     * @return the result of the call
+     */
+    <T> T record(String method, Supplier<T> call) {
+        Operation operation = operation(method);
+        String previous = StatementMonitor.enterOperation(operation.name());
+        try {
+            return operation.timer().record(call);
+        } finally {
+            StatementMonitor.exitOperation(previous);
+        }
+    }
+
+    private Operation operation(String method) {
+        Operation operation = operations.get(method);
+        if (operation == null) {
+            operation = operations.computeIfAbsent(method, name ->
+                    new Operation(dao + "." + name, FAMILY.timer("dao", dao, "method", name)));
+        }
+        return operation;
+    }
+}
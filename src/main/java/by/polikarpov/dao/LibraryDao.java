@@ -1,13 +1,20 @@
 package by.polikarpov.dao;
 
+import by.polikarpov.entity.Books;
 import by.polikarpov.entity.Library;
 import by.polikarpov.exception.DaoException;
+import by.polikarpov.util.BoundedCache;
 import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.IdentityMap;
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.TableVersions;
+import by.polikarpov.util.TransactionManager;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,12 +22,27 @@ import java.util.Optional;
  * Data Access Object (DAO) class for managing library entities in the database.
  * This class provides methods for performing CRUD operations (Create, Read, Update, Delete)
  * and specific queries related to libraries.
+ * Libraries rarely change, so {@link #findById(Long)} and {@link #findAll()} are served from
+ * a bounded in-memory cache that expires entries after a time-to-live and is invalidated
+ * by every write made through this DAO. Inside a transaction the cache is bypassed, so it never
+ * holds uncommitted data, and writes invalidate it once the transaction has ended.
  */
 public class LibraryDao implements Dao<Long, Library> {
 
+    private static final String CACHE_MAX_SIZE_KEY = "cache.library.maxSize";
+    private static final String CACHE_TTL_KEY = "cache.library.ttlMs";
+
     private static final LibraryDao INSTANCE = new LibraryDao();
 
+    private static final DaoMetrics METRICS = DaoMetrics.of(LibraryDao.class);
+
+    private final BoundedCache<Long, Library> byIdCache;
+    private final BoundedCache<Boolean, List<Library>> findAllCache;
+
     private LibraryDao() {
+        long ttlMillis = PropertiesUtil.getLong(CACHE_TTL_KEY, 300_000);
+        byIdCache = new BoundedCache<>(PropertiesUtil.getInt(CACHE_MAX_SIZE_KEY, 1000), ttlMillis);
+        findAllCache = new BoundedCache<>(1, ttlMillis);
     }
 
     /**
@@ -47,6 +69,10 @@ public class LibraryDao implements Dao<Long, Library> {
      */
     @Override
     public boolean update(Library entity) {
+        return METRICS.record("update", () -> doUpdate(entity));
+    }
+
+    private boolean doUpdate(Library entity) {
         try (var connection = ConnectionManager.getConnection();
              var preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
 
@@ -55,6 +81,9 @@ public class LibraryDao implements Dao<Long, Library> {
             return preparedStatement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            invalidate(entity.getId());
+            TableVersions.changed(TableVersions.Table.LIBRARY);
         }
     }
 
@@ -65,13 +94,29 @@ public class LibraryDao implements Dao<Long, Library> {
             """;
 
     /**
-     * Retrieves all library records from the database.
+     * Retrieves all library records, from the cache when possible.
      *
      * @return a list of Library objects
      * @throws DaoException if there is a data access error
      */
     @Override
     public List<Library> findAll() {
+        return METRICS.record("findAll", this::doFindAll);
+    }
+
+    private List<Library> doFindAll() {
+        if (TransactionManager.isActive()) {
+            return queryAll();
+        }
+        List<Library> libraries = findAllCache.get(Boolean.TRUE, () -> List.copyOf(queryAll()));
+        List<Library> copies = new ArrayList<>(libraries.size());
+        for (Library library : libraries) {
+            copies.add(copyOf(library));
+        }
+        return copies;
+    }
+
+    private List<Library> queryAll() {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_ALL_SQL)) {
             List<Library> libraries = new ArrayList<>();
@@ -100,6 +145,43 @@ public class LibraryDao implements Dao<Long, Library> {
         return library;
     }
 
+    private static final String FIND_PAGE_SQL = """
+            SELECT id, library_name
+            FROM library
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    /**
+     * Retrieves one page of library records ordered by ID.
+     *
+     * @param afterId the ID of the last library of the previous page, or null for the first page
+     * @param limit   the maximum number of libraries to return
+     * @return a list of Library objects
+     * @throws DaoException if there is a data access error
+     */
+    @Override
+    public List<Library> findPage(Long afterId, int limit) {
+        return METRICS.record("findPage", () -> doFindPage(afterId, limit));
+    }
+
+    private List<Library> doFindPage(Long afterId, int limit) {
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(FIND_PAGE_SQL)) {
+            statement.setLong(1, afterId == null ? 0L : afterId);
+            statement.setInt(2, limit);
+            List<Library> libraries = new ArrayList<>();
+            var result = statement.executeQuery();
+            while (result.next()) {
+                libraries.add(builderLibrary(result));
+            }
+            return libraries;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
     private static final String FIND_BY_ID_SQL = """
             SELECT id, library_name
             FROM library
@@ -107,7 +189,9 @@ public class LibraryDao implements Dao<Long, Library> {
             """;
 
     /**
-     * Finds a library by its ID.
+     * Finds a library by its ID, from the cache when possible.
+     * Missing libraries are not cached.
+     * Within a request every ID is loaded at most once, see {@link IdentityMap}.
      *
      * @param id the library's ID
      * @return an Optional containing the found Library object or empty if not found
@@ -115,6 +199,18 @@ public class LibraryDao implements Dao<Long, Library> {
      */
     @Override
     public Optional<Library> findById(Long id) {
+        return METRICS.record("findById", () -> doFindById(id));
+    }
+
+    private Optional<Library> doFindById(Long id) {
+        if (TransactionManager.isActive()) {
+            return IdentityMap.find(Library.class, id, () -> queryById(id));
+        }
+        return IdentityMap.find(Library.class, id, () ->
+                Optional.ofNullable(byIdCache.get(id, () -> queryById(id).orElse(null))).map(LibraryDao::copyOf));
+    }
+
+    private Optional<Library> queryById(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_BY_ID_SQL)) {
             statement.setLong(1, id);
@@ -143,6 +239,10 @@ public class LibraryDao implements Dao<Long, Library> {
      */
     @Override
     public Library save(Library entity) {
+        return METRICS.record("save", () -> doSave(entity));
+    }
+
+    private Library doSave(Library entity) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(SAVE_SQL, Statement.RETURN_GENERATED_KEYS)) {
             statement.setString(1, entity.getLibraryName());
@@ -155,6 +255,32 @@ public class LibraryDao implements Dao<Long, Library> {
             return entity;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            TransactionManager.afterCompletion(findAllCache::invalidateAll);
+            TableVersions.changed(TableVersions.Table.LIBRARY);
+        }
+    }
+
+    /**
+     * Saves new library records in the database with JDBC batching.
+     *
+     * @param entities the Library objects to be saved
+     * @return the saved Library objects with the generated IDs
+     * @throws DaoException if there is a data access error; no record is saved in that case
+     */
+    @Override
+    public List<Library> saveAll(Collection<Library> entities) {
+        return METRICS.record("saveAll", () -> doSaveAll(entities));
+    }
+
+    private List<Library> doSaveAll(Collection<Library> entities) {
+        try {
+            return BatchInserts.insertAll(SAVE_SQL, entities,
+                    (statement, entity) -> statement.setString(1, entity.getLibraryName()),
+                    "id", (entity, keys) -> entity.setId(keys.getLong("id")));
+        } finally {
+            TransactionManager.afterCompletion(findAllCache::invalidateAll);
+            TableVersions.changed(TableVersions.Table.LIBRARY);
         }
     }
 
@@ -172,12 +298,20 @@ public class LibraryDao implements Dao<Long, Library> {
      */
     @Override
     public boolean delete(Long id) {
+        return METRICS.record("delete", () -> doDelete(id));
+    }
+
+    private boolean doDelete(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(DELETE_SQL)) {
             statement.setLong(1, id);
             return statement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            invalidate(id);
+            TableVersions.changed(TableVersions.Table.LIBRARY, TableVersions.Table.BOOKS,
+                    TableVersions.Table.BOOK_LENDING);
         }
     }
 
@@ -186,4 +320,48 @@ public class LibraryDao implements Dao<Long, Library> {
         // Method not implemented
         return false;
     }
+
+    /**
+     * Drops every cached library, for example after the table was changed outside this DAO.
+     */
+    public void invalidateCache() {
+        byIdCache.invalidateAll();
+        findAllCache.invalidateAll();
+    }
+
+    /**
+     * Returns the statistics of the cache behind {@link #findById(Long)}.
+     *
+     * @return the current cache statistics
+     */
+    public BoundedCache.Stats getCacheStats() {
+        return byIdCache.getStats();
+    }
+
+    /**
+     * Returns the statistics of the cache behind {@link #findAll()}.
+     *
+     * @return the current cache statistics
+     */
+    public BoundedCache.Stats getFindAllCacheStats() {
+        return findAllCache.getStats();
+    }
+
+    private void invalidate(Long id) {
+        TransactionManager.afterCompletion(() -> {
+            byIdCache.invalidate(id);
+            findAllCache.invalidateAll();
+        });
+        IdentityMap.evict(Library.class, id);
+        IdentityMap.evictAll(Books.class);
+    }
+
+    /**
+     * Returns a copy of a cached library, so that callers can never modify the cached instance.
+     */
+    private static Library copyOf(Library library) {
+        Library copy = new Library(library.getLibraryName());
+        copy.setId(library.getId());
+        return copy;
+    }
 }
@@ -3,11 +3,14 @@ package by.polikarpov.dao;
 import by.polikarpov.entity.Readers;
 import by.polikarpov.exception.DaoException;
 import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.IdentityMap;
+import by.polikarpov.util.TableVersions;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +23,8 @@ public class ReadersDao implements Dao<Long, Readers> {
 
     private static final ReadersDao INSTANCE = new ReadersDao();
 
+    private static final DaoMetrics METRICS = DaoMetrics.of(ReadersDao.class);
+
     private ReadersDao() {
     }
 
@@ -47,6 +52,10 @@ public class ReadersDao implements Dao<Long, Readers> {
      */
     @Override
     public boolean update(Readers entity) {
+        return METRICS.record("update", () -> doUpdate(entity));
+    }
+
+    private boolean doUpdate(Readers entity) {
         try (var connection = ConnectionManager.getConnection();
              var preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
 
@@ -55,6 +64,9 @@ public class ReadersDao implements Dao<Long, Readers> {
             return preparedStatement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            IdentityMap.evict(Readers.class, entity.getId());
+            TableVersions.changed(TableVersions.Table.READERS);
         }
     }
 
@@ -72,6 +84,10 @@ public class ReadersDao implements Dao<Long, Readers> {
      */
     @Override
     public List<Readers> findAll() {
+        return METRICS.record("findAll", this::doFindAll);
+    }
+
+    private List<Readers> doFindAll() {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_ALL_SQL)) {
             List<Readers> readers = new ArrayList<>();
@@ -100,6 +116,43 @@ public class ReadersDao implements Dao<Long, Readers> {
         return readers;
     }
 
+    private static final String FIND_PAGE_SQL = """
+            SELECT id, readers_name
+            FROM readers
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    /**
+     * Retrieves one page of reader records ordered by ID.
+     *
+     * @param afterId the ID of the last reader of the previous page, or null for the first page
+     * @param limit   the maximum number of readers to return
+     * @return a list of Readers objects
+     * @throws DaoException if there is a data access error
+     */
+    @Override
+    public List<Readers> findPage(Long afterId, int limit) {
+        return METRICS.record("findPage", () -> doFindPage(afterId, limit));
+    }
+
+    private List<Readers> doFindPage(Long afterId, int limit) {
+        try (var connection = ConnectionManager.getConnection();
+             var statement = connection.prepareStatement(FIND_PAGE_SQL)) {
+            statement.setLong(1, afterId == null ? 0L : afterId);
+            statement.setInt(2, limit);
+            List<Readers> readers = new ArrayList<>();
+            var result = statement.executeQuery();
+            while (result.next()) {
+                readers.add(builderReaders(result));
+            }
+            return readers;
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
     private static final String FIND_BY_ID_SQL = """
             SELECT id, readers_name
             FROM readers
@@ -108,6 +161,7 @@ public class ReadersDao implements Dao<Long, Readers> {
 
     /**
      * Finds a reader by its ID.
+     * Within a request every ID is loaded at most once, see {@link IdentityMap}.
      *
      * @param id the reader's ID
      * @return an Optional containing the found Readers object or empty if not found
@@ -115,6 +169,10 @@ public class ReadersDao implements Dao<Long, Readers> {
      */
     @Override
     public Optional<Readers> findById(Long id) {
+        return METRICS.record("findById", () -> IdentityMap.find(Readers.class, id, () -> queryById(id)));
+    }
+
+    private Optional<Readers> queryById(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(FIND_BY_ID_SQL)) {
             statement.setLong(1, id);
@@ -143,6 +201,10 @@ public class ReadersDao implements Dao<Long, Readers> {
      */
     @Override
     public Readers save(Readers entity) {
+        return METRICS.record("save", () -> doSave(entity));
+    }
+
+    private Readers doSave(Readers entity) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(SAVE_SQL, Statement.RETURN_GENERATED_KEYS)) {
             statement.setString(1, entity.getReadersName());
@@ -155,6 +217,30 @@ public class ReadersDao implements Dao<Long, Readers> {
             return entity;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            TableVersions.changed(TableVersions.Table.READERS);
+        }
+    }
+
+    /**
+     * Saves new reader records in the database with JDBC batching.
+     *
+     * @param entities the Readers objects to be saved
+     * @return the saved Readers objects with the generated IDs
+     * @throws DaoException if there is a data access error; no record is saved in that case
+     */
+    @Override
+    public List<Readers> saveAll(Collection<Readers> entities) {
+        return METRICS.record("saveAll", () -> doSaveAll(entities));
+    }
+
+    private List<Readers> doSaveAll(Collection<Readers> entities) {
+        try {
+            return BatchInserts.insertAll(SAVE_SQL, entities,
+                    (statement, entity) -> statement.setString(1, entity.getReadersName()),
+                    "id", (entity, keys) -> entity.setId(keys.getLong("id")));
+        } finally {
+            TableVersions.changed(TableVersions.Table.READERS);
         }
     }
 
@@ -172,12 +258,19 @@ public class ReadersDao implements Dao<Long, Readers> {
      */
     @Override
     public boolean delete(Long id) {
+        return METRICS.record("delete", () -> doDelete(id));
+    }
+
+    private boolean doDelete(Long id) {
         try (var connection = ConnectionManager.getConnection();
              var statement = connection.prepareStatement(DELETE_SQL)) {
             statement.setLong(1, id);
             return statement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DaoException(e);
+        } finally {
+            IdentityMap.evict(Readers.class, id);
+            TableVersions.changed(TableVersions.Table.READERS, TableVersions.Table.BOOK_LENDING);
         }
     }
 
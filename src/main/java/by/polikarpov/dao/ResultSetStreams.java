@@ -0,0 +1,136 @@
+package by.polikarpov.dao;
+
+import by.polikarpov.exception.DaoException;
+import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.PropertiesUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helper for DAO methods that stream large result sets row by row.
+ * The PostgreSQL driver only uses a server-side cursor when autocommit is off and
+ * a fetch size is set, otherwise it reads the whole result set into memory.
+ */
+final class ResultSetStreams {
+
+    private static final String FETCH_SIZE_KEY = "db.stream.fetchSize";
+
+    /**
+     * Number of rows fetched from the server per round trip while streaming.
+     */
+    static final int FETCH_SIZE = PropertiesUtil.getInt(FETCH_SIZE_KEY, 1000);
+
+    /**
+     * Maps the current row of a result set to an entity.
+     *
+     * @param <E> the type of the entity
+     */
+    @FunctionalInterface
+    interface RowMapper<E> {
+        E map(ResultSet result) throws SQLException;
+    }
+
+    /**
+     * Executes the query inside a read transaction and returns a lazy stream over its rows.
+     * The connection stays borrowed until the stream is closed, so callers must use the
+     * stream in a try-with-resources block.
+     *
+     * @param sql    the query to execute
+     * @param mapper the mapper applied to each row
+     * @param <E>    the type of the entities
+     * @return a stream that closes the result set, the statement and the connection when closed
+     * @throws DaoException if there is a data access error
+     */
+    static <E> Stream<E> stream(String sql, RowMapper<E> mapper) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet result = null;
+        try {
+            connection = ConnectionManager.getConnection();
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            result = statement.executeQuery();
+        } catch (SQLException e) {
+            DaoException exception = new DaoException(e);
+            try {
+                close(result, statement, connection);
+            } catch (DaoException closeFailure) {
+                exception.addSuppressed(closeFailure);
+            }
+            throw exception;
+        }
+        ResultSet rows = result;
+        PreparedStatement rowsStatement = statement;
+        Connection rowsConnection = connection;
+        return StreamSupport.stream(new RowSpliterator<>(rows, mapper), false)
+                .onClose(() -> close(rows, rowsStatement, rowsConnection));
+    }
+
+    /**
+     * Closes the given resources in reverse order of opening. Closing the pooled
+     * connection rolls back the read transaction and restores autocommit.
+     */
+    private static void close(ResultSet result, PreparedStatement statement, Connection connection) {
+        SQLException failure = null;
+        for (AutoCloseable resource : new AutoCloseable[]{result, statement, connection}) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e instanceof SQLException sqlException ? sqlException : new SQLException(e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw new DaoException(failure);
+        }
+    }
+
+    /**
+     * Spliterator that advances the result set one row per call.
+     */
+    private static final class RowSpliterator<E> extends Spliterators.AbstractSpliterator<E> {
+
+        private final ResultSet result;
+        private final RowMapper<E> mapper;
+
+        private RowSpliterator(ResultSet result, RowMapper<E> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.result = result;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            try {
+                if (!result.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(result));
+                return true;
+            } catch (SQLException e) {
+                throw new DaoException(e);
+            }
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ResultSetStreams() {
+    }
+}
@@ -0,0 +1,34 @@
+package by.polikarpov.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Data Transfer Object (DTO) representing one page of a keyset-paginated result.
+ *
+ * @param items      the items on this page
+ * @param nextCursor the cursor to pass to get the next page, or null if this is the last page
+ * @param <T>        the type of the cursor (the identifier of the last item)
+ * @param <E>        the type of the items
+ */
+public record Page<T, E>(List<E> items, T nextCursor) {
+
+    /**
+     * Builds a page from rows that were fetched with a limit of {@code limit + 1}.
+     * The extra row only signals that another page exists and is not included in the items.
+     *
+     * @param rows     the fetched rows, at most {@code limit + 1}
+     * @param limit    the requested page size
+     * @param cursorOf extracts the cursor from an item
+     * @param <T>      the type of the cursor
+     * @param <E>      the type of the items
+     * @return the page
+     */
+    public static <T, E> Page<T, E> of(List<E> rows, int limit, Function<E, T> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<E> items = List.copyOf(rows.subList(0, limit));
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+}
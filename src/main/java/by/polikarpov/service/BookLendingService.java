@@ -3,12 +3,18 @@ package by.polikarpov.service;
 import by.polikarpov.dao.BookLendingDao;
 import by.polikarpov.dto.BookLendingDto;
 import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.BookLending;
 import by.polikarpov.entity.Books;
 import by.polikarpov.entity.Readers;
 
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -57,6 +63,47 @@ public class BookLendingService implements Service<Long, BookLendingDto> {
                 ).toList();
     }
 
+    /**
+     * Retrieves one page of book lending records. A page holds every lending of at most
+     * {@code limit} readers, and the cursor is the ID of the last reader on the page.
+     *
+     * @param cursor the ID of the last reader of the previous page, or null for the first page
+     * @param limit  the maximum number of readers whose lendings are on the page
+     * @return a page of BookLendingDto with the cursor of the next page
+     */
+    @Override
+    public Page<Long, BookLendingDto> getPage(Long cursor, int limit) {
+        List<BookLendingDto> bookLending = new ArrayList<>();
+        Long lastReaderId = null;
+        int readers = 0;
+        for (BookLending lending : bookLendingDao.findPage(cursor, limit + 1)) {
+            Long readerId = lending.getReader().getId();
+            if (!readerId.equals(lastReaderId)) {
+                if (readers == limit) {
+                    return new Page<>(bookLending, lastReaderId);
+                }
+                readers++;
+                lastReaderId = readerId;
+            }
+            bookLending.add(new BookLendingDto(
+                    createReaderDto(lending.getReader()),
+                    createBookDto(lending.getBook())
+            ));
+        }
+        return new Page<>(bookLending, null);
+    }
+
+    /**
+     * Writes the whole lending history as CSV, one line per lending with the reader,
+     * the book and its library.
+     *
+     * @param out the stream to write the CSV to; it is not closed
+     * @return the number of exported lendings
+     */
+    public long exportAll(OutputStream out) {
+        return bookLendingDao.exportAll(out);
+    }
+
     private BooksDto createBookDto(Books book) {
         return new BooksDto(
                 book.getId(),
@@ -91,6 +138,52 @@ public class BookLendingService implements Service<Long, BookLendingDto> {
         bookLendingDao.save(bookLending);
     }
 
+    /**
+     * Adds new book lending records to the database in one statement. Lendings that already
+     * exist are skipped.
+     *
+     * @param entities the BookLendingDto objects to add
+     * @return the entities that were added, in the given order
+     * @throws IllegalArgumentException if a reader or book does not exist; nothing is added in that case
+     */
+    @Override
+    public List<BookLendingDto> addAll(Collection<BookLendingDto> entities) {
+        List<BookLending> lendings = new ArrayList<>(entities.size());
+        Map<BookLending, BookLendingDto> dtos = new IdentityHashMap<>();
+        for (BookLendingDto entity : entities) {
+            BookLending lending = buildBookLending(entity);
+            lendings.add(lending);
+            dtos.put(lending, entity);
+        }
+        return bookLendingDao.saveAll(lendings).stream()
+                .map(dtos::get)
+                .toList();
+    }
+
+    /**
+     * Lends books to a reader in one statement. Books already lent to the reader are skipped.
+     *
+     * @param readerId the ID of the reader
+     * @param bookIds  the IDs of the books
+     * @return the IDs of the books that were lent now, in the given order
+     * @throws IllegalArgumentException if the reader or one of the books does not exist;
+     *                                  nothing is lent in that case
+     */
+    public List<Long> lendAll(Long readerId, Collection<Long> bookIds) {
+        Readers reader = new Readers();
+        reader.setId(readerId);
+        List<BookLending> lendings = bookIds.stream()
+                .map(bookId -> {
+                    Books book = new Books();
+                    book.setId(bookId);
+                    return new BookLending(reader, book);
+                })
+                .toList();
+        return bookLendingDao.saveAll(lendings).stream()
+                .map(bookLending -> bookLending.getBook().getId())
+                .toList();
+    }
+
 
     @Override
     public void update(BookLendingDto entity) {
@@ -104,19 +197,20 @@ public class BookLendingService implements Service<Long, BookLendingDto> {
 
     /**
      * Deletes a book lending record by the reader ID and book ID.
+     * The deletion and the validation take a single database round trip.
      *
      * @param readerId the ID of the reader
      * @param bookId   the ID of the book
+     * @return true if the lending was deleted, false if the book was not lent to the reader
      * @throws IllegalArgumentException if the reader or book does not exist
      */
-    public void delete(Long readerId, Long bookId) {
-        if (bookLendingDao.findByReaderId(readerId).isEmpty()) {
-            throw new IllegalArgumentException("Reader " + readerId + " does not exist");
-        }
-        if (bookLendingDao.findByBookId(bookId).isEmpty()) {
-            throw new IllegalArgumentException("Book " + bookId + " does not exist");
-        }
-        bookLendingDao.delete(readerId, bookId);
+    public boolean delete(Long readerId, Long bookId) {
+        return switch (bookLendingDao.deleteLending(readerId, bookId)) {
+            case DELETED -> true;
+            case NOT_LENT -> false;
+            case READER_MISSING -> throw new IllegalArgumentException("Reader " + readerId + " does not exist");
+            case BOOK_MISSING -> throw new IllegalArgumentException("Book " + bookId + " does not exist");
+        };
     }
 
     /**
@@ -151,13 +245,15 @@ public class BookLendingService implements Service<Long, BookLendingDto> {
     }
 
     /**
-     * Retrieves all books that are not currently lent to a specific reader.
+     * Retrieves one page of books that are not currently lent to a specific reader.
      *
-     * @param id the ID of the reader
-     * @return a list of BooksDto that are not lent to the reader
+     * @param id     the ID of the reader
+     * @param cursor the ID of the last book of the previous page, or null for the first page
+     * @param limit  the maximum number of books on the page
+     * @return a page of BooksDto that are not lent to the reader
      */
-    public List<BooksDto> getByNotReaderId(Long id) {
-        return bookLendingDao.findByNotReaderId(id).stream()
+    public Page<Long, BooksDto> getByNotReaderId(Long id, Long cursor, int limit) {
+        List<BooksDto> books = bookLendingDao.findByNotReaderId(id, cursor, limit + 1).stream()
                 .map(book -> new BooksDto(
                         book.getId(),
                         book.getTitle(),
@@ -165,6 +261,7 @@ public class BookLendingService implements Service<Long, BookLendingDto> {
                         book.getLibrary()
                 ))
                 .toList();
+        return Page.of(books, limit, BooksDto::id);
     }
 
     private BookLending buildBookLending(BookLendingDto entity) {
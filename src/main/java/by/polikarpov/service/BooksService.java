@@ -2,14 +2,26 @@ package by.polikarpov.service;
 
 import by.polikarpov.dao.BooksDao;
 import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.entity.Books;
+import by.polikarpov.util.PrefixIndex;
+import by.polikarpov.util.TableVersions;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Service class responsible for operations related to books.
  * It acts as a layer between the presentation layer and the data access layer.
+ *
+ * <p>Title and author suggestions are served from an in-memory {@link PrefixIndex}. It is
+ * loaded from the database on first use and kept up to date by the writes of this service.
+ * Books written around it, for example by a bulk import or by deleting their library, change
+ * the {@link TableVersions} of the books table, and the index is loaded again on the next use.
+ * A new index is built off to the side and then published, so a reload never shows readers a
+ * partially filled index.
  */
 public class BooksService implements Service<Long, BooksDto> {
 
@@ -17,6 +29,18 @@ public class BooksService implements Service<Long, BooksDto> {
 
     private BooksDao booksDao;
 
+    private final Object suggestionsLock = new Object();
+
+    /**
+     * The published suggestions, or null until they are loaded; replaced as a whole on a reload.
+     */
+    private volatile PrefixIndex suggestions;
+
+    /**
+     * The version of the books table the suggestions are up to date with.
+     */
+    private volatile long suggestionsVersion;
+
     /**
      * Returns the singleton instance of the BooksService.
      *
@@ -37,6 +61,9 @@ public class BooksService implements Service<Long, BooksDto> {
      */
     public void setBooksDao(BooksDao booksDao) {
         this.booksDao = booksDao;
+        synchronized (suggestionsLock) {
+            suggestions = null;
+        }
     }
 
     /**
@@ -51,6 +78,21 @@ public class BooksService implements Service<Long, BooksDto> {
                 .toList();
     }
 
+    /**
+     * Retrieves one page of books ordered by ID.
+     *
+     * @param cursor the ID of the last book of the previous page, or null for the first page
+     * @param limit  the maximum number of books on the page
+     * @return a page of BooksDto with the cursor of the next page
+     */
+    @Override
+    public Page<Long, BooksDto> getPage(Long cursor, int limit) {
+        List<BooksDto> books = booksDao.findPage(cursor, limit + 1).stream()
+                .map(book -> new BooksDto(book.getId(), book.getTitle(), book.getAuthor(), book.getLibrary()))
+                .toList();
+        return Page.of(books, limit, BooksDto::id);
+    }
+
     /**
      * Retrieves a book by its ID.
      *
@@ -84,7 +126,27 @@ public class BooksService implements Service<Long, BooksDto> {
     @Override
     public void add(BooksDto entity) {
         Books book = buildBook(entity);
+        long version = booksVersion();
         booksDao.save(book);
+        updateSuggestions(null, book, version);
+    }
+
+    /**
+     * Adds new books to the database in one batch.
+     *
+     * @param entities the BooksDto objects to add
+     * @return the added entities with their generated IDs
+     */
+    @Override
+    public List<BooksDto> addAll(Collection<BooksDto> entities) {
+        long version = booksVersion();
+        List<Books> books = booksDao.saveAll(entities.stream().map(this::buildBook).toList());
+        for (Books book : books) {
+            updateSuggestions(null, book, version);
+        }
+        return books.stream()
+                .map(book -> new BooksDto(book.getId(), book.getTitle(), book.getAuthor(), book.getLibrary()))
+                .toList();
     }
 
     /**
@@ -95,12 +157,15 @@ public class BooksService implements Service<Long, BooksDto> {
      */
     @Override
     public void update(BooksDto entity) {
-        if (entity.id() == null || booksDao.findById(entity.id()).isEmpty()) {
+        Optional<Books> existing = entity.id() == null ? Optional.empty() : booksDao.findById(entity.id());
+        if (existing.isEmpty()) {
             throw new IllegalArgumentException("Books " + entity.title() + " does not exist");
         }
         Books book = buildBook(entity);
         book.setId(entity.id());
+        long version = booksVersion();
         booksDao.update(book);
+        updateSuggestions(existing.get(), book, version);
     }
 
     /**
@@ -111,10 +176,89 @@ public class BooksService implements Service<Long, BooksDto> {
      */
     @Override
     public void delete(Long id) {
-        if (booksDao.findById(id).isEmpty()) {
+        Optional<Books> existing = booksDao.findById(id);
+        if (existing.isEmpty()) {
             throw new IllegalArgumentException("Books " + id + " does not exist");
         }
+        long version = booksVersion();
         booksDao.delete(id);
+        updateSuggestions(existing.get(), null, version);
+    }
+
+    /**
+     * Searches books by words of their title and author, best matches first.
+     *
+     * @param query the words to search for
+     * @param limit the maximum number of books to return
+     * @return a list of BooksDto matching the query
+     */
+    public List<BooksDto> search(String query, int limit) {
+        return booksDao.search(query, limit).stream()
+                .map(book -> new BooksDto(book.getId(), book.getTitle(), book.getAuthor(), book.getLibrary()))
+                .toList();
+    }
+
+    /**
+     * Suggests titles and authors that contain a word starting with the prefix.
+     * The database is only read on the first call.
+     *
+     * @param prefix the typed prefix
+     * @param limit  the maximum number of suggestions
+     * @return distinct titles and authors in alphabetical order of the matching word
+     */
+    public List<String> suggest(String prefix, int limit) {
+        PrefixIndex index = suggestions;
+        if (index == null || suggestionsVersion != booksVersion()) {
+            synchronized (suggestionsLock) {
+                long version = booksVersion();
+                if (suggestions == null || suggestionsVersion != version) {
+                    suggestions = loadSuggestions();
+                    suggestionsVersion = version;
+                }
+                index = suggestions;
+            }
+        }
+        return index.suggest(prefix, limit);
+    }
+
+    private PrefixIndex loadSuggestions() {
+        PrefixIndex index = new PrefixIndex();
+        try (Stream<Books> books = booksDao.streamAll()) {
+            books.forEach(book -> {
+                index.add(book.getTitle());
+                index.add(book.getAuthor());
+            });
+        }
+        return index;
+    }
+
+    /**
+     * Applies a written book to the suggestions if they have been loaded; otherwise the
+     * change is picked up when they are loaded. If the write was the only change of the books
+     * table since the given version, the suggestions stay up to date with the new version;
+     * when other changes happened meanwhile, or the write is part of a transaction that has
+     * not ended yet, the version differs and the suggestions are loaded again on the next use.
+     *
+     * @param oldBook       the book before the change, or null if it was added
+     * @param newBook       the book after the change, or null if it was deleted
+     * @param versionBefore the version of the books table before the write
+     */
+    private void updateSuggestions(Books oldBook, Books newBook, long versionBefore) {
+        synchronized (suggestionsLock) {
+            PrefixIndex index = suggestions;
+            if (index == null) {
+                return;
+            }
+            index.replace(oldBook == null ? null : oldBook.getTitle(), newBook == null ? null : newBook.getTitle());
+            index.replace(oldBook == null ? null : oldBook.getAuthor(), newBook == null ? null : newBook.getAuthor());
+            if (suggestionsVersion == versionBefore && booksVersion() == versionBefore + 1) {
+                suggestionsVersion = versionBefore + 1;
+            }
+        }
+    }
+
+    private static long booksVersion() {
+        return TableVersions.version(TableVersions.Table.BOOKS);
     }
 
     /**
@@ -0,0 +1,189 @@
+package by.polikarpov.service;
+
+import by.polikarpov.dto.Page;
+import by.polikarpov.util.BoundedCache;
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.TableVersions;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Decorator that caches {@link #getById(Object)} of any {@link Service}.
+ * Writes go through to the wrapped service and then invalidate the cached entry, so a
+ * change made through the decorator is visible on the next read. Changes made around it,
+ * for example a library rename that shows up inside cached book DTOs or the books removed
+ * by deleting their library, are noticed through the {@link TableVersions} of the source
+ * tables: once one of them changes, the whole cache is dropped before the next read.
+ * Lists and pages are not cached.
+ *
+ * <p>Caching is configured per service name in application.properties:
+ * {@code cache.service.<name>.enabled}, {@code .maxSize}, {@code .ttlMs} and
+ * {@code .policy} ({@code LRU} or {@code TINY_LFU}).
+ *
+ * @param <T> the type of the entity's identifier
+ * @param <E> the type of the entity (e.g., DTOs)
+ */
+public class CachingService<T, E> implements Service<T, E> {
+
+    private static final String KEY_PREFIX = "cache.service.";
+
+    private static final Map<Service<?, ?>, CachingService<?, ?>> DECORATORS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Service<T, E> delegate;
+    private final Function<E, T> idOf;
+    private final BoundedCache<T, E> cache;
+    private final TableVersions.Table[] sources;
+    private final AtomicLong sourceVersion;
+
+    /**
+     * Creates a caching decorator.
+     *
+     * @param name     the name of the cache, used in statistics
+     * @param delegate the service to decorate
+     * @param idOf     extracts the identifier from an entity
+     * @param cache    the cache to use
+     * @param sources  the tables the cached entities are loaded from
+     */
+    public CachingService(String name, Service<T, E> delegate, Function<E, T> idOf, BoundedCache<T, E> cache,
+                          TableVersions.Table... sources) {
+        this.name = name;
+        this.delegate = delegate;
+        this.idOf = idOf;
+        this.cache = cache;
+        this.sources = sources.clone();
+        this.sourceVersion = new AtomicLong(TableVersions.combinedVersion(this.sources));
+    }
+
+    /**
+     * Returns the shared caching decorator of a service if caching is enabled for the
+     * given name, or the service itself otherwise. Every call with the same service
+     * returns the same decorator, so all callers see each other's invalidations.
+     *
+     * @param name     the name of the service in application.properties
+     * @param delegate the service to decorate
+     * @param idOf     extracts the identifier from an entity
+     * @param sources  the tables the entities are loaded from
+     * @param <T>      the type of the entity's identifier
+     * @param <E>      the type of the entity
+     * @return the decorated service, or the delegate if caching is disabled
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, E> Service<T, E> decorate(String name, Service<T, E> delegate, Function<E, T> idOf,
+                                                TableVersions.Table... sources) {
+        if (!PropertiesUtil.getBoolean(KEY_PREFIX + name + ".enabled", false)) {
+            return delegate;
+        }
+        return (Service<T, E>) DECORATORS.computeIfAbsent(delegate, service -> new CachingService<>(
+                name, delegate, idOf, new BoundedCache<>(
+                        PropertiesUtil.getInt(KEY_PREFIX + name + ".maxSize", 1000),
+                        PropertiesUtil.getLong(KEY_PREFIX + name + ".ttlMs", 60_000),
+                        policy(name)), sources));
+    }
+
+    private static BoundedCache.Policy policy(String name) {
+        String policy = PropertiesUtil.get(KEY_PREFIX + name + ".policy");
+        if (policy == null || policy.isBlank()) {
+            return BoundedCache.Policy.TINY_LFU;
+        }
+        return BoundedCache.Policy.valueOf(policy.trim().toUpperCase());
+    }
+
+    /**
+     * Returns the statistics of every shared decorator, keyed by cache name.
+     *
+     * @return the current cache statistics
+     */
+    public static Map<String, BoundedCache.Stats> getAllStats() {
+        Map<String, BoundedCache.Stats> stats = new TreeMap<>();
+        for (CachingService<?, ?> decorator : DECORATORS.values()) {
+            stats.put(decorator.name, decorator.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of this decorator's cache.
+     *
+     * @return the current cache statistics
+     */
+    public BoundedCache.Stats getStats() {
+        return cache.getStats();
+    }
+
+    @Override
+    public List<E> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Page<T, E> getPage(T cursor, int limit) {
+        return delegate.getPage(cursor, limit);
+    }
+
+    /**
+     * Retrieves an entity by its identifier from the cache, or from the wrapped service
+     * on a miss. Missing entities are not cached.
+     *
+     * @param id the identifier of the entity to retrieve
+     * @return an Optional containing the entity if found, otherwise an empty Optional
+     */
+    @Override
+    public Optional<E> getById(T id) {
+        invalidateIfSourcesChanged();
+        return Optional.ofNullable(cache.get(id, () -> delegate.getById(id).orElse(null)));
+    }
+
+    @Override
+    public void add(E entity) {
+        delegate.add(entity);
+    }
+
+    @Override
+    public List<E> addAll(Collection<E> entities) {
+        return delegate.addAll(entities);
+    }
+
+    @Override
+    public void update(E entity) {
+        try {
+            delegate.update(entity);
+        } finally {
+            T id = idOf.apply(entity);
+            if (id != null) {
+                cache.invalidate(id);
+            }
+        }
+    }
+
+    @Override
+    public void delete(T id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    /**
+     * Drops every entry once a source table has changed. A load that was running meanwhile
+     * is not stored, see {@link BoundedCache#get(Object, java.util.function.Supplier)}.
+     */
+    private void invalidateIfSourcesChanged() {
+        if (sources.length == 0) {
+            return;
+        }
+        long version = TableVersions.combinedVersion(sources);
+        long seen = sourceVersion.get();
+        if (version > seen && sourceVersion.compareAndSet(seen, version)) {
+            cache.invalidateAll();
+        }
+    }
+}
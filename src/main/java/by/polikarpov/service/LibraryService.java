@@ -2,8 +2,10 @@ package by.polikarpov.service;
 
 import by.polikarpov.dao.LibraryDao;
 import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.entity.Library;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,6 +53,21 @@ public class LibraryService implements Service<Long, LibraryDto> {
                 .toList();
     }
 
+    /**
+     * Retrieves one page of libraries ordered by ID.
+     *
+     * @param cursor the ID of the last library of the previous page, or null for the first page
+     * @param limit  the maximum number of libraries on the page
+     * @return a page of LibraryDto with the cursor of the next page
+     */
+    @Override
+    public Page<Long, LibraryDto> getPage(Long cursor, int limit) {
+        List<LibraryDto> libraries = libraryDao.findPage(cursor, limit + 1).stream()
+                .map(library -> new LibraryDto(library.getId(), library.getLibraryName()))
+                .toList();
+        return Page.of(libraries, limit, LibraryDto::id);
+    }
+
     /**
      * Retrieves a library by its ID.
      *
@@ -75,6 +92,20 @@ public class LibraryService implements Service<Long, LibraryDto> {
         libraryDao.save(library);
     }
 
+    /**
+     * Adds new libraries to the database in one batch.
+     *
+     * @param entities the LibraryDto objects to add
+     * @return the added entities with their generated IDs
+     */
+    @Override
+    public List<LibraryDto> addAll(Collection<LibraryDto> entities) {
+        List<Library> libraries = entities.stream().map(this::buildLibrary).toList();
+        return libraryDao.saveAll(libraries).stream()
+                .map(library -> new LibraryDto(library.getId(), library.getLibraryName()))
+                .toList();
+    }
+
     /**
      * Updates an existing library in the database.
      *
@@ -0,0 +1,128 @@
+package by.polikarpov.service;
+
+import by.polikarpov.util.IdentityMap;
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.QueryCounter;
+import by.polikarpov.util.ThreadPools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent service calls at the same time, each on its own pooled connection, so a
+ * page that needs several queries waits only as long as the slowest of them.
+ *
+ * <p>A scope is used like a structured task scope: fork the queries, run one more on the
+ * calling thread if convenient, then {@link #join()} before reading the results. The first
+ * failing query fails the whole scope, and closing the scope cancels the queries that have
+ * not started yet, so no query outlives the block that forked it.
+ *
+ * <pre>{@code
+ * try (ParallelQueries queries = new ParallelQueries()) {
+ *     Supplier<List<BooksDto>> books = queries.fork(() -> lendingService.getByReaderId(id));
+ *     Optional<ReadersDto> reader = readersService.getById(id);
+ *     queries.join();
+ *     ...
+ * }
+ * }</pre>
+ *
+ * <p>A scope is meant for one thread. Forked queries run on virtual threads when the JVM
+ * provides them and on {@code service.parallel.threads} platform threads otherwise.
+ */
+public final class ParallelQueries implements AutoCloseable {
+
+    private static final int THREADS = PropertiesUtil.getInt("service.parallel.threads",
+            PropertiesUtil.getInt("db.pool.maxSize", 10));
+
+    private static final ExecutorService EXECUTOR = ThreadPools.newExecutor("parallel-query", THREADS);
+
+    private final List<CompletableFuture<?>> forks = new ArrayList<>();
+
+    private final CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+
+    private boolean joined;
+
+    /**
+     * Starts a query. The query sees the identity map and the query counter of the calling thread.
+     *
+     * @param query the query
+     * @param <T>   the type of the result
+     * @return the result of the query, available after {@link #join()}
+     * @throws IllegalStateException if the scope has already been joined
+     */
+    public <T> Supplier<T> fork(Supplier<T> query) {
+        if (joined) {
+            throw new IllegalStateException("Queries cannot be forked after join");
+        }
+        IdentityMap identityMap = IdentityMap.current();
+        QueryCounter queryCounter = QueryCounter.current();
+        CompletableFuture<T> fork = CompletableFuture.supplyAsync(() -> {
+            try (IdentityMap.Binding ignored = IdentityMap.bind(identityMap);
+                 QueryCounter.Binding ignoredCounter = QueryCounter.bind(queryCounter)) {
+                return query.get();
+            }
+        }, EXECUTOR);
+        fork.whenComplete((result, failure) -> {
+            if (failure != null) {
+                firstFailure.completeExceptionally(failure);
+            }
+        });
+        forks.add(fork);
+        return () -> {
+            if (!joined) {
+                throw new IllegalStateException("The result is not available before join");
+            }
+            return fork.join();
+        };
+    }
+
+    /**
+     * Waits until every forked query has finished, or until the first of them fails.
+     *
+     * @throws RuntimeException the exception of the first failing query, for example a DaoException;
+     *                          the queries that have not started yet are cancelled
+     */
+    public void join() {
+        joined = true;
+        CompletableFuture<Void> all = CompletableFuture.allOf(forks.toArray(CompletableFuture[]::new));
+        try {
+            CompletableFuture.anyOf(all, firstFailure).join();
+        } catch (CompletionException e) {
+            cancel();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the queries that have not finished. A query that is already running completes,
+     * so its connection is returned to the pool normally, but its result is discarded.
+     */
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * Stops the threads of forked queries; called when the application is shut down.
+     */
+    public static void shutdown() {
+        ThreadPools.shutdown(EXECUTOR, 10, TimeUnit.SECONDS);
+    }
+
+    private void cancel() {
+        for (CompletableFuture<?> fork : forks) {
+            fork.cancel(false);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package by.polikarpov.service;
 
 import by.polikarpov.dao.ReadersDao;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.Readers;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,6 +53,21 @@ public class ReadersService implements Service<Long, ReadersDto> {
                 .toList();
     }
 
+    /**
+     * Retrieves one page of readers ordered by ID.
+     *
+     * @param cursor the ID of the last reader of the previous page, or null for the first page
+     * @param limit  the maximum number of readers on the page
+     * @return a page of ReadersDto with the cursor of the next page
+     */
+    @Override
+    public Page<Long, ReadersDto> getPage(Long cursor, int limit) {
+        List<ReadersDto> readers = readersDao.findPage(cursor, limit + 1).stream()
+                .map(reader -> new ReadersDto(reader.getId(), reader.getReadersName()))
+                .toList();
+        return Page.of(readers, limit, ReadersDto::id);
+    }
+
     /**
      * Retrieves a reader by its ID.
      *
@@ -75,6 +92,20 @@ public class ReadersService implements Service<Long, ReadersDto> {
         readersDao.save(reader);
     }
 
+    /**
+     * Adds new readers to the database in one batch.
+     *
+     * @param entities the ReadersDto objects to add
+     * @return the added entities with their generated IDs
+     */
+    @Override
+    public List<ReadersDto> addAll(Collection<ReadersDto> entities) {
+        List<Readers> readers = entities.stream().map(this::buildReaders).toList();
+        return readersDao.saveAll(readers).stream()
+                .map(reader -> new ReadersDto(reader.getId(), reader.getReadersName()))
+                .toList();
+    }
+
     /**
      * Updates an existing reader in the database.
      *
@@ -1,5 +1,8 @@
 package by.polikarpov.service;
 
+import by.polikarpov.dto.Page;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,15 @@ public interface Service<T, E> {
      */
     public List<E> getAll();
 
+    /**
+     * Retrieves one page of entities.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the maximum number of entities on the page
+     * @return the page of entities together with the cursor of the next page
+     */
+    public Page<T, E> getPage(T cursor, int limit);
+
     /**
      * Retrieves an entity by its identifier.
      *
@@ -33,6 +45,14 @@ public interface Service<T, E> {
      */
     public void add(E entity);
 
+    /**
+     * Adds new entities in one batch; either all of them are added or none.
+     *
+     * @param entities the entities to add
+     * @return the added entities in the given order, with their generated identifiers
+     */
+    public List<E> addAll(Collection<E> entities);
+
     /**
      * Updates an existing entity.
      *
@@ -0,0 +1,44 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.service.ParallelQueries;
+import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.MigrationRunner;
+import by.polikarpov.util.PropertiesUtil;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Listener for the web application lifecycle.
+ * Brings the database schema up to date when the application starts and
+ * releases the request threads and the database connection pool when the application is undeployed.
+ */
+@WebListener
+public class ApplicationListener implements ServletContextListener {
+
+    /**
+     * Applies pending database migrations before the first request is served, unless
+     * {@code db.migration.enabled} is false. A failing migration stops the deployment.
+     *
+     * @param sce the ServletContextEvent containing the context being initialized
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        if (PropertiesUtil.getBoolean("db.migration.enabled", true)) {
+            MigrationRunner.migrate();
+        }
+    }
+
+    /**
+     * Stops the asynchronous request and parallel query threads and closes the connection pool
+     * when the application is shut down.
+     *
+     * @param sce the ServletContextEvent containing the context being destroyed
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        AsyncRequests.shutdown();
+        ParallelQueries.shutdown();
+        ConnectionManager.closePool();
+    }
+}
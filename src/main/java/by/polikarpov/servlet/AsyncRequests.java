@@ -0,0 +1,214 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.IdentityMap;
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.QueryCounter;
+import by.polikarpov.util.ThreadPools;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs request handlers outside the container's worker threads. A handler that blocks on
+ * JDBC then holds only an {@link AsyncContext}, so the container keeps accepting requests
+ * while every pooled connection is busy.
+ *
+ * <p>Handlers run on virtual threads when the JVM provides them (Java 21 and later) and on
+ * a fixed pool of platform threads otherwise. At most {@code async.maxConcurrency} handlers,
+ * by default as many as the connection pool has connections, run at once; the others wait
+ * for a permit without holding a database connection or a container thread.
+ */
+final class AsyncRequests {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncRequests.class.getName());
+
+    /**
+     * The largest number of handlers that run at once.
+     */
+    static final int MAX_CONCURRENCY = PropertiesUtil.getInt("async.maxConcurrency",
+            PropertiesUtil.getInt("db.pool.maxSize", 10));
+
+    /**
+     * The time after which the container ends a request that has not been handled.
+     */
+    static final long TIMEOUT_MS = PropertiesUtil.getLong("async.timeoutMs", 30_000L);
+
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENCY, true);
+
+    private static final ExecutorService EXECUTOR = ThreadPools.newExecutor("async-request", MAX_CONCURRENCY);
+
+    /**
+     * The body of a request handler, usually the former {@code doGet} of a servlet.
+     */
+    @FunctionalInterface
+    interface Handler {
+
+        void handle(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException;
+    }
+
+    private AsyncRequests() {
+    }
+
+    /**
+     * Runs the handler asynchronously if the request supports it and on the calling thread otherwise.
+     * A handler that forwards to a JSP is dispatched back to the container, because a forward must
+     * not run on an application thread. The handler thread uses the identity map and the query
+     * counter of the request.
+     *
+     * @param req     the HttpServletRequest object
+     * @param resp    the HttpServletResponse object
+     * @param handler the handler
+     * @throws ServletException if the handler fails when it runs on the calling thread
+     * @throws IOException      if an I/O error occurs when the handler runs on the calling thread
+     */
+    static void dispatch(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+            throws ServletException, IOException {
+        if (!req.isAsyncSupported()) {
+            handler.handle(req, resp);
+            return;
+        }
+        AsyncContext async = req.startAsync(req, resp);
+        async.setTimeout(TIMEOUT_MS);
+        AtomicBoolean finished = new AtomicBoolean();
+        async.addListener(new ExpiryListener(finished));
+        IdentityMap identityMap = IdentityMap.current();
+        QueryCounter queryCounter = QueryCounter.current();
+        EXECUTOR.execute(() -> {
+            try (IdentityMap.Binding ignored = IdentityMap.bind(identityMap);
+                 QueryCounter.Binding ignoredCounter = QueryCounter.bind(queryCounter)) {
+                run(async, handler, finished);
+            }
+        });
+    }
+
+    /**
+     * Stops accepting handlers and waits briefly for the running ones.
+     */
+    static void shutdown() {
+        ThreadPools.shutdown(EXECUTOR, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void run(AsyncContext async, Handler handler, AtomicBoolean finished) {
+        HttpServletResponse resp = (HttpServletResponse) async.getResponse();
+        DispatchingRequest req = new DispatchingRequest((HttpServletRequest) async.getRequest(), async);
+        try {
+            PERMITS.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complete(async, finished);
+            return;
+        }
+        try {
+            if (!finished.get()) {
+                handler.handle(req, resp);
+            }
+        } catch (ServletException | IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Request " + req.getRequestURI() + " failed", e);
+            sendError(resp, finished);
+        } finally {
+            PERMITS.release();
+            if (!req.dispatched) {
+                complete(async, finished);
+            }
+        }
+    }
+
+    private static void sendError(HttpServletResponse resp, AtomicBoolean finished) {
+        if (finished.get() || resp.isCommitted()) {
+            return;
+        }
+        try {
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.FINE, "Could not send the error response", e);
+        }
+    }
+
+    /**
+     * Completes the request unless the container has already ended it after a timeout.
+     */
+    private static void complete(AsyncContext async, AtomicBoolean finished) {
+        if (finished.compareAndSet(false, true)) {
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                LOGGER.log(Level.FINE, "The request has already been completed", e);
+            }
+        }
+    }
+
+    /**
+     * Marks the request as finished when the container ends it, so that a handler still
+     * waiting for a permit is skipped.
+     */
+    private record ExpiryListener(AtomicBoolean finished) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Turns a forward into {@link AsyncContext#dispatch(String)}, which hands the request
+     * back to a container thread and completes it once the target has been rendered.
+     */
+    private static final class DispatchingRequest extends HttpServletRequestWrapper {
+
+        private final AsyncContext async;
+
+        private volatile boolean dispatched;
+
+        DispatchingRequest(HttpServletRequest request, AsyncContext async) {
+            super(request);
+            this.async = async;
+        }
+
+        @Override
+        public RequestDispatcher getRequestDispatcher(String path) {
+            RequestDispatcher target = super.getRequestDispatcher(path);
+            return new RequestDispatcher() {
+                @Override
+                public void forward(ServletRequest request, ServletResponse response) {
+                    dispatched = true;
+                    async.dispatch(path.startsWith("/") ? path : "/" + path);
+                }
+
+                @Override
+                public void include(ServletRequest request, ServletResponse response)
+                        throws ServletException, IOException {
+                    target.include(request, response);
+                }
+            };
+        }
+    }
+}
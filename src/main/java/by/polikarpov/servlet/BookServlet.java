@@ -2,11 +2,18 @@ package by.polikarpov.servlet;
 
 import by.polikarpov.dto.BooksDto;
 import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.Library;
 import by.polikarpov.service.BookLendingService;
 import by.polikarpov.service.BooksService;
+import by.polikarpov.service.CachingService;
 import by.polikarpov.service.LibraryService;
+import by.polikarpov.service.ParallelQueries;
+import by.polikarpov.service.Service;
+import by.polikarpov.util.JsonWriter;
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.TableVersions;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -15,36 +22,75 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Servlet for handling book-related operations, including retrieving,
  * adding, updating, and deleting books in a library system.
  */
-@WebServlet("/books")
+@WebServlet(value = {"/books", BookServlet.BULK_PATH, BookServlet.SUGGEST_PATH}, asyncSupported = true)
 public class BookServlet extends HttpServlet {
 
-    private BooksService booksService;
+    static final String BULK_PATH = "/books/bulk";
+
+    static final String SUGGEST_PATH = "/books/suggest";
+
+    /**
+     * The number of suggestions returned for a prefix.
+     */
+    private static final int SUGGEST_LIMIT = PropertiesUtil.getInt("search.suggest.limit", 10);
+
+    /**
+     * Answers conditional requests for the pages of this servlet, which are built from these tables.
+     */
+    private static final ConditionalGet CONDITIONAL_GET = ConditionalGet.of("books",
+            TableVersions.Table.BOOKS, TableVersions.Table.LIBRARY, TableVersions.Table.READERS, TableVersions.Table.BOOK_LENDING);
+
+    private Service<Long, BooksDto> booksService;
+
+    private BooksService searchService;
 
     /**
-     * Initializes the servlet and retrieves the BooksService instance.
+     * Initializes the servlet with the BooksService instance, wrapped in a cache if enabled.
      */
     public BookServlet() {
-        booksService = BooksService.getInstance();
+        booksService = CachingService.decorate("books", BooksService.getInstance(), BooksDto::id,
+                TableVersions.Table.BOOKS, TableVersions.Table.LIBRARY);
+        searchService = BooksService.getInstance();
     }
 
     /**
-     * Sets the BooksService instance to be used by this servlet.
+     * Sets the books service to be used by this servlet.
      *
-     * @param booksService the BooksService instance to set
+     * @param booksService the books service to set
      */
-    public void setBooksService(BooksService booksService) {
+    public void setBooksService(Service<Long, BooksDto> booksService) {
         this.booksService = booksService;
     }
 
     /**
-     * Handles GET requests to retrieve book details or a list of books.
+     * Sets the books service used for the search and the suggestions, which are not part
+     * of the {@link Service} interface.
+     *
+     * @param searchService the books service to set
+     */
+    public void setSearchService(BooksService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Handles GET requests to retrieve book details, one page of the books list, or the
+     * books matching the search query {@code q}. Requests to {@code /books/suggest}
+     * return title and author suggestions for the prefix {@code q} as a JSON array.
+     *
+     * The queries run on a request thread of {@link AsyncRequests}, not on the container thread.
+     * A request whose {@code If-None-Match} or {@code If-Modified-Since} header still matches
+     * is answered with 304 Not Modified before that, without running any query.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -53,12 +99,42 @@ public class BookServlet extends HttpServlet {
      */
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (CONDITIONAL_GET.notModified(req, resp)) {
+            return;
+        }
+        AsyncRequests.dispatch(req, resp, this::handleGet);
+    }
+
+    private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (SUGGEST_PATH.equals(req.getServletPath())) {
+            List<String> suggestions = searchService.suggest(req.getParameter("q"), SUGGEST_LIMIT);
+            JsonWriter json = JsonResponses.open(resp);
+            JsonResponses.writeArray(json, suggestions, JsonWriter::value);
+            json.flush();
+            return;
+        }
         String idParam = req.getParameter("id");
         if (StringUtils.isNotBlank(idParam)) {
             Long id = Long.parseLong(idParam);
-            List<ReadersDto> readers = BookLendingService.getInstance().getByBookId(id);
-            booksService.getById(id).ifPresentOrElse(
+            BookLendingService bookLendingService = BookLendingService.getInstance();
+            List<ReadersDto> readers;
+            Optional<BooksDto> found;
+            try (ParallelQueries queries = new ParallelQueries()) {
+                Supplier<List<ReadersDto>> readersFork = queries.fork(() -> bookLendingService.getByBookId(id));
+                found = booksService.getById(id);
+                queries.join();
+                readers = readersFork.get();
+            }
+            found.ifPresentOrElse(
                     book -> {
+                        if (JsonResponses.wantsJson(req)) {
+                            try {
+                                writeBookJson(resp, book, readers);
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                            return;
+                        }
                         req.setAttribute("book", book);
                         req.setAttribute("readers", readers);
                         try {
@@ -76,14 +152,42 @@ public class BookServlet extends HttpServlet {
                     }
             );
         } else {
-            List<BooksDto> books = booksService.getAll();
-            req.setAttribute("books", books);
+            String query = req.getParameter("q");
+            Page<Long, BooksDto> books = StringUtils.isNotBlank(query)
+                    ? new Page<>(searchService.search(query, Pagination.limit(req)), null)
+                    : booksService.getPage(Pagination.cursor(req, "cursor"), Pagination.limit(req));
+            if (JsonResponses.wantsJson(req)) {
+                JsonWriter json = JsonResponses.open(resp);
+                JsonResponses.writePage(json, books, JsonResponses::writeBook);
+                json.flush();
+                return;
+            }
+            req.setAttribute("books", books.items());
+            req.setAttribute("nextCursor", books.nextCursor());
             req.getRequestDispatcher("WEB-INF/jsp/books.jsp").forward(req, resp);
         }
     }
 
+    /**
+     * Writes a book and the readers it is lent to as a JSON object.
+     *
+     * @param resp    the HttpServletResponse object
+     * @param book    the book
+     * @param readers the readers who borrowed the book
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeBookJson(HttpServletResponse resp, BooksDto book, List<ReadersDto> readers) throws IOException {
+        JsonWriter json = JsonResponses.open(resp);
+        json.beginObject().name("book");
+        JsonResponses.writeBook(json, book);
+        json.name("readers");
+        JsonResponses.writeArray(json, readers, JsonResponses::writeReader);
+        json.endObject().flush();
+    }
+
     /**
      * Handles POST requests for adding new books or for updating/deleting existing books.
+     * Requests to {@code /books/bulk} add many books at once.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -92,6 +196,10 @@ public class BookServlet extends HttpServlet {
      */
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (BulkRequests.isBulkRequest(req, BULK_PATH)) {
+            handleBulkCreateRequest(req, resp);
+            return;
+        }
         String idParam = req.getParameter("id");
         String title = req.getParameter("title");
         String author = req.getParameter("author");
@@ -162,6 +270,51 @@ public class BookServlet extends HttpServlet {
         resp.sendRedirect(req.getContextPath() + "/libraries?id=" + libraryId);
     }
 
+    /**
+     * Handle POST Request that creates many books in one batch. Every book is given by
+     * one value of the repeated {@code title}, {@code author} and {@code libraryId}
+     * parameters; a single {@code libraryId} applies to all books.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @throws IOException if an I/O error occurs
+     */
+    private void handleBulkCreateRequest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        List<String> titles = BulkRequests.values(req, "title");
+        List<String> authors = BulkRequests.values(req, "author");
+        List<String> libraryIds = BulkRequests.values(req, "libraryId");
+        if (titles == null || authors == null || libraryIds == null || titles.size() != authors.size()
+            || (libraryIds.size() != 1 && libraryIds.size() != titles.size())) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Book's data not correct");
+            return;
+        }
+        if (!BulkRequests.checkSize(titles.size(), resp)) {
+            return;
+        }
+
+        List<Long> ids;
+        try {
+            ids = libraryIds.stream().map(Long::valueOf).toList();
+        } catch (NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Library IDs must be numbers");
+            return;
+        }
+
+        Map<Long, Library> libraries = new HashMap<>();
+        List<BooksDto> books = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            Long libraryId = ids.get(ids.size() == 1 ? 0 : i);
+            Library library = libraries.computeIfAbsent(libraryId, id -> findLibrary(id).orElse(null));
+            if (library == null) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Library not found");
+                return;
+            }
+            books.add(new BooksDto(null, titles.get(i), authors.get(i), library));
+        }
+        List<BooksDto> saved = booksService.addAll(books);
+        BulkRequests.writeCreated(resp, saved.stream().map(BooksDto::id).toList());
+    }
+
     /**
      * Handles PUT requests for updating existing books.
      *
@@ -214,14 +367,27 @@ public class BookServlet extends HttpServlet {
      * @throws IOException if the library is not found
      */
     private Library getLibrary(String libraryId, HttpServletResponse resp) throws IOException {
-        Optional<LibraryDto> optional = LibraryService.getInstance().getById(Long.valueOf(libraryId));
+        Optional<Library> optional = findLibrary(Long.valueOf(libraryId));
         if (optional.isEmpty()) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Library not found");
         }
-        var libraryDto = optional.get();
-        Library library = new Library(libraryDto.libraryName());
-        library.setId(libraryDto.id());
-        return library;
+        return optional.get();
+    }
 
+    /**
+     * Looks up a library by its ID.
+     *
+     * @param libraryId the ID of the library
+     * @return an Optional containing the library, or empty if it does not exist
+     */
+    private Optional<Library> findLibrary(Long libraryId) {
+        return CachingService.decorate("libraries", LibraryService.getInstance(), LibraryDto::id,
+                        TableVersions.Table.LIBRARY)
+                .getById(libraryId)
+                .map(libraryDto -> {
+                    Library library = new Library(libraryDto.libraryName());
+                    library.setId(libraryDto.id());
+                    return library;
+                });
     }
 }
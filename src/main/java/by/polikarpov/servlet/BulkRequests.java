@@ -0,0 +1,84 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.JsonWriter;
+import by.polikarpov.util.PropertiesUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helper for the bulk create endpoints. A bulk request repeats the parameters of a
+ * single create request, one value per row, and all rows are saved in one batch.
+ */
+final class BulkRequests {
+
+    /**
+     * The largest number of rows one bulk request may contain.
+     */
+    static final int MAX_ROWS = PropertiesUtil.getInt("bulk.maxRows", 10_000);
+
+    private BulkRequests() {
+    }
+
+    /**
+     * Checks whether the request was sent to the bulk path of a servlet.
+     *
+     * @param req      the HttpServletRequest object
+     * @param bulkPath the bulk path, e.g. {@code /books/bulk}
+     * @return true if the request is a bulk request
+     */
+    static boolean isBulkRequest(HttpServletRequest req, String bulkPath) {
+        return bulkPath.equals(req.getServletPath());
+    }
+
+    /**
+     * Reads all values of a repeated parameter.
+     *
+     * @param req  the HttpServletRequest object
+     * @param name the name of the parameter
+     * @return the values, or null if the parameter is absent or any value is blank
+     */
+    static List<String> values(HttpServletRequest req, String name) {
+        String[] values = req.getParameterValues(name);
+        if (values == null || values.length == 0 || Arrays.stream(values).anyMatch(StringUtils::isBlank)) {
+            return null;
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Sends an error if the number of rows is not allowed.
+     *
+     * @param rows the number of rows in the request
+     * @param resp the HttpServletResponse object
+     * @return true if the rows may be saved, false if an error has been sent
+     * @throws IOException if an I/O error occurs
+     */
+    static boolean checkSize(int rows, HttpServletResponse resp) throws IOException {
+        if (rows > MAX_ROWS) {
+            resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "A bulk request may contain at most " + MAX_ROWS + " rows");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Responds with {@code 201 Created} and {@code {"created": n, "ids": [...]}}.
+     *
+     * @param resp the HttpServletResponse object
+     * @param ids  the identifiers of the created rows in request order
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeCreated(HttpServletResponse resp, List<Long> ids) throws IOException {
+        resp.setStatus(HttpServletResponse.SC_CREATED);
+        JsonWriter json = JsonResponses.open(resp);
+        json.beginObject().name("created").value(ids.size()).name("ids");
+        JsonResponses.writeArray(json, ids, JsonWriter::value);
+        json.endObject().flush();
+    }
+}
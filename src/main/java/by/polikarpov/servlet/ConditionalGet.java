@@ -0,0 +1,112 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.TableVersions;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Answers conditional GET requests of a servlet from the {@link TableVersions} of the tables
+ * its pages are built from, without querying the database. Every response carries an
+ * {@code ETag}, a {@code Last-Modified} date and the {@code Cache-Control} header configured by
+ * {@code http.cacheControl.<name>}; a request whose {@code If-None-Match} (or, without it,
+ * {@code If-Modified-Since}) still matches is answered with 304 Not Modified.
+ *
+ * <p>The tag depends on the versions of the tables only, so it is the same for every URL of
+ * the servlet and is only valid together with the URL it was returned for. JSON and HTML
+ * responses get different tags, as both are served from the same URL depending on the
+ * {@code Accept} header.
+ */
+final class ConditionalGet {
+
+    /**
+     * The {@code Cache-Control} header used when none is configured: responses may be stored,
+     * but must be revalidated before every use.
+     */
+    static final String DEFAULT_CACHE_CONTROL = "no-cache";
+
+    private final String cacheControl;
+
+    private final TableVersions.Table[] tables;
+
+    private ConditionalGet(String cacheControl, TableVersions.Table[] tables) {
+        this.cacheControl = cacheControl;
+        this.tables = tables;
+    }
+
+    /**
+     * Creates the conditional GET support of a servlet.
+     *
+     * @param name   the name of the servlet in the {@code http.cacheControl.<name>} property
+     * @param tables every table the pages of the servlet are built from
+     * @return the conditional GET support
+     */
+    static ConditionalGet of(String name, TableVersions.Table... tables) {
+        String cacheControl = PropertiesUtil.get("http.cacheControl." + name);
+        return new ConditionalGet(cacheControl != null ? cacheControl : DEFAULT_CACHE_CONTROL, tables.clone());
+    }
+
+    /**
+     * Sets the validators and the {@code Cache-Control} header of the response and checks
+     * whether the client already has the current page.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @return true if the response was completed with 304 Not Modified and the page must not
+     * be built
+     */
+    boolean notModified(HttpServletRequest req, HttpServletResponse resp) {
+        String variant = JsonResponses.prefersJson(req.getHeader("Accept")) ? "json" : "html";
+        String etag = "W/\"" + TableVersions.tag(tables) + "-" + variant + "\"";
+        long lastModified = TableVersions.lastModified(tables);
+
+        resp.setHeader("ETag", etag);
+        resp.setDateHeader("Last-Modified", lastModified);
+        resp.setHeader("Cache-Control", cacheControl);
+        resp.setHeader("Vary", "Accept");
+
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = matches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = ifModifiedSince(req);
+            notModified = ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+        if (notModified) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Compares the tags of an {@code If-None-Match} header with the weak comparison.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Reads the {@code If-Modified-Since} header.
+     *
+     * @return the date in epoch milliseconds, or -1 if the header is absent or malformed
+     */
+    private static long ifModifiedSince(HttpServletRequest req) {
+        try {
+            return req.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
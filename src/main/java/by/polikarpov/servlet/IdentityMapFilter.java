@@ -0,0 +1,36 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.IdentityMap;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter that gives every request its own {@link IdentityMap}, so an entity is loaded at most
+ * once per request. Requests handled asynchronously carry the map to the handler thread.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class IdentityMapFilter implements Filter {
+
+    /**
+     * Binds a new identity map to the request thread while the rest of the chain runs.
+     *
+     * @param request  the ServletRequest object
+     * @param response the ServletResponse object
+     * @param chain    the FilterChain object
+     * @throws IOException      if an I/O error occurs
+     * @throws ServletException if an error occurs during request processing
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try (IdentityMap.Binding ignored = IdentityMap.bind(new IdentityMap())) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
+import by.polikarpov.dto.ReadersDto;
+import by.polikarpov.entity.Library;
+import by.polikarpov.util.JsonWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Helper for content negotiation and for writing DTOs as JSON responses.
+ */
+final class JsonResponses {
+
+    static final String JSON_CONTENT_TYPE = "application/json";
+
+    /**
+     * Writes one element of a JSON array.
+     *
+     * @param <E> the type of the element
+     */
+    @FunctionalInterface
+    interface ElementWriter<E> {
+        void write(JsonWriter json, E element) throws IOException;
+    }
+
+    private JsonResponses() {
+    }
+
+    /**
+     * Decides whether the client prefers JSON over HTML. A {@code format=json} parameter
+     * always selects JSON; otherwise JSON is chosen only if the {@code Accept} header ranks
+     * {@code application/json} strictly higher than HTML, so browsers and wildcard clients
+     * keep getting the JSP views.
+     *
+     * @param req the HttpServletRequest object
+     * @return true if the response should be JSON
+     */
+    static boolean wantsJson(HttpServletRequest req) {
+        return "json".equalsIgnoreCase(req.getParameter("format")) || prefersJson(req.getHeader("Accept"));
+    }
+
+    /**
+     * Decides whether an {@code Accept} header ranks {@code application/json} strictly higher
+     * than HTML.
+     *
+     * @param accept the value of the {@code Accept} header, may be null
+     * @return true if the header asks for JSON
+     */
+    static boolean prefersJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        double jsonQuality = 0;
+        double htmlQuality = 0;
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            String mediaType = parts[0].trim().toLowerCase();
+            double quality = quality(parts);
+            switch (mediaType) {
+                case JSON_CONTENT_TYPE -> jsonQuality = Math.max(jsonQuality, quality);
+                case "text/html", "text/*", "*/*" -> htmlQuality = Math.max(htmlQuality, quality);
+                default -> {
+                }
+            }
+        }
+        return jsonQuality > htmlQuality;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Prepares the response for a JSON body and returns a writer on top of it.
+     *
+     * @param resp the HttpServletResponse object
+     * @return a JSON writer that writes straight to the response
+     * @throws IOException if an I/O error occurs
+     */
+    static JsonWriter open(HttpServletResponse resp) throws IOException {
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.setCharacterEncoding("UTF-8");
+        return new JsonWriter(resp.getWriter());
+    }
+
+    /**
+     * Writes a page as {@code {"items": [...], "nextCursor": ...}}.
+     */
+    static <E> void writePage(JsonWriter json, Page<Long, E> page, ElementWriter<E> elementWriter) throws IOException {
+        json.beginObject().name("items");
+        writeArray(json, page.items(), elementWriter);
+        json.name("nextCursor").value(page.nextCursor());
+        json.endObject();
+    }
+
+    static <E> void writeArray(JsonWriter json, List<E> elements, ElementWriter<E> elementWriter) throws IOException {
+        json.beginArray();
+        for (E element : elements) {
+            elementWriter.write(json, element);
+        }
+        json.endArray();
+    }
+
+    static void writeLibrary(JsonWriter json, LibraryDto library) throws IOException {
+        json.beginObject()
+                .name("id").value(library.id())
+                .name("libraryName").value(library.libraryName())
+                .endObject();
+    }
+
+    static void writeReader(JsonWriter json, ReadersDto reader) throws IOException {
+        json.beginObject()
+                .name("id").value(reader.id())
+                .name("readerName").value(reader.readerName())
+                .endObject();
+    }
+
+    static void writeBook(JsonWriter json, BooksDto book) throws IOException {
+        json.beginObject()
+                .name("id").value(book.id())
+                .name("title").value(book.title())
+                .name("author").value(book.author())
+                .name("library");
+        Library library = book.library();
+        if (library == null) {
+            json.nullValue();
+        } else {
+            json.beginObject()
+                    .name("id").value(library.getId())
+                    .name("libraryName").value(library.getLibraryName())
+                    .endObject();
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,101 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.service.BookLendingService;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servlet that exports the whole lending history as a CSV download. The CSV is copied
+ * from the database straight into the response, so memory use does not depend on the
+ * number of lendings. The body is gzip-compressed when the client accepts it.
+ */
+@WebServlet("/lendings/export")
+public class LendingExportServlet extends HttpServlet {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private BookLendingService bookLendingService;
+
+    /**
+     * Initializes the servlet with the BookLendingService instance.
+     */
+    public LendingExportServlet() {
+        bookLendingService = BookLendingService.getInstance();
+    }
+
+    /**
+     * Sets the book lending service to be used by this servlet.
+     *
+     * @param bookLendingService the book lending service to set
+     */
+    public void setBookLendingService(BookLendingService bookLendingService) {
+        this.bookLendingService = bookLendingService;
+    }
+
+    /**
+     * Handles GET requests by writing the lending history as CSV. If the export fails
+     * half-way the gzip stream is left unfinished, so the client sees a broken download
+     * rather than a silently truncated file.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        boolean gzip = acceptsGzip(req.getHeader("Accept-Encoding"));
+        resp.setContentType("text/csv");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Content-Disposition",
+                "attachment; filename=\"book_lending-" + LocalDate.now() + ".csv\"");
+        resp.setHeader("Vary", "Accept-Encoding");
+
+        OutputStream out = resp.getOutputStream();
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+            out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        bookLendingService.exportAll(out);
+        if (out instanceof GZIPOutputStream gzipOut) {
+            gzipOut.finish();
+        }
+        out.flush();
+    }
+
+    /**
+     * Checks whether the {@code Accept-Encoding} header allows gzip with a non-zero quality.
+     *
+     * @param acceptEncoding the header value, or null
+     * @return true if the response may be gzip-compressed
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            return Double.parseDouble(parameter.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,8 +2,13 @@ package by.polikarpov.servlet;
 
 import by.polikarpov.dto.BooksDto;
 import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.service.BooksService;
+import by.polikarpov.service.CachingService;
 import by.polikarpov.service.LibraryService;
+import by.polikarpov.service.Service;
+import by.polikarpov.util.JsonWriter;
+import by.polikarpov.util.TableVersions;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -17,29 +22,42 @@ import java.util.List;
  * Servlet for handling library-related operations including retrieving,
  * adding, updating, and deleting libraries.
  */
-@WebServlet("/libraries")
+@WebServlet(value = {"/libraries", LibraryServlet.BULK_PATH}, asyncSupported = true)
 public class LibraryServlet extends HttpServlet {
 
-    private LibraryService libraryService;
+    static final String BULK_PATH = "/libraries/bulk";
 
     /**
-     * Initializes the servlet and retrieves the LibraryService instance.
+     * Answers conditional requests for the pages of this servlet, which are built from these tables.
+     */
+    private static final ConditionalGet CONDITIONAL_GET = ConditionalGet.of(
+            "libraries", TableVersions.Table.LIBRARY, TableVersions.Table.BOOKS);
+
+    private Service<Long, LibraryDto> libraryService;
+
+    /**
+     * Initializes the servlet with the LibraryService instance, wrapped in a cache if enabled.
      */
     public LibraryServlet() {
-        this.libraryService = LibraryService.getInstance();
+        this.libraryService = CachingService.decorate("libraries", LibraryService.getInstance(), LibraryDto::id,
+                TableVersions.Table.LIBRARY);
     }
 
     /**
-     * Sets the LibraryService instance to be used by this servlet.
+     * Sets the library service to be used by this servlet.
      *
-     * @param libraryService the LibraryService instance to set
+     * @param libraryService the library service to set
      */
-    public void setLibraryService(LibraryService libraryService) {
+    public void setLibraryService(Service<Long, LibraryDto> libraryService) {
         this.libraryService = libraryService;
     }
 
     /**
-     * Handles GET requests to retrieve library details or list all libraries.
+     * Handles GET requests to retrieve library details or one page of the libraries list.
+     *
+     * The queries run on a request thread of {@link AsyncRequests}, not on the container thread.
+     * A request whose {@code If-None-Match} or {@code If-Modified-Since} header still matches
+     * is answered with 304 Not Modified before that, without running any query.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -48,12 +66,27 @@ public class LibraryServlet extends HttpServlet {
      */
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (CONDITIONAL_GET.notModified(req, resp)) {
+            return;
+        }
+        AsyncRequests.dispatch(req, resp, this::handleGet);
+    }
+
+    private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String idParam = req.getParameter("id");
         if (idParam != null) {
             Long id = Long.parseLong(idParam);
             List<BooksDto> books = BooksService.getInstance().getAllByLibraryId(id);
             libraryService.getById(id).ifPresentOrElse(
                     library -> {
+                        if (JsonResponses.wantsJson(req)) {
+                            try {
+                                writeLibraryJson(resp, library, books);
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                            return;
+                        }
                         req.setAttribute("library", library);
                         req.setAttribute("books", books);
                         try {
@@ -73,14 +106,40 @@ public class LibraryServlet extends HttpServlet {
                     }
             );
         } else {
-            List<LibraryDto> libraries = libraryService.getAll();
-            req.setAttribute("libraries", libraries);
+            Page<Long, LibraryDto> libraries = libraryService.getPage(
+                    Pagination.cursor(req, "cursor"), Pagination.limit(req));
+            if (JsonResponses.wantsJson(req)) {
+                JsonWriter json = JsonResponses.open(resp);
+                JsonResponses.writePage(json, libraries, JsonResponses::writeLibrary);
+                json.flush();
+                return;
+            }
+            req.setAttribute("libraries", libraries.items());
+            req.setAttribute("nextCursor", libraries.nextCursor());
             req.getRequestDispatcher("WEB-INF/jsp/libraries.jsp").forward(req, resp);
         }
     }
 
+    /**
+     * Writes a library and its books as a JSON object.
+     *
+     * @param resp    the HttpServletResponse object
+     * @param library the library
+     * @param books   the books of the library
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeLibraryJson(HttpServletResponse resp, LibraryDto library, List<BooksDto> books) throws IOException {
+        JsonWriter json = JsonResponses.open(resp);
+        json.beginObject().name("library");
+        JsonResponses.writeLibrary(json, library);
+        json.name("books");
+        JsonResponses.writeArray(json, books, JsonResponses::writeBook);
+        json.endObject().flush();
+    }
+
     /**
      * Handles POST requests for adding new libraries or updating/deleting existing libraries.
+     * Requests to {@code /libraries/bulk} add many libraries at once.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -89,6 +148,10 @@ public class LibraryServlet extends HttpServlet {
      */
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (BulkRequests.isBulkRequest(req, BULK_PATH)) {
+            handleBulkCreateRequest(req, resp);
+            return;
+        }
         String idParam = req.getParameter("id");
         String libraryName = req.getParameter("libraryName");
 
@@ -106,6 +169,28 @@ public class LibraryServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Handles POST requests that create many libraries in one batch, one for every value
+     * of the repeated {@code libraryName} parameter.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @throws IOException if an I/O error occurs
+     */
+    private void handleBulkCreateRequest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        List<String> names = BulkRequests.values(req, "libraryName");
+        if (names == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Library name cannot be empty");
+            return;
+        }
+        if (!BulkRequests.checkSize(names.size(), resp)) {
+            return;
+        }
+        List<LibraryDto> saved = libraryService.addAll(
+                names.stream().map(name -> new LibraryDto(null, name)).toList());
+        BulkRequests.writeCreated(resp, saved.stream().map(LibraryDto::id).toList());
+    }
+
     /**
      * Handles PUT requests for updating existing libraries.
      *
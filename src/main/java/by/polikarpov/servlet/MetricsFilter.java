@@ -0,0 +1,110 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.Metrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Filter that records the latency and errors of every request in the {@code http_request}
+ * metrics, labelled with the servlet and the HTTP method, so each {@code doGet}, {@code doPost},
+ * {@code doPut} and {@code doDelete} has its own timer. A request counts as failed if the
+ * servlet throws or answers with a 5xx status. Requests handled asynchronously are recorded
+ * when their response is complete.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class MetricsFilter implements Filter {
+
+    private static final Metrics.Family FAMILY =
+            Metrics.family("http_request", "Servlet requests", false);
+
+    /**
+     * Times the rest of the chain.
+     *
+     * @param request  the ServletRequest object
+     * @param response the ServletResponse object
+     * @param chain    the FilterChain object
+     * @throws IOException      if an I/O error occurs
+     * @throws ServletException if an error occurs during request processing
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest httpRequest)
+                || !(response instanceof HttpServletResponse httpResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            timer(httpRequest).failure(start);
+            throw e;
+        }
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new CompletionListener(timer(httpRequest), start));
+        } else {
+            record(timer(httpRequest), start, httpResponse.getStatus());
+        }
+    }
+
+    private static Metrics.Timer timer(HttpServletRequest request) {
+        var mapping = request.getHttpServletMapping();
+        String servlet = mapping == null ? "unknown" : mapping.getServletName();
+        return FAMILY.timer("servlet", servlet, "method", request.getMethod());
+    }
+
+    private static void record(Metrics.Timer timer, long start, int status) {
+        if (status >= 500) {
+            timer.failure(start);
+        } else {
+            timer.success(start, 0);
+        }
+    }
+
+    /**
+     * Records an asynchronous request once, when it completes, fails or times out.
+     */
+    private static final class CompletionListener implements AsyncListener {
+        private final Metrics.Timer timer;
+        private final long start;
+        private volatile boolean failed;
+
+        private CompletionListener(Metrics.Timer timer, long start) {
+            this.timer = timer;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            int status = event.getSuppliedResponse() instanceof HttpServletResponse response
+                    ? response.getStatus() : 200;
+            record(timer, start, failed ? 500 : status);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.Metrics;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Servlet that exposes the application metrics for Prometheus to scrape.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+    /**
+     * Handles GET requests by writing all metrics in the Prometheus text format.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain; version=0.0.4");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        PrintWriter writer = resp.getWriter();
+        Metrics.writePrometheus(writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,52 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.PropertiesUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Helper for reading keyset pagination parameters from a request.
+ */
+final class Pagination {
+
+    /**
+     * The page size used when the request does not specify one.
+     */
+    static final int DEFAULT_LIMIT = PropertiesUtil.getInt("page.defaultLimit", 50);
+
+    /**
+     * The largest page size a request may ask for.
+     */
+    static final int MAX_LIMIT = PropertiesUtil.getInt("page.maxLimit", 500);
+
+    private Pagination() {
+    }
+
+    /**
+     * Reads a cursor parameter.
+     *
+     * @param req  the HttpServletRequest object
+     * @param name the name of the cursor parameter
+     * @return the cursor, or null if the parameter is absent, which means the first page
+     * @throws NumberFormatException if the parameter is not a number
+     */
+    static Long cursor(HttpServletRequest req, String name) {
+        String cursor = req.getParameter(name);
+        return StringUtils.isNotBlank(cursor) ? Long.valueOf(cursor) : null;
+    }
+
+    /**
+     * Reads the {@code limit} parameter, clamped to the range 1..{@link #MAX_LIMIT}.
+     *
+     * @param req the HttpServletRequest object
+     * @return the page size
+     * @throws NumberFormatException if the parameter is not a number
+     */
+    static int limit(HttpServletRequest req) {
+        String limit = req.getParameter("limit");
+        if (StringUtils.isBlank(limit)) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limit)));
+    }
+}
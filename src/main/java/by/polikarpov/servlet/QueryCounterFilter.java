@@ -0,0 +1,86 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.PropertiesUtil;
+import by.polikarpov.util.QueryCounter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Filter that counts the statements of every request with a {@link QueryCounter} and logs a
+ * warning when one SQL shape was executed more than {@code db.queryCounter.warnThreshold}
+ * times, the usual sign of an N+1 query. Meant for staging; with the default threshold of 0
+ * the filter does nothing.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class QueryCounterFilter implements Filter {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryCounterFilter.class.getName());
+
+    private static final int WARN_THRESHOLD = PropertiesUtil.getInt("db.queryCounter.warnThreshold", 0);
+
+    /**
+     * Binds a new counter to the request thread while the rest of the chain runs, and checks
+     * it once the response is complete.
+     *
+     * @param request  the ServletRequest object
+     * @param response the ServletResponse object
+     * @param chain    the FilterChain object
+     * @throws IOException      if an I/O error occurs
+     * @throws ServletException if an error occurs during request processing
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (WARN_THRESHOLD <= 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        QueryCounter counter = new QueryCounter();
+        try (QueryCounter.Binding ignored = QueryCounter.bind(counter)) {
+            chain.doFilter(request, response);
+        }
+        String uri = request instanceof HttpServletRequest httpRequest ? httpRequest.getRequestURI() : "";
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    check(counter, uri);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                    event.getAsyncContext().addListener(this);
+                }
+            });
+        } else {
+            check(counter, uri);
+        }
+    }
+
+    private static void check(QueryCounter counter, String uri) {
+        Map<String, Long> repeated = counter.repeatedShapes(WARN_THRESHOLD);
+        if (!repeated.isEmpty()) {
+            LOGGER.warning(() -> "Possible N+1 query in " + uri + ": " + counter.count()
+                    + " statements, repeated " + repeated);
+        }
+    }
+}
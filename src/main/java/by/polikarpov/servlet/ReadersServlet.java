@@ -2,10 +2,17 @@ package by.polikarpov.servlet;
 
 import by.polikarpov.dto.BookLendingDto;
 import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.service.BookLendingService;
 import by.polikarpov.service.BooksService;
+import by.polikarpov.service.CachingService;
+import by.polikarpov.service.ParallelQueries;
 import by.polikarpov.service.ReadersService;
+import by.polikarpov.service.Service;
+import by.polikarpov.util.JsonWriter;
+import by.polikarpov.util.TableVersions;
+import by.polikarpov.util.TransactionManager;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -14,35 +21,63 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Servlet for handling reader-related operations including retrieving,
  * adding, updating, and deleting readers.
  */
-@WebServlet("/readers")
+@WebServlet(value = {"/readers", ReadersServlet.BULK_PATH}, asyncSupported = true)
 public class ReadersServlet extends HttpServlet {
 
-    private ReadersService readersService;
+    static final String BULK_PATH = "/readers/bulk";
+
+    /**
+     * Answers conditional requests for the pages of this servlet, which are built from these tables.
+     */
+    private static final ConditionalGet CONDITIONAL_GET = ConditionalGet.of("readers",
+            TableVersions.Table.READERS, TableVersions.Table.BOOK_LENDING, TableVersions.Table.BOOKS, TableVersions.Table.LIBRARY);
+
+    private Service<Long, ReadersDto> readersService;
+
+    private Service<Long, BooksDto> booksService;
 
     /**
      * Servlet for handling reader-related operations including retrieving,
      * adding, updating, and deleting readers.
      */
     public ReadersServlet() {
-        this.readersService = ReadersService.getInstance();
+        this.readersService = CachingService.decorate("readers", ReadersService.getInstance(), ReadersDto::id,
+                TableVersions.Table.READERS);
+        this.booksService = CachingService.decorate("books", BooksService.getInstance(), BooksDto::id,
+                TableVersions.Table.BOOKS, TableVersions.Table.LIBRARY);
     }
 
     /**
-     * Sets the ReadersService instance to be used by this servlet.
+     * Sets the readers service to be used by this servlet.
      *
-     * @param readersService the ReadersService instance to set
+     * @param readersService the readers service to set
      */
-    public void setReadersService(ReadersService readersService) {
+    public void setReadersService(Service<Long, ReadersDto> readersService) {
         this.readersService = readersService;
     }
 
     /**
-     * Handles GET requests to retrieve reader details or list all readers.
+     * Sets the books service used to look up the book being lent.
+     *
+     * @param booksService the books service to set
+     */
+    public void setBooksService(Service<Long, BooksDto> booksService) {
+        this.booksService = booksService;
+    }
+
+    /**
+     * Handles GET requests to retrieve reader details or one page of the readers list.
+     *
+     * The queries run on a request thread of {@link AsyncRequests}, not on the container thread.
+     * A request whose {@code If-None-Match} or {@code If-Modified-Since} header still matches
+     * is answered with 304 Not Modified before that, without running any query.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -51,17 +86,44 @@ public class ReadersServlet extends HttpServlet {
      */
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (CONDITIONAL_GET.notModified(req, resp)) {
+            return;
+        }
+        AsyncRequests.dispatch(req, resp, this::handleGet);
+    }
+
+    private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String idParam = req.getParameter("id");
         if (idParam != null) {
             Long id = Long.parseLong(idParam);
+            Long booksCursor = Pagination.cursor(req, "booksCursor");
             BookLendingService bookLendingService = BookLendingService.getInstance();
-            List<BooksDto> books = bookLendingService.getByReaderId(id);
-            List<BooksDto> booksNot = bookLendingService.getByNotReaderId(id);
-            readersService.getById(id).ifPresentOrElse(
+            List<BooksDto> books;
+            Page<Long, BooksDto> booksNot;
+            Optional<ReadersDto> found;
+            try (ParallelQueries queries = new ParallelQueries()) {
+                Supplier<List<BooksDto>> booksFork = queries.fork(() -> bookLendingService.getByReaderId(id));
+                Supplier<Page<Long, BooksDto>> booksNotFork = queries.fork(() ->
+                        bookLendingService.getByNotReaderId(id, booksCursor, Pagination.DEFAULT_LIMIT));
+                found = readersService.getById(id);
+                queries.join();
+                books = booksFork.get();
+                booksNot = booksNotFork.get();
+            }
+            found.ifPresentOrElse(
                     reader -> {
+                        if (JsonResponses.wantsJson(req)) {
+                            try {
+                                writeReaderJson(resp, reader, books, booksNot);
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                            return;
+                        }
                         req.setAttribute("reader", reader);
                         req.setAttribute("books", books);
-                        req.setAttribute("booksNot", booksNot);
+                        req.setAttribute("booksNot", booksNot.items());
+                        req.setAttribute("booksNotNextCursor", booksNot.nextCursor());
                         try {
                             req.getRequestDispatcher("/WEB-INF/jsp/readerDetail.jsp").forward(req, resp);
                         } catch (ServletException | IOException e) {
@@ -77,14 +139,45 @@ public class ReadersServlet extends HttpServlet {
                     }
             );
         } else {
-            List<ReadersDto> readers = readersService.getAll();
-            req.setAttribute("readers", readers);
+            Page<Long, ReadersDto> readers = readersService.getPage(
+                    Pagination.cursor(req, "cursor"), Pagination.limit(req));
+            if (JsonResponses.wantsJson(req)) {
+                JsonWriter json = JsonResponses.open(resp);
+                JsonResponses.writePage(json, readers, JsonResponses::writeReader);
+                json.flush();
+                return;
+            }
+            req.setAttribute("readers", readers.items());
+            req.setAttribute("nextCursor", readers.nextCursor());
             req.getRequestDispatcher("WEB-INF/jsp/readers.jsp").forward(req, resp);
         }
     }
 
+    /**
+     * Writes a reader, the books lent to them and one page of the books they can still borrow
+     * as a JSON object.
+     *
+     * @param resp     the HttpServletResponse object
+     * @param reader   the reader
+     * @param books    the books lent to the reader
+     * @param booksNot one page of the books not lent to the reader
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeReaderJson(HttpServletResponse resp, ReadersDto reader, List<BooksDto> books,
+                                 Page<Long, BooksDto> booksNot) throws IOException {
+        JsonWriter json = JsonResponses.open(resp);
+        json.beginObject().name("reader");
+        JsonResponses.writeReader(json, reader);
+        json.name("books");
+        JsonResponses.writeArray(json, books, JsonResponses::writeBook);
+        json.name("booksNot");
+        JsonResponses.writePage(json, booksNot, JsonResponses::writeBook);
+        json.endObject().flush();
+    }
+
     /**
      * Handles POST requests for adding new readers or updating/deleting existing readers.
+     * Requests to {@code /readers/bulk} add many readers, or lend many books to one reader, at once.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -93,6 +186,10 @@ public class ReadersServlet extends HttpServlet {
      */
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (BulkRequests.isBulkRequest(req, BULK_PATH)) {
+            handleBulkCreateRequest(req, resp);
+            return;
+        }
         String idParam = req.getParameter("id");
         String readerName = req.getParameter("readerName");
         String bookIdSave = req.getParameter("bookIdSave");
@@ -105,12 +202,16 @@ public class ReadersServlet extends HttpServlet {
 
             resp.sendRedirect(req.getContextPath() + "/readers");
         } else if (bookIdSave != null && !bookIdSave.isEmpty()) {
-            BookLendingService.getInstance().add(
-                    new BookLendingDto(
-                            readersService.getById(Long.valueOf(idParam)).get(),
-                            BooksService.getInstance().getById(Long.valueOf(bookIdSave)).get()
-                    )
-            );
+            // the lookups and the insert share one connection and commit once
+            TransactionManager.execute(() -> {
+                BookLendingService.getInstance().add(
+                        new BookLendingDto(
+                                readersService.getById(Long.valueOf(idParam)).get(),
+                                booksService.getById(Long.valueOf(bookIdSave)).get()
+                        )
+                );
+                return null;
+            });
             resp.sendRedirect(req.getContextPath() + "/readers?id=" + idParam);
         } else if (idParam != null && !idParam.isEmpty()) {
             doDelete(req, resp);
@@ -119,6 +220,54 @@ public class ReadersServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Handles POST requests to the bulk path. The repeated {@code readerName} parameter
+     * creates one reader per value; otherwise the repeated {@code bookIdSave} parameter
+     * lends every listed book to the reader given by {@code id}. Books already lent to the
+     * reader are skipped and the response lists only the books lent now. A malformed ID
+     * answers 400, an unknown reader or book 404, and nothing is lent in both cases.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @throws IOException if an I/O error occurs
+     */
+    private void handleBulkCreateRequest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        List<String> names = BulkRequests.values(req, "readerName");
+        List<String> bookIds = BulkRequests.values(req, "bookIdSave");
+        String idParam = req.getParameter("id");
+        if (names != null) {
+            if (!BulkRequests.checkSize(names.size(), resp)) {
+                return;
+            }
+            List<ReadersDto> saved = readersService.addAll(
+                    names.stream().map(name -> new ReadersDto(null, name)).toList());
+            BulkRequests.writeCreated(resp, saved.stream().map(ReadersDto::id).toList());
+        } else if (bookIds != null && idParam != null && !idParam.isEmpty()) {
+            if (!BulkRequests.checkSize(bookIds.size(), resp)) {
+                return;
+            }
+            Long readerId;
+            List<Long> ids;
+            try {
+                readerId = Long.valueOf(idParam);
+                ids = bookIds.stream().map(Long::valueOf).toList();
+            } catch (NumberFormatException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Reader and book IDs must be numbers");
+                return;
+            }
+            List<Long> lent;
+            try {
+                lent = BookLendingService.getInstance().lendAll(readerId, ids);
+            } catch (IllegalArgumentException e) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+                return;
+            }
+            BulkRequests.writeCreated(resp, lent);
+        } else {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Reader's data not correct");
+        }
+    }
+
     /**
      * Handles PUT requests for updating existing readers.
      *
@@ -144,6 +293,8 @@ public class ReadersServlet extends HttpServlet {
 
     /**
      * Handles DELETE requests for removing a reader by their ID or unassigning a book.
+     * Unassigning a book from a missing reader, or a missing book, answers 404; a malformed
+     * reader or book ID answers 400.
      *
      * @param req  the HttpServletRequest object
      * @param resp the HttpServletResponse object
@@ -155,10 +306,23 @@ public class ReadersServlet extends HttpServlet {
         if (req.getParameter("id") == null || req.getParameter("id").isEmpty()) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Reader not exists");
         } else {
-            Long id = Long.valueOf(req.getParameter("id"));
-            String bookId = req.getParameter("bookId");
-            if (bookId != null && !bookId.isEmpty()) {
-                BookLendingService.getInstance().delete(id, Long.valueOf(bookId));
+            String bookIdParam = req.getParameter("bookId");
+            Long id;
+            Long bookId;
+            try {
+                id = Long.valueOf(req.getParameter("id"));
+                bookId = bookIdParam != null && !bookIdParam.isEmpty() ? Long.valueOf(bookIdParam) : null;
+            } catch (NumberFormatException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Reader and book IDs must be numbers");
+                return;
+            }
+            if (bookId != null) {
+                try {
+                    BookLendingService.getInstance().delete(id, bookId);
+                } catch (IllegalArgumentException e) {
+                    resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+                    return;
+                }
                 resp.sendRedirect(req.getContextPath() + "/readers?id=" + id);
             } else {
                 readersService.delete(id);
@@ -0,0 +1,58 @@
+package by.polikarpov.servlet;
+
+import by.polikarpov.util.JsonWriter;
+import by.polikarpov.util.SlowQueryLog;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servlet that lists the most recent slow statements from the {@link SlowQueryLog} as JSON,
+ * newest first. The {@code limit} parameter selects how many are returned.
+ */
+@WebServlet("/slow-queries")
+public class SlowQueryServlet extends HttpServlet {
+
+    /**
+     * Handles GET requests by writing
+     * {@code {"thresholdMs": ..., "queries": [{"operation": ..., "sql": ..., ...}]}}.
+     *
+     * @param req  the HttpServletRequest object
+     * @param resp the HttpServletResponse object
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        int limit;
+        try {
+            limit = Pagination.limit(req);
+        } catch (NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Limit must be a number");
+            return;
+        }
+        JsonWriter json = JsonResponses.open(resp);
+        json.beginObject()
+                .name("thresholdMs").value(SlowQueryLog.getThresholdMillis())
+                .name("queries").beginArray();
+        for (SlowQueryLog.SlowQuery query : SlowQueryLog.recent(limit)) {
+            json.beginObject()
+                    .name("timestamp").value(query.timestampMillis())
+                    .name("operation").value(query.operation())
+                    .name("sql").value(query.sql())
+                    .name("parameters").beginArray();
+            for (String parameter : query.parameters()) {
+                json.value(parameter);
+            }
+            json.endArray()
+                    .name("rows").value(query.rows())
+                    .name("elapsedMs").value(TimeUnit.NANOSECONDS.toMillis(query.elapsedNanos()))
+                    .endObject();
+        }
+        json.endArray().endObject();
+        json.flush();
+    }
+}
@@ -0,0 +1,269 @@
+package by.polikarpov.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe in-memory cache bounded by size and by entry age.
+ * Entries older than the time-to-live are dropped when they are next read.
+ * When the cache is full an entry is evicted according to the {@link Policy}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * Eviction policy of a full cache.
+     */
+    public enum Policy {
+
+        /**
+         * Evicts the least recently used entry.
+         */
+        LRU,
+
+        /**
+         * Window TinyLFU: new entries enter a small LRU window; an entry leaving the window
+         * only replaces the least recently used entry of the main area if it has been
+         * requested more often recently. This keeps popular entries cached through scans
+         * of rarely used keys.
+         */
+        TINY_LFU
+    }
+
+    /**
+     * Snapshot of the cache statistics.
+     *
+     * @param hits        lookups answered from the cache
+     * @param misses      lookups that had to go to the loader
+     * @param evictions   entries removed because the cache was full
+     * @param expirations entries removed because they outlived the time-to-live
+     * @param size        the current number of entries
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int size) {
+
+        /**
+         * Returns the share of lookups answered from the cache.
+         *
+         * @return the hit ratio between 0 and 1, or 0 if there were no lookups
+         */
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final int WINDOW_PERCENT = 1;
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    /**
+     * Holds every entry under {@link Policy#LRU}, and only the admission window under
+     * {@link Policy#TINY_LFU}. Both maps are in access order, eldest first.
+     */
+    private final LinkedHashMap<K, Entry<V>> window;
+    private final int windowMax;
+
+    /**
+     * The main area under {@link Policy#TINY_LFU}; null under {@link Policy#LRU}.
+     */
+    private final LinkedHashMap<K, Entry<V>> main;
+    private final int mainMax;
+    private final FrequencySketch sketch;
+
+    /**
+     * Incremented by every invalidation, so that a value loaded before an invalidation
+     * is never stored after it.
+     */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Creates an LRU cache that uses {@link System#nanoTime()} as its clock.
+     *
+     * @param maxSize   the maximum number of entries
+     * @param ttlMillis how long an entry stays valid after it is stored
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, Policy.LRU, System::nanoTime);
+    }
+
+    /**
+     * Creates an LRU cache with the given clock.
+     *
+     * @param maxSize   the maximum number of entries
+     * @param ttlMillis how long an entry stays valid after it is stored
+     * @param clock     the source of the current time in nanoseconds
+     */
+    public BoundedCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this(maxSize, ttlMillis, Policy.LRU, clock);
+    }
+
+    /**
+     * Creates a cache with the given eviction policy that uses {@link System#nanoTime()} as its clock.
+     *
+     * @param maxSize   the maximum number of entries
+     * @param ttlMillis how long an entry stays valid after it is stored
+     * @param policy    the eviction policy
+     */
+    public BoundedCache(int maxSize, long ttlMillis, Policy policy) {
+        this(maxSize, ttlMillis, policy, System::nanoTime);
+    }
+
+    /**
+     * Creates a cache with the given eviction policy and clock.
+     *
+     * @param maxSize   the maximum number of entries
+     * @param ttlMillis how long an entry stays valid after it is stored
+     * @param policy    the eviction policy
+     * @param clock     the source of the current time in nanoseconds
+     */
+    public BoundedCache(int maxSize, long ttlMillis, Policy policy, LongSupplier clock) {
+        if (maxSize < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Cache size and time-to-live must be positive");
+        }
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.clock = clock;
+        this.window = new LinkedHashMap<>(16, 0.75f, true);
+        int windowSize = policy == Policy.TINY_LFU ? Math.max(1, maxSize * WINDOW_PERCENT / 100) : maxSize;
+        if (windowSize < maxSize) {
+            this.windowMax = windowSize;
+            this.main = new LinkedHashMap<>(16, 0.75f, true);
+            this.mainMax = maxSize - windowSize;
+            this.sketch = new FrequencySketch(maxSize);
+        } else {
+            this.windowMax = maxSize;
+            this.main = null;
+            this.mainMax = 0;
+            this.sketch = null;
+        }
+    }
+
+    /**
+     * Returns the cached value for the key, loading and storing it on a miss.
+     * A null result of the loader is returned as is and not cached.
+     * The loader runs outside the cache lock.
+     *
+     * @param key    the key
+     * @param loader computes the value when it is not cached
+     * @return the cached or loaded value, or null
+     */
+    public V get(K key, Supplier<V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            Entry<V> entry = lookup(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.expiresAt() < 0) {
+                    hits++;
+                    return entry.value();
+                }
+                remove(key);
+                expirations++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        V value = loader.get();
+        if (value != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    store(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes the entry for the key.
+     *
+     * @param key the key
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        remove(key);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        window.clear();
+        if (main != null) {
+            main.clear();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache statistics.
+     *
+     * @return the current statistics
+     */
+    public synchronized Stats getStats() {
+        int size = window.size() + (main == null ? 0 : main.size());
+        return new Stats(hits, misses, evictions, expirations, size);
+    }
+
+    private Entry<V> lookup(K key) {
+        Entry<V> entry = window.get(key);
+        if (entry == null && main != null) {
+            entry = main.get(key);
+        }
+        return entry;
+    }
+
+    private void remove(K key) {
+        if (window.remove(key) == null && main != null) {
+            main.remove(key);
+        }
+    }
+
+    private void store(K key, V value) {
+        remove(key);
+        window.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+        if (window.size() <= windowMax) {
+            return;
+        }
+        Iterator<Map.Entry<K, Entry<V>>> eldest = window.entrySet().iterator();
+        Map.Entry<K, Entry<V>> candidate = eldest.next();
+        eldest.remove();
+        if (main == null) {
+            evictions++;
+        } else {
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Moves an entry that left the window into the main area if it is popular enough.
+     */
+    private void admit(K key, Entry<V> entry) {
+        if (main.size() < mainMax) {
+            main.put(key, entry);
+            return;
+        }
+        Iterator<Map.Entry<K, Entry<V>>> eldest = main.entrySet().iterator();
+        K victim = eldest.next().getKey();
+        if (sketch.frequency(key) > sketch.frequency(victim)) {
+            eldest.remove();
+            main.put(key, entry);
+        }
+        evictions++;
+    }
+}
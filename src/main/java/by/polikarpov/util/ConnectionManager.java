@@ -1,19 +1,45 @@
 package by.polikarpov.util;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Utility class for managing database connections.
- * This class loads the PostgreSQL driver and provides a method to retrieve
- * database connections using settings defined in a properties file.
+ * This class loads the PostgreSQL driver and hands out connections from a bounded
+ * {@link ConnectionPool} configured by the settings defined in a properties file.
  */
 public class ConnectionManager {
 
+    private static final Logger LOGGER = Logger.getLogger(ConnectionManager.class.getName());
+
     private static final String URL_KEY = "db.url";
     private static final String USERNAME_KEY = "db.username";
     private static final String PASSWORD_KEY = "db.password";
+    private static final String POOL_MIN_SIZE_KEY = "db.pool.minSize";
+    private static final String POOL_MAX_SIZE_KEY = "db.pool.maxSize";
+    private static final String POOL_ACQUIRE_TIMEOUT_KEY = "db.pool.acquireTimeoutMs";
+    private static final String POOL_VALIDATION_TIMEOUT_KEY = "db.pool.validationTimeoutSeconds";
+    private static final String POOL_VALIDATION_IDLE_KEY = "db.pool.validationIdleMs";
+    private static final String POOL_IDLE_TIMEOUT_KEY = "db.pool.idleTimeoutMs";
+    private static final String POOL_LEAK_DETECTION_KEY = "db.pool.leakDetectionThresholdMs";
+    private static final String POOL_HOUSEKEEPING_INTERVAL_KEY = "db.pool.housekeepingIntervalMs";
+    private static final String POOL_STATEMENT_CACHE_SIZE_KEY = "db.pool.statementCacheSize";
+    private static final String PREPARE_THRESHOLD_KEY = "db.prepareThreshold";
+    private static final String PREPARED_STATEMENT_CACHE_QUERIES_KEY = "db.preparedStatementCacheQueries";
+
+    private static final String POOL_MBEAN_NAME = "by.polikarpov:type=ConnectionPool";
+
+    private static final Metrics.Timer ACQUIRE_TIMER = Metrics.family("db_connection_acquire",
+            "Time to borrow a connection from the pool", false).timer();
+
+    private static volatile ConnectionPool pool;
 
     // Static block to load the JDBC driver when this class is loaded
     static {
@@ -35,23 +61,141 @@ public class ConnectionManager {
     }
 
     /**
-     * Retrieves a connection to the database using the specified properties.
+     * Borrows a connection from the pool. Closing the returned connection
+     * gives it back to the pool instead of closing the physical connection.
+     * Inside a {@link TransactionManager} transaction the transaction's connection is returned.
+     * The statements of the connection are timed by the {@link StatementMonitor}.
      *
      * @return a Connection object to the database
      * @throws SQLException if a database access error occurs, or the URL is null
      */
     public static Connection getConnection() throws SQLException {
+        Connection transactional = TransactionManager.currentConnection();
+        if (transactional != null) {
+            return transactional;
+        }
+        long start = System.nanoTime();
         try {
-            return DriverManager.getConnection(
-                    PropertiesUtil.get(URL_KEY),
-                    PropertiesUtil.get(USERNAME_KEY),
-                    PropertiesUtil.get(PASSWORD_KEY)
-            );
+            Connection connection = getPool().getConnection();
+            ACQUIRE_TIMER.success(start, 0);
+            return StatementMonitor.wrap(connection);
         } catch (SQLException e) {
+            ACQUIRE_TIMER.failure(start);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Returns a snapshot of the connection pool statistics.
+     *
+     * @return the current pool statistics
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Closes the connection pool and all idle connections.
+     * The next call to {@link #getConnection()} creates a new pool.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            unregisterMBean();
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Returns the pool, creating it on first use so that loading this class
+     * never opens a connection by itself.
+     */
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (ConnectionManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = createPool();
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static ConnectionPool createPool() {
+        int maxSize = PropertiesUtil.getInt(POOL_MAX_SIZE_KEY, 10);
+        ConnectionPool.Config config = new ConnectionPool.Config(
+                PropertiesUtil.getInt(POOL_MIN_SIZE_KEY, Math.min(2, maxSize)),
+                maxSize,
+                PropertiesUtil.getLong(POOL_ACQUIRE_TIMEOUT_KEY, 30_000),
+                PropertiesUtil.getInt(POOL_VALIDATION_TIMEOUT_KEY, 5),
+                PropertiesUtil.getLong(POOL_VALIDATION_IDLE_KEY, 500),
+                PropertiesUtil.getLong(POOL_IDLE_TIMEOUT_KEY, 600_000),
+                PropertiesUtil.getLong(POOL_LEAK_DETECTION_KEY, 0),
+                PropertiesUtil.getLong(POOL_HOUSEKEEPING_INTERVAL_KEY, 30_000),
+                PropertiesUtil.getInt(POOL_STATEMENT_CACHE_SIZE_KEY, 64)
+        );
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionManager::openConnection, config);
+        registerMBean(connectionPool);
+        registerGauges(connectionPool);
+        return connectionPool;
+    }
+
+    /**
+     * Opens a new physical connection to the database using the specified properties.
+     * The driver switches a statement to a server-side prepared statement after it has been
+     * executed {@code db.prepareThreshold} times, and keeps the plans of up to
+     * {@code db.preparedStatementCacheQueries} statements per connection.
+     */
+    private static Connection openConnection() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("user", PropertiesUtil.get(USERNAME_KEY));
+        info.setProperty("password", PropertiesUtil.get(PASSWORD_KEY));
+        info.setProperty("prepareThreshold",
+                String.valueOf(PropertiesUtil.getInt(PREPARE_THRESHOLD_KEY, 5)));
+        info.setProperty("preparedStatementCacheQueries",
+                String.valueOf(PropertiesUtil.getInt(PREPARED_STATEMENT_CACHE_QUERIES_KEY, 256)));
+        return DriverManager.getConnection(PropertiesUtil.get(URL_KEY), info);
+    }
+
+    private static void registerGauges(ConnectionPool connectionPool) {
+        Metrics.gauge("db_pool_active_connections", "Connections currently borrowed",
+                connectionPool::getActiveConnections);
+        Metrics.gauge("db_pool_idle_connections", "Connections waiting in the pool",
+                connectionPool::getIdleConnections);
+        Metrics.gauge("db_pool_waiting_threads", "Threads waiting for a connection",
+                connectionPool::getThreadsAwaitingConnection);
+        Metrics.gauge("db_pool_statement_cache_hit_ratio", "Share of prepared statements reused from the cache",
+                connectionPool::getStatementCacheHitRatio);
+    }
+
+    private static void registerMBean(ConnectionPool connectionPool) {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(POOL_MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(connectionPool, name);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register connection pool MBean", e);
+        }
+    }
+
+    private static void unregisterMBean() {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(POOL_MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to unregister connection pool MBean", e);
+        }
+    }
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
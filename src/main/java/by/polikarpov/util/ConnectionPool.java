@@ -0,0 +1,486 @@
+package by.polikarpov.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of physical JDBC connections.
+ * Connections handed out by {@link #getConnection()} are proxies whose {@code close()}
+ * returns the physical connection to the pool instead of closing it, so callers keep
+ * using the usual try-with-resources pattern.
+ */
+public class ConnectionPool implements ConnectionPoolMXBean, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final ConnectionFactory factory;
+    private final Config config;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool and starts its housekeeping thread, which keeps at least
+     * {@link Config#minSize()} connections open, evicts idle connections and reports leaks.
+     *
+     * @param factory the factory used to open physical connections
+     * @param config  the pool settings
+     * @throws IllegalArgumentException if the settings are inconsistent
+     */
+    public ConnectionPool(ConnectionFactory factory, Config config) {
+        if (config.maxSize() < 1 || config.minSize() < 0 || config.minSize() > config.maxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.minSize() + ", max=" + config.maxSize());
+        }
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0,
+                config.housekeepingIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new physical connection if no idle one
+     * is available and the pool has not reached its maximum size.
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLTimeoutException if no connection becomes available within the acquire timeout
+     * @throws SQLException        if the pool is closed or a new connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(config.acquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + config.acquireTimeoutMillis()
+                                              + " ms waiting for a connection (active=" + getActiveConnections()
+                                              + ", max=" + config.maxSize() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowStack = config.leakDetectionThresholdMillis() > 0
+                    ? new Exception("Connection borrowed by " + Thread.currentThread().getName())
+                    : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrows.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            validationFailures.incrementAndGet();
+            destroy(pooled);
+        }
+        return create();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedAt < config.validationIdleMillis()) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(config.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection connection = factory.create();
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            if (pooled.statements != null) {
+                pooled.statements.clear();
+            }
+            pooled.connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to close pooled connection", e);
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool, resetting the session state callers may have changed.
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || pooled.connection.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (pooled.connection.isReadOnly()) {
+                pooled.connection.setReadOnly(false);
+            }
+            pooled.lastUsedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Periodic maintenance: evicts connections idle longer than the idle timeout (down to the
+     * minimum size), tops the pool up to the minimum size and reports connections held longer
+     * than the leak detection threshold.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && total.get() > config.minSize()) {
+            PooledConnection pooled = iterator.next();
+            if (now - pooled.lastUsedAt > config.idleTimeoutMillis() && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        while (total.get() < config.minSize() && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = create();
+                pooled.lastUsedAt = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to open connection while filling the pool", e);
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+
+        if (config.leakDetectionThresholdMillis() > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > config.leakDetectionThresholdMillis()) {
+                    pooled.leakReported = true;
+                    leaks.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Connection leak detection triggered: connection held for "
+                                              + (now - pooled.borrowedAt) + " ms", pooled.borrowStack);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool statistics.
+     *
+     * @return the current pool statistics
+     */
+    public Stats getStats() {
+        return new Stats(getActiveConnections(), getIdleConnections(), getTotalConnections(),
+                getThreadsAwaitingConnection(), getMaxConnections(), getCreatedConnections(),
+                getDestroyedConnections(), getBorrowCount(), getTimeoutCount(),
+                getValidationFailureCount(), getLeakCount(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return borrowed.size();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        return waiting.get();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return config.maxSize();
+    }
+
+    @Override
+    public long getCreatedConnections() {
+        return created.get();
+    }
+
+    @Override
+    public long getDestroyedConnections() {
+        return destroyed.get();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrows.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public long getValidationFailureCount() {
+        return validationFailures.get();
+    }
+
+    @Override
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public double getStatementCacheHitRatio() {
+        return getStats().statementCacheHitRatio();
+    }
+
+    /**
+     * Closes the pool: stops housekeeping and closes every idle connection.
+     * Borrowed connections are closed when their holders return them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+
+        /**
+         * Opens a new physical connection.
+         *
+         * @return a new connection
+         * @throws SQLException if the connection cannot be opened
+         */
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool settings.
+     *
+     * @param minSize                      the number of connections kept open even when idle
+     * @param maxSize                      the maximum number of open connections
+     * @param acquireTimeoutMillis         how long a caller waits for a free connection
+     * @param validationTimeoutSeconds     the timeout passed to {@link Connection#isValid(int)}
+     * @param validationIdleMillis         connections idle for less than this are handed out without validation
+     * @param idleTimeoutMillis            idle connections above {@code minSize} are closed after this time
+     * @param leakDetectionThresholdMillis borrowed connections held longer than this are reported; 0 disables
+     * @param housekeepingIntervalMillis   how often eviction, refill and leak detection run
+     * @param statementCacheSize           prepared statements cached per connection; 0 disables the cache
+     */
+    public record Config(int minSize,
+                         int maxSize,
+                         long acquireTimeoutMillis,
+                         int validationTimeoutSeconds,
+                         long validationIdleMillis,
+                         long idleTimeoutMillis,
+                         long leakDetectionThresholdMillis,
+                         long housekeepingIntervalMillis,
+                         int statementCacheSize) {
+
+        /**
+         * Creates settings without a statement cache.
+         */
+        public Config(int minSize, int maxSize, long acquireTimeoutMillis, int validationTimeoutSeconds,
+                      long validationIdleMillis, long idleTimeoutMillis, long leakDetectionThresholdMillis,
+                      long housekeepingIntervalMillis) {
+            this(minSize, maxSize, acquireTimeoutMillis, validationTimeoutSeconds, validationIdleMillis,
+                    idleTimeoutMillis, leakDetectionThresholdMillis, housekeepingIntervalMillis, 0);
+        }
+    }
+
+    /**
+     * Point-in-time pool statistics.
+     *
+     * @param active             connections currently borrowed
+     * @param idle               connections waiting in the pool
+     * @param total              open physical connections
+     * @param waiting            threads waiting for a connection
+     * @param max                the maximum pool size
+     * @param created            physical connections opened since start
+     * @param destroyed          physical connections closed since start
+     * @param borrows            successful borrows since start
+     * @param timeouts           borrows that timed out since start
+     * @param validationFailures idle connections discarded because validation failed
+     * @param leaks              connections reported by leak detection
+     * @param statementCacheHits   prepared statements reused from a connection's statement cache
+     * @param statementCacheMisses prepared statements that had to be prepared
+     */
+    public record Stats(int active, int idle, int total, int waiting, int max, long created,
+                        long destroyed, long borrows, long timeouts, long validationFailures, long leaks,
+                        long statementCacheHits, long statementCacheMisses) {
+
+        /**
+         * Returns the share of prepared statements served from the statement cache.
+         *
+         * @return a value between 0 and 1, or 0 if no statement was prepared yet
+         */
+        public double statementCacheHitRatio() {
+            long requests = statementCacheHits + statementCacheMisses;
+            return requests == 0 ? 0 : (double) statementCacheHits / requests;
+        }
+    }
+
+    /**
+     * A physical connection together with its pool bookkeeping.
+     */
+    private final class PooledConnection {
+        private final Connection connection;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Exception borrowStack;
+        private volatile boolean leakReported;
+        private final StatementCache statements;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = config.statementCacheSize() > 0
+                    ? new StatementCache(connection, config.statementCacheSize(),
+                    statementCacheHits, statementCacheMisses)
+                    : null;
+        }
+
+        /**
+         * Creates the proxy handed to a caller for a single borrow. Once the proxy is closed
+         * it rejects further use, so a stale reference cannot touch a connection that was
+         * already lent to somebody else.
+         */
+        private Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private final AtomicBoolean returned = new AtomicBoolean();
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (returned.compareAndSet(false, true)) {
+                                release(PooledConnection.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned.get() || connection.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled" + connection;
+                        default:
+                            if (returned.get()) {
+                                throw new SQLException("Connection is closed");
+                            }
+                            if (statements != null && isCacheable(method, args)) {
+                                Integer autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : null;
+                                return statements.prepare((String) args[0], autoGeneratedKeys, (Connection) proxy);
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        }
+
+        private boolean isCacheable(Method method, Object[] args) {
+            if (!method.getName().equals("prepareStatement")) {
+                return false;
+            }
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package by.polikarpov.util;
+
+/**
+ * Management interface exposing {@link ConnectionPool} statistics over JMX.
+ */
+public interface ConnectionPoolMXBean {
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    int getActiveConnections();
+
+    /**
+     * @return the number of connections waiting in the pool
+     */
+    int getIdleConnections();
+
+    /**
+     * @return the number of open physical connections
+     */
+    int getTotalConnections();
+
+    /**
+     * @return the number of threads waiting for a connection
+     */
+    int getThreadsAwaitingConnection();
+
+    /**
+     * @return the maximum pool size
+     */
+    int getMaxConnections();
+
+    /**
+     * @return the number of physical connections opened since start
+     */
+    long getCreatedConnections();
+
+    /**
+     * @return the number of physical connections closed since start
+     */
+    long getDestroyedConnections();
+
+    /**
+     * @return the number of successful borrows since start
+     */
+    long getBorrowCount();
+
+    /**
+     * @return the number of borrows that timed out since start
+     */
+    long getTimeoutCount();
+
+    /**
+     * @return the number of idle connections discarded because validation failed
+     */
+    long getValidationFailureCount();
+
+    /**
+     * @return the number of connections reported by leak detection
+     */
+    long getLeakCount();
+
+    /**
+     * @return the number of prepared statements reused from a connection's statement cache
+     */
+    long getStatementCacheHits();
+
+    /**
+     * @return the number of prepared statements that had to be prepared
+     */
+    long getStatementCacheMisses();
+
+    /**
+     * @return the share of prepared statements served from the statement cache
+     */
+    double getStatementCacheHitRatio();
+}
@@ -0,0 +1,89 @@
+package by.polikarpov.util;
+
+/**
+ * Count-min sketch that estimates how often keys were accessed recently.
+ * Counters saturate at 15 and are halved once the number of recorded accesses
+ * reaches ten times the cache capacity, so the estimates follow changes in popularity.
+ * Not thread-safe; {@link BoundedCache} only uses it under its own lock.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xc3a5c85d, 0x85ebca6b, 0x27d4eb2f};
+
+    private final byte[][] table;
+    private final int shift;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Creates a sketch sized for a cache of the given capacity.
+     *
+     * @param capacity the maximum number of entries of the cache
+     */
+    FrequencySketch(int capacity) {
+        int width = Integer.highestOneBit(Math.max(16, capacity - 1) << 1) * 4;
+        table = new byte[DEPTH][width];
+        shift = Integer.numberOfLeadingZeros(width) + 1;
+        sampleSize = 10 * capacity;
+    }
+
+    /**
+     * Records one access to the key.
+     *
+     * @param key the accessed key
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (table[row][index] < MAX_COUNT) {
+                table[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to the key.
+     *
+     * @param key the key
+     * @return the estimated frequency, at most 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table[row][index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Each row uses its own odd multiplier and takes the high bits of the product,
+     * so keys that collide in one row rarely collide in the others.
+     */
+    private int index(int hash, int row) {
+        return (hash * SEEDS[row]) >>> shift;
+    }
+
+    private static int spread(int hash) {
+        int h = (hash ^ (hash >>> 16)) * 0x45d9f3b;
+        h = (h ^ (h >>> 16)) * 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    private void reset() {
+        for (byte[] counters : table) {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>= 1;
+            }
+        }
+        additions /= 2;
+    }
+}
@@ -0,0 +1,144 @@
+package by.polikarpov.util;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Request-scoped identity map: while a map is bound to the current thread, an entity is
+ * loaded from the database at most once per ID, and every later lookup returns the same
+ * instance. Without a bound map lookups go straight to the database.
+ *
+ * <p>A map is bound for the duration of an HTTP request by a servlet filter, and threads that
+ * work on behalf of the request bind the same map with {@link #bind(IdentityMap)}. It is safe
+ * to use from several threads; concurrent lookups of one ID share a single load. Only found
+ * entities are kept, so a lookup of a missing ID is repeated. DAOs {@link #evict} entities they
+ * update or delete.
+ */
+public final class IdentityMap {
+
+    private static final ThreadLocal<IdentityMap> CURRENT = new ThreadLocal<>();
+
+    private record Key(Class<?> type, Object id) {
+    }
+
+    private final Map<Key, CompletableFuture<Object>> entities = new ConcurrentHashMap<>();
+
+    /**
+     * Restores the previously bound map when closed.
+     */
+    @FunctionalInterface
+    public interface Binding extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Returns the map bound to the current thread.
+     *
+     * @return the bound map, or null if none is bound
+     */
+    public static IdentityMap current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a map to the current thread until the returned binding is closed.
+     *
+     * @param map the map to bind, or null to run without a map
+     * @return the binding that restores the previous map
+     */
+    public static Binding bind(IdentityMap map) {
+        IdentityMap previous = CURRENT.get();
+        set(map);
+        return () -> set(previous);
+    }
+
+    /**
+     * Finds an entity in the bound map, loading it on the first lookup.
+     *
+     * @param type   the entity class
+     * @param id     the entity ID
+     * @param loader the query that loads the entity
+     * @param <E>    the type of the entity
+     * @return the entity, or empty if the loader found none
+     */
+    public static <E> Optional<E> find(Class<E> type, Object id, Supplier<Optional<E>> loader) {
+        IdentityMap map = CURRENT.get();
+        return map == null ? loader.get() : map.get(type, id, loader);
+    }
+
+    /**
+     * Removes an entity from the bound map, so that the next lookup loads it again.
+     *
+     * @param type the entity class
+     * @param id   the entity ID
+     */
+    public static void evict(Class<?> type, Object id) {
+        IdentityMap map = CURRENT.get();
+        if (map != null) {
+            map.entities.remove(new Key(type, id));
+        }
+    }
+
+    /**
+     * Removes all entities of a class from the bound map, for example those that embed a changed entity.
+     *
+     * @param type the entity class
+     */
+    public static void evictAll(Class<?> type) {
+        IdentityMap map = CURRENT.get();
+        if (map != null) {
+            map.entities.keySet().removeIf(key -> key.type() == type);
+        }
+    }
+
+    /**
+     * Returns the number of entities in this map.
+     *
+     * @return the number of loaded and loading entities
+     */
+    public int size() {
+        return entities.size();
+    }
+
+    private <E> Optional<E> get(Class<E> type, Object id, Supplier<Optional<E>> loader) {
+        Key key = new Key(type, id);
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = entities.putIfAbsent(key, created);
+        if (existing != null) {
+            try {
+                return Optional.of(type.cast(existing.join()));
+            } catch (CompletionException e) {
+                // the concurrent load failed or found nothing; load again on this thread
+                return loader.get();
+            }
+        }
+        try {
+            Optional<E> entity = loader.get();
+            if (entity.isPresent()) {
+                created.complete(entity.get());
+            } else {
+                entities.remove(key, created);
+                created.completeExceptionally(new IllegalStateException("Not found"));
+            }
+            return entity;
+        } catch (RuntimeException | Error e) {
+            entities.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static void set(IdentityMap map) {
+        if (map == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(map);
+        }
+    }
+}
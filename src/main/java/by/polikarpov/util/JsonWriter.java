@@ -0,0 +1,247 @@
+package by.polikarpov.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON writer.
+ * Tokens are written straight to the underlying {@link Writer} as they are produced,
+ * without building intermediate strings or trees. The writer only checks what it needs
+ * to place separators correctly; callers are responsible for producing a well-formed document.
+ */
+public class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+
+    /**
+     * For every open object or array: whether an element has already been written to it.
+     */
+    private boolean[] hasElements = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Creates a JSON writer on top of the given character stream.
+     *
+     * @param out the writer to write JSON text to
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Begins a JSON object.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Begins a JSON array.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name the member name
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or {@code null} if the value is null.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Writes a number value, or {@code null} if the value is null.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter value(Long value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value.longValue());
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a {@code null} value.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        beforeValue();
+        if (depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        hasElements[depth++] = false;
+        out.write(bracket);
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+        out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the comma that separates this value from the previous element, if any.
+     */
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth - 1]) {
+                out.write(',');
+            }
+            hasElements[depth - 1] = true;
+        }
+    }
+
+    /**
+     * Writes a quoted string, copying runs of characters that need no escaping in one call.
+     */
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape = escape(c);
+            if (escape == null && c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            if (i > start) {
+                out.write(value, start, i - start);
+            }
+            if (escape != null) {
+                out.write(escape);
+            } else {
+                out.write("\\u");
+                out.write(HEX[(c >> 12) & 0xF]);
+                out.write(HEX[(c >> 8) & 0xF]);
+                out.write(HEX[(c >> 4) & 0xF]);
+                out.write(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        if (start < length) {
+            out.write(value, start, length - start);
+        }
+        out.write('"');
+    }
+
+    private static String escape(char c) {
+        return switch (c) {
+            case '"' -> "\\\"";
+            case '\\' -> "\\\\";
+            case '\n' -> "\\n";
+            case '\r' -> "\\r";
+            case '\t' -> "\\t";
+            case '\b' -> "\\b";
+            case '\f' -> "\\f";
+            default -> null;
+        };
+    }
+}
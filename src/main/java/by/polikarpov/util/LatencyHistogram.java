@@ -0,0 +1,162 @@
+package by.polikarpov.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets, in the style of HdrHistogram:
+ * every power of two is split into {@value #SUB_BUCKETS} equal buckets, so a recorded value is
+ * known to within about 6 percent from a microsecond to several minutes. All buckets are
+ * allocated up front and recording only increments counters, so it does not allocate and
+ * never blocks.
+ *
+ * <p>Durations above {@link #MAX_TRACKABLE_NANOS} are counted in the last bucket.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The largest duration that is recorded with full precision, about 18 minutes.
+     */
+    public static final long MAX_TRACKABLE_NANOS = (1L << MAX_EXPONENT) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_TRACKABLE_NANOS)));
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total of all recorded durations.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the duration below which the given share of the recorded durations lie.
+     *
+     * @param percentile a value between 0 and 100
+     * @return the upper bound of the bucket holding the percentile in nanoseconds,
+     * or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Counts the recorded durations that are at most each of the given bounds, as needed for
+     * the cumulative buckets of a Prometheus histogram. A bucket of this histogram that spans
+     * a bound is counted for the next larger bound.
+     *
+     * @param boundsNanos ascending bounds in nanoseconds
+     * @return for every bound the number of durations up to it, followed by the total count
+     */
+    public long[] cumulativeCounts(long[] boundsNanos) {
+        long[] snapshot = snapshot();
+        long[] result = new long[boundsNanos.length + 1];
+        int bound = 0;
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            while (bound < boundsNanos.length && upperBoundOf(i) > boundsNanos[bound]) {
+                result[bound++] = seen;
+            }
+            seen += snapshot[i];
+        }
+        while (bound < boundsNanos.length) {
+            result[bound++] = seen;
+        }
+        result[boundsNanos.length] = seen;
+        return result;
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Values below two sub-bucket ranges get a bucket each; above that, the highest bit selects
+     * the power of two and the next {@value #SUB_BUCKET_BITS} bits the bucket within it.
+     */
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
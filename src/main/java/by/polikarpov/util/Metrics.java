@@ -0,0 +1,293 @@
+package by.polikarpov.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+/**
+ * Registry of the application's metrics, written in the Prometheus text format by the
+ * {@code /metrics} endpoint.
+ *
+ * <p>A {@link Family} groups the timers of one kind of operation, for example all DAO
+ * methods; each timer is one operation, identified by its labels. A timer records the
+ * duration of every call in a {@link LatencyHistogram}, and counts failed calls and, if the
+ * family counts rows, the rows returned. Gauges report a value read at scrape time, such as
+ * the number of borrowed connections.
+ */
+public final class Metrics {
+
+    private static final long[] BUCKET_BOUNDS_NANOS = {
+            500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L,
+            5_000_000_000L, 10_000_000_000L
+    };
+
+    private static final String[] BUCKET_LABELS = new String[BUCKET_BOUNDS_NANOS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_NANOS.length; i++) {
+            BUCKET_LABELS[i] = seconds(BUCKET_BOUNDS_NANOS[i]);
+        }
+    }
+
+    private static final ConcurrentMap<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    private static final ConcurrentMap<String, Gauge> GAUGES = new ConcurrentSkipListMap<>();
+
+    private record Gauge(String help, DoubleSupplier value) {
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the family with the given name, creating it on first use.
+     *
+     * @param name       the metric name prefix, for example {@code dao_call}
+     * @param help       the description shown in the {@code /metrics} output
+     * @param countsRows whether the timers of the family count returned rows
+     * @return the family
+     */
+    public static Family family(String name, String help, boolean countsRows) {
+        return FAMILIES.computeIfAbsent(name, key -> new Family(key, help, countsRows));
+    }
+
+    /**
+     * Registers a gauge, replacing a gauge with the same name.
+     *
+     * @param name  the metric name
+     * @param help  the description shown in the {@code /metrics} output
+     * @param value reads the current value
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        GAUGES.put(name, new Gauge(help, value));
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @param out the writer
+     * @throws IOException if writing fails
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        for (Family family : FAMILIES.values()) {
+            family.write(out);
+        }
+        for (Map.Entry<String, Gauge> entry : GAUGES.entrySet()) {
+            String name = entry.getKey();
+            Gauge gauge = entry.getValue();
+            out.write("# HELP " + name + " " + gauge.help() + "\n");
+            out.write("# TYPE " + name + " gauge\n");
+            out.write(name + " " + gauge.value().getAsDouble() + "\n");
+        }
+    }
+
+    /**
+     * Counts the rows in the result of a call: the size of a collection, one for a present
+     * optional, a true flag or any other object, and the value of a number, which is how the
+     * DAOs report affected or exported rows. A stream has not read its rows yet and counts none.
+     */
+    static long rowsOf(Object result) {
+        if (result == null || result instanceof BaseStream<?, ?>) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Boolean flag) {
+            return flag ? 1 : 0;
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        return 1;
+    }
+
+    private static String seconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * The timers of one kind of operation. They are written as the histogram
+     * {@code <name>_duration_seconds} and the counters {@code <name>_errors_total} and,
+     * if rows are counted, {@code <name>_rows_total}.
+     */
+    public static final class Family {
+        private final String name;
+        private final String help;
+        private final boolean countsRows;
+        private final ConcurrentMap<String, Timer> timers = new ConcurrentSkipListMap<>();
+
+        private Family(String name, String help, boolean countsRows) {
+            this.name = name;
+            this.help = help;
+            this.countsRows = countsRows;
+        }
+
+        /**
+         * Returns the timer with the given labels, creating it on first use.
+         *
+         * @param labels label names and values, alternating
+         * @return the timer
+         * @throws IllegalArgumentException if a label has no value
+         */
+        public Timer timer(String... labels) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Every label needs a value");
+            }
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) {
+                    key.append(',');
+                }
+                key.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            return timers.computeIfAbsent(key.toString(), labelKey -> new Timer());
+        }
+
+        private void write(Writer out) throws IOException {
+            String duration = name + "_duration_seconds";
+            out.write("# HELP " + duration + " " + help + "\n");
+            out.write("# TYPE " + duration + " histogram\n");
+            for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+                String labels = entry.getKey();
+                String separator = labels.isEmpty() ? "" : ",";
+                LatencyHistogram histogram = entry.getValue().histogram;
+                long[] counts = histogram.cumulativeCounts(BUCKET_BOUNDS_NANOS);
+                for (int i = 0; i < BUCKET_LABELS.length; i++) {
+                    out.write(duration + "_bucket{" + labels + separator + "le=\"" + BUCKET_LABELS[i] + "\"} "
+                            + counts[i] + "\n");
+                }
+                long count = counts[BUCKET_LABELS.length];
+                out.write(duration + "_bucket{" + labels + separator + "le=\"+Inf\"} " + count + "\n");
+                out.write(duration + "_sum" + braces(labels) + " " + seconds(histogram.sum()) + "\n");
+                out.write(duration + "_count" + braces(labels) + " " + count + "\n");
+            }
+            writeCounter(out, name + "_errors_total", "Failed calls: " + help, true);
+            if (countsRows) {
+                writeCounter(out, name + "_rows_total", "Rows returned: " + help, false);
+            }
+        }
+
+        private void writeCounter(Writer out, String counter, String counterHelp, boolean errors)
+                throws IOException {
+            out.write("# HELP " + counter + " " + counterHelp + "\n");
+            out.write("# TYPE " + counter + " counter\n");
+            for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+                Timer timer = entry.getValue();
+                out.write(counter + braces(entry.getKey()) + " "
+                        + (errors ? timer.errors() : timer.rows()) + "\n");
+            }
+        }
+
+        private static String braces(String labels) {
+            return labels.isEmpty() ? "" : "{" + labels + "}";
+        }
+    }
+
+    /**
+     * Measures one operation.
+     */
+    public static final class Timer {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        private Timer() {
+        }
+
+        /**
+         * Runs the call and records its duration, and either the rows it returned
+         * (see {@link Metrics#rowsOf}) or that it failed.
+         *
+         * @param call the call
+         * @param <T>  the type of the result
+         * @return the result of the call
+         */
+        public <T> T record(Supplier<T> call) {
+            long start = System.nanoTime();
+            T result;
+            try {
+                result = call.get();
+            } catch (RuntimeException | Error e) {
+                failure(start);
+                throw e;
+            }
+            success(start, rowsOf(result));
+            return result;
+        }
+
+        /**
+         * Records a successful call.
+         *
+         * @param startNanos the {@link System#nanoTime()} when the call started
+         * @param rowCount   the rows returned by the call
+         */
+        public void success(long startNanos, long rowCount) {
+            histogram.record(System.nanoTime() - startNanos);
+            rows.add(rowCount);
+        }
+
+        /**
+         * Records a failed call.
+         *
+         * @param startNanos the {@link System#nanoTime()} when the call started
+         */
+        public void failure(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+            errors.increment();
+        }
+
+        /**
+         * Returns the durations of the recorded calls.
+         *
+         * @return the histogram
+         */
+        public LatencyHistogram histogram() {
+            return histogram;
+        }
+
+        /**
+         * Returns the number of recorded calls, failed or not.
+         *
+         * @return the number of calls
+         */
+        public long count() {
+            return histogram.count();
+        }
+
+        /**
+         * Returns the number of failed calls.
+         *
+         * @return the number of errors
+         */
+        public long errors() {
+            return errors.sum();
+        }
+
+        /**
+         * Returns the number of rows returned by the successful calls.
+         *
+         * @return the number of rows
+         */
+        public long rows() {
+            return rows.sum();
+        }
+    }
+}
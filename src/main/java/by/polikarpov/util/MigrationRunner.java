@@ -0,0 +1,174 @@
+package by.polikarpov.util;
+
+import by.polikarpov.exception.DaoException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the versioned SQL scripts from the {@code migration} resource directory.
+ * A script is named {@code NNN_description.sql}, where {@code NNN} is its version.
+ * Applied versions are recorded in the {@code schema_migrations} table, so every script runs
+ * once per database; the scripts themselves are written with {@code IF NOT EXISTS} so that a
+ * database created by an earlier script run (for example by the Docker init directory) is
+ * brought under version control without errors.
+ *
+ * <p>All pending scripts run in one transaction under a PostgreSQL advisory lock, so several
+ * application instances starting at once apply them exactly once, and a failing script leaves
+ * the schema unchanged.
+ */
+public final class MigrationRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(MigrationRunner.class.getName());
+
+    private static final String LOCATION = "migration/";
+
+    /**
+     * The migration scripts in the order they are applied. Add new scripts at the end.
+     */
+    static final List<String> SCRIPTS = List.of(
+            "001_create_tables.sql",
+            "002_index_foreign_keys.sql",
+            "003_trigram_search_indexes.sql",
+            "004_books_full_text_search.sql"
+    );
+
+    /**
+     * Arbitrary key of the advisory lock that serializes concurrent migrations.
+     */
+    private static final long LOCK_KEY = 7_402_391_187L;
+
+    private static final String LOCK_SQL = """
+            SELECT pg_advisory_xact_lock(?)
+            """;
+
+    private static final String CREATE_HISTORY_SQL = """
+            CREATE TABLE IF NOT EXISTS schema_migrations
+            (
+                version    INT PRIMARY KEY,
+                script     VARCHAR(256) NOT NULL,
+                checksum   BIGINT       NOT NULL,
+                applied_at TIMESTAMP    NOT NULL DEFAULT now()
+            )
+            """;
+
+    private static final String FIND_APPLIED_SQL = """
+            SELECT version, checksum
+            FROM schema_migrations
+            """;
+
+    private static final String SAVE_APPLIED_SQL = """
+            INSERT INTO schema_migrations (version, script, checksum)
+            VALUES (?, ?, ?)
+            """;
+
+    private MigrationRunner() {
+    }
+
+    /**
+     * Applies all scripts that have not been applied to the database yet.
+     * A script that was changed after it had been applied is not run again; a warning is logged.
+     *
+     * @return the number of applied scripts
+     * @throws DaoException if a script fails or cannot be read; no script is applied in that case
+     */
+    public static int migrate() {
+        try (var connection = ConnectionManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                lock(connection);
+                try (var statement = connection.createStatement()) {
+                    statement.execute(CREATE_HISTORY_SQL);
+                }
+                Map<Integer, Long> applied = findApplied(connection);
+                int count = 0;
+                for (String script : SCRIPTS) {
+                    if (apply(connection, script, applied)) {
+                        count++;
+                    }
+                }
+                connection.commit();
+                return count;
+            } catch (SQLException | IOException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+        } catch (SQLException | IOException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private static void lock(Connection connection) throws SQLException {
+        try (var statement = connection.prepareStatement(LOCK_SQL)) {
+            statement.setLong(1, LOCK_KEY);
+            statement.execute();
+        }
+    }
+
+    private static Map<Integer, Long> findApplied(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (var statement = connection.prepareStatement(FIND_APPLIED_SQL);
+             var result = statement.executeQuery()) {
+            while (result.next()) {
+                applied.put(result.getInt("version"), result.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static boolean apply(Connection connection, String script, Map<Integer, Long> applied)
+            throws SQLException, IOException {
+        int version = version(script);
+        String sql = read(script);
+        long checksum = checksum(sql);
+        Long appliedChecksum = applied.get(version);
+        if (appliedChecksum != null) {
+            if (appliedChecksum != checksum) {
+                LOGGER.warning(() -> "Migration " + script + " was changed after it had been applied");
+            }
+            return false;
+        }
+        try (var statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+        try (var statement = connection.prepareStatement(SAVE_APPLIED_SQL)) {
+            statement.setInt(1, version);
+            statement.setString(2, script);
+            statement.setLong(3, checksum);
+            statement.executeUpdate();
+        }
+        LOGGER.info(() -> "Applied migration " + script);
+        return true;
+    }
+
+    static int version(String script) {
+        return Integer.parseInt(script.substring(0, script.indexOf('_')));
+    }
+
+    static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static String read(String script) throws IOException {
+        try (InputStream inputStream = MigrationRunner.class.getClassLoader().getResourceAsStream(LOCATION + script)) {
+            if (inputStream == null) {
+                throw new IOException("Migration script " + LOCATION + script + " not found");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
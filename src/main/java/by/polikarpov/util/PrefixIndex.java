@@ -0,0 +1,132 @@
+package by.polikarpov.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Thread-safe in-memory index that suggests phrases starting with a typed prefix.
+ * Every word of a phrase is a possible start, so "tol" suggests "Leo Tolstoy".
+ * Keys are lower-cased word suffixes of the phrase kept in a sorted map, so a lookup is a
+ * range scan that costs O(log n + limit) and never touches the database. A phrase added
+ * several times, for example the author of several books, has to be removed as many
+ * times before it disappears.
+ */
+public class PrefixIndex {
+
+    /**
+     * Separates the word suffix from the full phrase in a key; sorts before every character.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Immutable, because the compute methods of the map may run the remapping function more than once.
+     */
+    private record Phrase(String text, int count) {
+    }
+
+    private final ConcurrentSkipListMap<String, Phrase> entries = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds one occurrence of a phrase.
+     *
+     * @param phrase the phrase; null and blank phrases are ignored
+     */
+    public void add(String phrase) {
+        if (phrase == null || phrase.isBlank()) {
+            return;
+        }
+        String text = phrase.trim();
+        for (String key : keys(text)) {
+            entries.compute(key, (k, existing) ->
+                    existing == null ? new Phrase(text, 1) : new Phrase(existing.text(), existing.count() + 1));
+        }
+    }
+
+    /**
+     * Removes one occurrence of a phrase.
+     *
+     * @param phrase the phrase; null and unknown phrases are ignored
+     */
+    public void remove(String phrase) {
+        if (phrase == null || phrase.isBlank()) {
+            return;
+        }
+        for (String key : keys(phrase.trim())) {
+            entries.computeIfPresent(key, (k, existing) ->
+                    existing.count() > 1 ? new Phrase(existing.text(), existing.count() - 1) : null);
+        }
+    }
+
+    /**
+     * Replaces one occurrence of a phrase with another.
+     *
+     * @param oldPhrase the phrase to remove
+     * @param newPhrase the phrase to add
+     */
+    public void replace(String oldPhrase, String newPhrase) {
+        if (oldPhrase != null && oldPhrase.equals(newPhrase)) {
+            return;
+        }
+        remove(oldPhrase);
+        add(newPhrase);
+    }
+
+    /**
+     * Removes all phrases.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns phrases that contain a word starting with the prefix, ordered by the matching word.
+     *
+     * @param prefix the typed prefix; case is ignored
+     * @param limit  the maximum number of phrases
+     * @return distinct matching phrases, at most {@code limit}
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Set<String> phrases = new LinkedHashSet<>();
+        Map<String, Phrase> range = entries.subMap(normalized, true, normalized + Character.MAX_VALUE, true);
+        for (Phrase entry : range.values()) {
+            phrases.add(entry.text());
+            if (phrases.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(phrases);
+    }
+
+    /**
+     * Returns the number of indexed keys, one per word of every distinct phrase.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static List<String> keys(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i) + SEPARATOR + text);
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
@@ -31,13 +31,53 @@ public class PropertiesUtil {
     }
 
     /**
-     * Retrieves the value associated with the specified key from the loaded properties.
+     * Retrieves the value associated with the specified key. A JVM system property with
+     * the same key takes precedence over the loaded properties, so a deployment or a
+     * benchmark run can override single settings with {@code -Dkey=value}.
      *
      * @param key the key whose associated value is to be returned
      * @return the value associated with the specified key, or null if the key does not exist
      */
     public static String get(String key) {
-        return PROPERTIES.getProperty(key);
+        return System.getProperty(key, PROPERTIES.getProperty(key));
+    }
+
+    /**
+     * Retrieves the value associated with the specified key as an int.
+     *
+     * @param key          the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key does not exist or is blank
+     * @return the parsed value, or the default value if the key is not set
+     * @throws NumberFormatException if the value is not a valid int
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Retrieves the value associated with the specified key as a long.
+     *
+     * @param key          the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key does not exist or is blank
+     * @return the parsed value, or the default value if the key is not set
+     * @throws NumberFormatException if the value is not a valid long
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Retrieves the value associated with the specified key as a boolean.
+     *
+     * @param key          the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key does not exist or is blank
+     * @return the parsed value, or the default value if the key is not set
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
     }
 
     /**
@@ -0,0 +1,166 @@
+package by.polikarpov.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the statements executed on behalf of one request or test, in total and per SQL
+ * shape, to find N+1 query patterns: a loop that runs the same query once per row shows up as
+ * one shape executed many times. While a counter is bound to the current thread, every
+ * statement run through a {@link StatementMonitor} connection is counted; threads that work on
+ * behalf of the request bind the same counter with {@link #bind(QueryCounter)}.
+ *
+ * <p>The shape of a statement is its SQL with runs of whitespace collapsed and string and
+ * number literals replaced by {@code ?}, so the same query with different literals counts as
+ * one shape.
+ *
+ * <pre>{@code
+ * List<Books> books = QueryCounter.withBudget(1, booksDao::findAll);
+ * }</pre>
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<QueryCounter> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final int MAX_CACHED_SHAPES = 1024;
+
+    private static final Map<String, String> SHAPES = new ConcurrentHashMap<>();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final Map<String, LongAdder> byShape = new ConcurrentHashMap<>();
+
+    /**
+     * Restores the previously bound counter when closed.
+     */
+    @FunctionalInterface
+    public interface Binding extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Returns the counter bound to the current thread.
+     *
+     * @return the bound counter, or null if none is bound
+     */
+    public static QueryCounter current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a counter to the current thread until the returned binding is closed.
+     *
+     * @param counter the counter to bind, or null to stop counting
+     * @return the binding that restores the previous counter
+     */
+    public static Binding bind(QueryCounter counter) {
+        QueryCounter previous = CURRENT.get();
+        set(counter);
+        return () -> set(previous);
+    }
+
+    /**
+     * Runs the work with a new counter and checks that it executed at most the given number
+     * of statements. Meant for tests that guard a DAO or service method against N+1 queries.
+     *
+     * @param maxStatements the statement budget
+     * @param work          the work to run
+     * @param <T>           the type of the result
+     * @return the result of the work
+     * @throws IllegalStateException if the work executed more statements than the budget allows
+     */
+    public static <T> T withBudget(int maxStatements, Supplier<T> work) {
+        QueryCounter counter = new QueryCounter();
+        T result;
+        try (Binding ignored = bind(counter)) {
+            result = work.get();
+        }
+        if (counter.count() > maxStatements) {
+            throw new IllegalStateException("Expected at most " + maxStatements + " statements but "
+                    + counter.count() + " were executed: " + counter.countsByShape());
+        }
+        return result;
+    }
+
+    /**
+     * Counts a statement in the counter bound to the current thread, if any.
+     *
+     * @param sql the SQL of the statement
+     */
+    static void record(String sql) {
+        QueryCounter counter = CURRENT.get();
+        if (counter != null && sql != null) {
+            counter.total.incrementAndGet();
+            counter.byShape.computeIfAbsent(shapeOf(sql), shape -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Returns the number of statements counted.
+     *
+     * @return the number of statements
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * Returns how often each SQL shape was executed.
+     *
+     * @return the counts, sorted by shape
+     */
+    public Map<String, Long> countsByShape() {
+        Map<String, Long> counts = new TreeMap<>();
+        byShape.forEach((shape, count) -> counts.put(shape, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Returns the SQL shapes that were executed more often than the given number of times,
+     * the usual sign of an N+1 query.
+     *
+     * @param maxExecutions how often one shape may be executed
+     * @return the offending shapes with their counts, sorted by shape
+     */
+    public Map<String, Long> repeatedShapes(long maxExecutions) {
+        Map<String, Long> repeated = countsByShape();
+        repeated.values().removeIf(count -> count <= maxExecutions);
+        return repeated;
+    }
+
+    /**
+     * Returns the shape of a statement, see the class description.
+     *
+     * @param sql the SQL
+     * @return the SQL with literals replaced and whitespace collapsed
+     */
+    static String shapeOf(String sql) {
+        String shape = SHAPES.get(sql);
+        if (shape == null) {
+            shape = WHITESPACE.matcher(LITERAL.matcher(sql).replaceAll("?")).replaceAll(" ").trim();
+            if (SHAPES.size() < MAX_CACHED_SHAPES) {
+                SHAPES.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    private static void set(QueryCounter counter) {
+        if (counter == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(counter);
+        }
+    }
+}
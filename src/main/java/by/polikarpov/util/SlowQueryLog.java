@@ -0,0 +1,106 @@
+package by.polikarpov.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent statements that took longer than {@code db.slowQuery.thresholdMs}, as
+ * reported by {@link StatementMonitor}. The entries are kept in a ring buffer of
+ * {@code db.slowQuery.capacity} slots: adding an entry claims the next slot with one atomic
+ * increment and overwrites the oldest entry, so a request thread never waits for a lock
+ * and the memory used is bounded.
+ */
+public final class SlowQueryLog {
+
+    private static final int CAPACITY = Math.max(1, PropertiesUtil.getInt("db.slowQuery.capacity", 256));
+
+    private static final AtomicReferenceArray<SlowQuery> ENTRIES = new AtomicReferenceArray<>(CAPACITY);
+
+    private static final AtomicLong NEXT_SEQUENCE = new AtomicLong();
+
+    private static volatile long thresholdNanos =
+            TimeUnit.MILLISECONDS.toNanos(PropertiesUtil.getLong("db.slowQuery.thresholdMs", 200));
+
+    /**
+     * A statement that exceeded the threshold.
+     *
+     * @param sequence        the position in the log; larger is newer
+     * @param timestampMillis when the statement finished, in epoch milliseconds
+     * @param operation       the DAO method that ran the statement, for example {@code BooksDao.findAll}
+     * @param sql             the SQL text
+     * @param parameters      the bind values in parameter order
+     * @param rows            the rows read or changed by the statement
+     * @param elapsedNanos    the time spent executing the statement and fetching its rows
+     */
+    public record SlowQuery(long sequence, long timestampMillis, String operation, String sql,
+                            List<String> parameters, long rows, long elapsedNanos) {
+    }
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Returns the newest slow statements.
+     *
+     * @param limit the maximum number of entries
+     * @return at most {@code limit} entries, newest first
+     */
+    public static List<SlowQuery> recent(int limit) {
+        List<SlowQuery> result = new ArrayList<>(Math.min(limit, CAPACITY));
+        long end = NEXT_SEQUENCE.get();
+        for (long sequence = end - 1; sequence >= Math.max(0, end - CAPACITY) && result.size() < limit; sequence--) {
+            SlowQuery entry = ENTRIES.get(slot(sequence));
+            // a slot that was already overwritten by a newer entry, or not written yet, is skipped
+            if (entry != null && entry.sequence() == sequence) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the threshold above which a statement is logged.
+     *
+     * @return the threshold in milliseconds; -1 if logging is disabled
+     */
+    public static long getThresholdMillis() {
+        long threshold = thresholdNanos;
+        return threshold < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    /**
+     * Changes the threshold above which a statement is logged.
+     *
+     * @param thresholdMillis the threshold in milliseconds; a negative value disables logging
+     */
+    public static void setThresholdMillis(long thresholdMillis) {
+        thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * Checks whether a statement took long enough to be logged.
+     *
+     * @param elapsedNanos the duration of the statement
+     * @return true if it should be logged
+     */
+    static boolean isSlow(long elapsedNanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && elapsedNanos >= threshold;
+    }
+
+    /**
+     * Adds a slow statement, replacing the oldest entry when the log is full.
+     */
+    static void add(String operation, String sql, List<String> parameters, long rows, long elapsedNanos) {
+        long sequence = NEXT_SEQUENCE.getAndIncrement();
+        ENTRIES.set(slot(sequence), new SlowQuery(sequence, System.currentTimeMillis(), operation, sql,
+                parameters, rows, elapsedNanos));
+    }
+
+    private static int slot(long sequence) {
+        return (int) (sequence % CAPACITY);
+    }
+}
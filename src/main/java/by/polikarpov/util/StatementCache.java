@@ -0,0 +1,191 @@
+package by.polikarpov.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of prepared statements for one physical connection. The DAOs prepare the same SQL
+ * constants over and over; with the cache, closing such a statement parks it for the next
+ * borrower of the connection instead of discarding it, so the driver does not parse the SQL
+ * again and keeps the execution count that decides when it switches to a server-side
+ * prepared statement (see {@code db.prepareThreshold}).
+ *
+ * <p>A statement is removed from the cache while it is in use, so two open statements
+ * never share one physical statement. The least recently used statements are closed when the
+ * cache is full. Only {@code prepareStatement(sql)} and {@code prepareStatement(sql, autoGeneratedKeys)}
+ * are cached; statements with other options are always new.
+ */
+final class StatementCache {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementCache.class.getName());
+
+    private final Connection connection;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final Map<String, PreparedStatement> statements;
+
+    /**
+     * Creates a cache.
+     *
+     * @param connection the physical connection
+     * @param maxSize    the largest number of parked statements
+     * @param hits       incremented when a parked statement is reused
+     * @param misses     incremented when a statement has to be prepared
+     */
+    StatementCache(Connection connection, int maxSize, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a statement for the SQL, reusing a parked one if possible.
+     *
+     * @param sql               the SQL
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS}, {@link Statement#NO_GENERATED_KEYS},
+     *                          or null for {@code prepareStatement(sql)}
+     * @param owner             the connection handle returned by {@link PreparedStatement#getConnection()}
+     * @return a statement whose close parks it in this cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(String sql, Integer autoGeneratedKeys, Connection owner) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+        PreparedStatement statement;
+        synchronized (statements) {
+            statement = statements.remove(key);
+        }
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            statement = autoGeneratedKeys == null
+                    ? connection.prepareStatement(sql)
+                    : connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return handle(key, statement, owner);
+    }
+
+    /**
+     * Closes all parked statements, for example before the physical connection is closed.
+     */
+    void clear() {
+        synchronized (statements) {
+            statements.values().forEach(StatementCache::closeQuietly);
+            statements.clear();
+        }
+    }
+
+    /**
+     * Returns the number of parked statements.
+     *
+     * @return the number of statements ready for reuse
+     */
+    int size() {
+        synchronized (statements) {
+            return statements.size();
+        }
+    }
+
+    private void park(String key, PreparedStatement statement) {
+        try {
+            statement.clearParameters();
+            statement.clearWarnings();
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+        PreparedStatement previous;
+        synchronized (statements) {
+            previous = statements.put(key, statement);
+        }
+        if (previous != null && previous != statement) {
+            closeQuietly(previous);
+        }
+    }
+
+    /**
+     * Creates the handle given to the caller. Result sets opened through it are closed when it
+     * is closed, as they would be with a real close, and a closed handle rejects further use.
+     */
+    private PreparedStatement handle(String key, PreparedStatement statement, Connection owner) {
+        List<ResultSet> results = new ArrayList<>();
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            for (ResultSet result : results) {
+                                result.close();
+                            }
+                            park(key, statement);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "getConnection":
+                        return owner;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached" + statement;
+                    default:
+                        if (closed) {
+                            throw new SQLException("Statement is closed");
+                        }
+                        Object value;
+                        try {
+                            value = method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (value instanceof ResultSet result) {
+                            results.add(result);
+                        }
+                        return value;
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to close cached statement", e);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package by.polikarpov.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps the connections handed out by {@link ConnectionManager} to time every statement they
+ * run. The time of a query includes fetching its rows, so a query counts as finished when its
+ * result set or statement is closed, or when the statement is executed again. Statements that
+ * exceed the threshold end up in the {@link SlowQueryLog} together with their bind values, the
+ * number of rows and the DAO method that ran them.
+ *
+ * <p>The DAO method is taken from {@link #enterOperation(String)}, which the DAOs call around
+ * each public method; statements run outside of one are reported with the method that
+ * closed or executed them.
+ */
+public final class StatementMonitor {
+
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private StatementMonitor() {
+    }
+
+    /**
+     * Names the operation that the statements run by the current thread belong to, until
+     * {@link #exitOperation(String)} is called.
+     *
+     * <pre>{@code
+     * String previous = StatementMonitor.enterOperation("BooksDao.findAll");
+     * try {
+     *     ...
+     * } finally {
+     *     StatementMonitor.exitOperation(previous);
+     * }
+     * }</pre>
+     *
+     * @param operation the operation, for example {@code BooksDao.findAll}
+     * @return the operation that was current before, to be passed to {@link #exitOperation(String)}
+     */
+    public static String enterOperation(String operation) {
+        String previous = OPERATION.get();
+        OPERATION.set(operation);
+        return previous;
+    }
+
+    /**
+     * Restores the operation that was current before {@link #enterOperation(String)}.
+     *
+     * @param previous the value returned by {@code enterOperation}
+     */
+    public static void exitOperation(String previous) {
+        if (previous == null) {
+            OPERATION.remove();
+        } else {
+            OPERATION.set(previous);
+        }
+    }
+
+    /**
+     * Wraps a connection so that the statements it creates are timed and counted by the
+     * {@link QueryCounter}. {@link ConnectionManager} wraps its connections already; tests
+     * wrap mock connections to check the statements of a DAO method.
+     *
+     * @param connection the connection
+     * @return a connection that behaves like the given one
+     */
+    public static Connection wrap(Connection connection) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement", "prepareCall":
+                    return statement((Statement) invoke(connection, method, args), (String) args[0], (Connection) proxy);
+                case "createStatement":
+                    return statement((Statement) invoke(connection, method, args), null, (Connection) proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Monitored" + connection;
+                default:
+                    return invoke(connection, method, args);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Statement statement(Statement statement, String sql, Connection owner) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(), new Class<?>[]{type}, new StatementHandler(statement, sql, owner));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * One execution of a statement, finished once its rows have been read.
+     */
+    private static final class Execution {
+        private final String sql;
+        private final Object[] parameters;
+        private final String operation;
+        private long elapsedNanos;
+        private long rows;
+        private boolean finished;
+
+        private Execution(String sql, Object[] parameters, String operation) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.operation = operation;
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (SlowQueryLog.isSlow(elapsedNanos)) {
+                SlowQueryLog.add(operation != null ? operation : caller(), sql, format(parameters), rows, elapsedNanos);
+            }
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Connection owner;
+        private final List<Object> parameters = new ArrayList<>();
+        private Execution pending;
+
+        private StatementHandler(Statement statement, String sql, Connection owner) {
+            this.statement = statement;
+            this.sql = sql;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            }
+            switch (name) {
+                case "clearParameters":
+                    parameters.clear();
+                    break;
+                case "close":
+                    finishPending();
+                    break;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Monitored" + statement;
+                default:
+                    break;
+            }
+            return StatementMonitor.invoke(statement, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            finishPending();
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            QueryCounter.record(executedSql);
+            Execution execution = new Execution(executedSql, parameters.toArray(), OPERATION.get());
+            long start = System.nanoTime();
+            Object value;
+            try {
+                value = StatementMonitor.invoke(statement, method, args);
+            } catch (Throwable e) {
+                execution.elapsedNanos = System.nanoTime() - start;
+                execution.finish();
+                throw e;
+            }
+            execution.elapsedNanos = System.nanoTime() - start;
+            if (value instanceof ResultSet result) {
+                pending = execution;
+                return resultSet(result, execution, (Statement) proxy);
+            }
+            execution.rows = rows(value);
+            execution.finish();
+            return value;
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish();
+                pending = null;
+            }
+        }
+
+        private void bind(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private static long rows(Object value) {
+            if (value instanceof Number count) {
+                return Math.max(0, count.longValue());
+            }
+            long rows = 0;
+            if (value instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(0, count);
+                }
+            } else if (value instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(0, count);
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static ResultSet resultSet(ResultSet result, Execution execution, Statement owner) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    boolean hasRow;
+                    try {
+                        hasRow = result.next();
+                    } finally {
+                        execution.elapsedNanos += System.nanoTime() - start;
+                    }
+                    if (hasRow) {
+                        execution.rows++;
+                    }
+                    return hasRow;
+                case "close":
+                    result.close();
+                    execution.finish();
+                    return null;
+                case "getStatement":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Monitored" + result;
+                default:
+                    return invoke(result, method, args);
+            }
+        };
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, handler);
+    }
+
+    private static List<String> format(Object[] parameters) {
+        List<String> formatted = new ArrayList<>(parameters.length);
+        for (Object parameter : parameters) {
+            String text = parameter == null ? "NULL" : String.valueOf(parameter);
+            formatted.add(text.length() > MAX_PARAMETER_LENGTH
+                    ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text);
+        }
+        return List.copyOf(formatted);
+    }
+
+    /**
+     * Finds the first caller outside of the JDBC proxies, for statements that are not run by
+     * an instrumented DAO method.
+     */
+    private static String caller() {
+        String self = StatementMonitor.class.getName();
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(self)
+                        && !frame.getClassName().startsWith(self + "$")
+                        && !frame.getClassName().startsWith("jdk.")
+                        && !frame.getClassName().startsWith("java.")
+                        && !frame.getClassName().contains("$Proxy"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+}
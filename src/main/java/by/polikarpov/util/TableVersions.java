@@ -0,0 +1,116 @@
+package by.polikarpov.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters of the tables, used to answer conditional GET requests without querying
+ * the database. The DAOs call {@link #changed(Table...)} in every write path; a page whose tables
+ * all still have the versions it was rendered with is unchanged.
+ *
+ * <p>The counters live in memory and start over with every start of the application, so the
+ * tag built by {@link #tag(Table...)} also contains a random value chosen at start; a tag from
+ * before a restart or from another instance never matches. A change made in the database
+ * without going through the DAOs is not noticed.
+ */
+public final class TableVersions {
+
+    /**
+     * The tables of the application.
+     */
+    public enum Table {
+        LIBRARY, BOOKS, READERS, BOOK_LENDING
+    }
+
+    private static final String EPOCH = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private static final AtomicLong[] VERSIONS = new AtomicLong[Table.values().length];
+
+    private static final AtomicLong[] LAST_MODIFIED = new AtomicLong[Table.values().length];
+
+    static {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < VERSIONS.length; i++) {
+            VERSIONS[i] = new AtomicLong();
+            LAST_MODIFIED[i] = new AtomicLong(now);
+        }
+    }
+
+    private TableVersions() {
+    }
+
+    /**
+     * Records a change of tables, to be called after the statement that changed them, including
+     * the tables changed by cascading deletes. Inside a transaction the versions are increased
+     * when the transaction ends, so that a page read while the change was not yet visible to
+     * other connections is not tagged with the new versions.
+     *
+     * @param tables the changed tables
+     */
+    public static void changed(Table... tables) {
+        TransactionManager.afterCompletion(() -> {
+            for (Table table : tables) {
+                bump(table);
+            }
+        });
+    }
+
+    /**
+     * Returns the current version of a table.
+     *
+     * @param table the table
+     * @return the number of recorded changes
+     */
+    public static long version(Table table) {
+        return VERSIONS[table.ordinal()].get();
+    }
+
+    /**
+     * Returns a number that grows whenever one of the tables changes, for caches that drop
+     * their entries when a table they were loaded from changes.
+     *
+     * @param tables the tables
+     * @return the sum of the versions of the tables
+     */
+    public static long combinedVersion(Table... tables) {
+        long version = 0;
+        for (Table table : tables) {
+            version += version(table);
+        }
+        return version;
+    }
+
+    /**
+     * Returns a tag that changes whenever one of the tables changes.
+     *
+     * @param tables the tables a page is built from
+     * @return the tag, without quotes
+     */
+    public static String tag(Table... tables) {
+        StringBuilder tag = new StringBuilder(EPOCH);
+        for (Table table : tables) {
+            tag.append('-').append(version(table));
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Returns when one of the tables was last changed.
+     *
+     * @param tables the tables a page is built from
+     * @return the time of the latest change in epoch milliseconds, or the start of the
+     * application if none of the tables was changed since
+     */
+    public static long lastModified(Table... tables) {
+        long lastModified = 0;
+        for (Table table : tables) {
+            lastModified = Math.max(lastModified, LAST_MODIFIED[table.ordinal()].get());
+        }
+        return lastModified;
+    }
+
+    private static void bump(Table table) {
+        VERSIONS[table.ordinal()].incrementAndGet();
+        LAST_MODIFIED[table.ordinal()].accumulateAndGet(System.currentTimeMillis(), Math::max);
+    }
+}
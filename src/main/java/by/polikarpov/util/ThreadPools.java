@@ -0,0 +1,63 @@
+package by.polikarpov.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executors that run blocking database work outside the caller's thread.
+ */
+public final class ThreadPools {
+
+    private static final Logger LOGGER = Logger.getLogger(ThreadPools.class.getName());
+
+    private ThreadPools() {
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task when the JVM provides virtual
+     * threads (Java 21 and later), and a fixed pool of daemon platform threads otherwise.
+     * Virtual threads are looked up reflectively, so the application still runs on Java 17.
+     *
+     * @param name            the name prefix of the platform threads
+     * @param platformThreads the number of platform threads used without virtual threads
+     * @return a new executor
+     */
+    public static ExecutorService newExecutor(String name, int platformThreads) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOGGER.info(() -> name + " tasks run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            LOGGER.info(() -> name + " tasks run on " + platformThreads + " platform threads");
+            AtomicInteger number = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, task -> {
+                Thread thread = new Thread(task, name + "-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Stops an executor, waiting for the running tasks at most the given time.
+     *
+     * @param executor the executor
+     * @param timeout  the time to wait
+     * @param unit     the unit of the time to wait
+     */
+    public static void shutdown(ExecutorService executor, long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
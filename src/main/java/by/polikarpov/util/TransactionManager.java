@@ -0,0 +1,243 @@
+package by.polikarpov.util;
+
+import by.polikarpov.exception.DaoException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs several DAO operations in one database transaction. While a transaction is active on
+ * the current thread, {@link ConnectionManager#getConnection()} returns its connection, so the
+ * DAOs take part without any change: closing that connection, committing it or switching its
+ * auto-commit mode is left to the transaction.
+ *
+ * <pre>{@code
+ * Books book = TransactionManager.execute(() -> {
+ *     Books saved = booksDao.save(new Books(title, author, library));
+ *     bookLendingDao.save(new BookLending(reader, saved));
+ *     return saved;
+ * });
+ * }</pre>
+ *
+ * <p>A transaction started inside another one joins it, and the outermost one commits. If the
+ * work throws, the transaction is rolled back and the exception is rethrown. The transaction
+ * belongs to the thread that started it; queries run by other threads, for example with
+ * {@code ParallelQueries}, use their own connections.
+ */
+public final class TransactionManager {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionManager.class.getName());
+
+    private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+
+    private static final class Transaction {
+        private final Connection connection;
+        private final Connection participant;
+        private final boolean readOnly;
+        private final List<Runnable> afterCompletion = new ArrayList<>();
+        private boolean rollbackOnly;
+        private boolean failed;
+
+        private Transaction(Connection connection, boolean readOnly) {
+            this.connection = connection;
+            this.readOnly = readOnly;
+            this.participant = participant(this);
+        }
+    }
+
+    private TransactionManager() {
+    }
+
+    /**
+     * Runs the work in a read-write transaction and commits it.
+     *
+     * @param work the DAO operations
+     * @param <T>  the type of the result
+     * @return the result of the work
+     * @throws DaoException          if the transaction cannot be started, committed or rolled back
+     * @throws IllegalStateException if called inside a read-only transaction, or if the transaction
+     *                               was rolled back because an operation of a nested call failed
+     */
+    public static <T> T execute(Supplier<T> work) {
+        return execute(work, false);
+    }
+
+    /**
+     * Runs the work in a read-only transaction. All queries see the same snapshot of the data
+     * when the isolation level is repeatable read or higher, and the database rejects writes.
+     *
+     * @param work the queries
+     * @param <T>  the type of the result
+     * @return the result of the work
+     * @throws DaoException if the transaction cannot be started or ended
+     */
+    public static <T> T executeReadOnly(Supplier<T> work) {
+        return execute(work, true);
+    }
+
+    /**
+     * Marks the current transaction to be rolled back instead of committed when it ends.
+     *
+     * @throws IllegalStateException if no transaction is active
+     */
+    public static void setRollbackOnly() {
+        Transaction transaction = CURRENT.get();
+        if (transaction == null) {
+            throw new IllegalStateException("No transaction is active");
+        }
+        transaction.rollbackOnly = true;
+    }
+
+    /**
+     * Checks whether a transaction is active on the current thread.
+     *
+     * @return true if a transaction is active
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Runs a task when the current transaction has been committed or rolled back, for example
+     * to invalidate a cache only once other threads can see the change. Without a transaction
+     * the task runs immediately.
+     *
+     * @param task the task
+     */
+    public static void afterCompletion(Runnable task) {
+        Transaction transaction = CURRENT.get();
+        if (transaction == null) {
+            task.run();
+        } else {
+            transaction.afterCompletion.add(task);
+        }
+    }
+
+    /**
+     * Returns the connection of the current transaction, for {@link ConnectionManager}.
+     *
+     * @return the connection, or null if no transaction is active
+     */
+    static Connection currentConnection() {
+        Transaction transaction = CURRENT.get();
+        return transaction == null ? null : transaction.participant;
+    }
+
+    private static <T> T execute(Supplier<T> work, boolean readOnly) {
+        Transaction current = CURRENT.get();
+        if (current != null) {
+            return join(current, work, readOnly);
+        }
+        try (Connection connection = ConnectionManager.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(readOnly);
+            Transaction transaction = new Transaction(connection, readOnly);
+            CURRENT.set(transaction);
+            try {
+                T result = work.get();
+                end(transaction);
+                return result;
+            } catch (RuntimeException | Error e) {
+                rollback(transaction, e);
+                throw e;
+            } finally {
+                CURRENT.remove();
+                runAfterCompletion(transaction);
+            }
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private static <T> T join(Transaction transaction, Supplier<T> work, boolean readOnly) {
+        if (transaction.readOnly && !readOnly) {
+            throw new IllegalStateException("A read-write transaction cannot join a read-only one");
+        }
+        try {
+            return work.get();
+        } catch (RuntimeException | Error e) {
+            transaction.failed = true;
+            throw e;
+        }
+    }
+
+    private static void end(Transaction transaction) throws SQLException {
+        if (transaction.failed) {
+            transaction.connection.rollback();
+            throw new IllegalStateException("Transaction rolled back because a nested operation failed");
+        }
+        if (transaction.rollbackOnly) {
+            transaction.connection.rollback();
+        } else {
+            transaction.connection.commit();
+        }
+    }
+
+    private static void rollback(Transaction transaction, Throwable cause) {
+        try {
+            transaction.connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static void runAfterCompletion(Transaction transaction) {
+        for (Runnable task : transaction.afterCompletion) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "After-completion task failed", e);
+            }
+        }
+    }
+
+    /**
+     * Wraps the transaction's connection for the DAOs. Ending the transaction from inside it
+     * is not allowed, so close, commit and the mode setters are ignored, and a rollback marks
+     * the transaction as failed.
+     */
+    private static Connection participant(Transaction transaction) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close", "commit", "setAutoCommit", "setReadOnly":
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        transaction.failed = true;
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return transaction.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Transactional" + transaction.connection;
+                default:
+                    break;
+            }
+            return invoke(transaction.connection, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+-- Индекс по библиотеке книги
+-- Используется при выборке книг библиотеки (BooksDao.findAllByLibraryId)
+-- и при каскадном удалении книг вместе с библиотекой
+CREATE INDEX IF NOT EXISTS books_library_id_idx ON books (library_id);
+
+-- Покрывающий индекс для поиска читателей по книге
+-- Первичный ключ (reader_id, book_id) не помогает при поиске по book_id
+-- (BookLendingDao.findByBookId) и при каскадном удалении выдач вместе с книгой;
+-- reader_id включён в индекс, чтобы читать только индекс без обращения к таблице
+CREATE INDEX IF NOT EXISTS book_lending_book_id_reader_id_idx ON book_lending (book_id, reader_id);
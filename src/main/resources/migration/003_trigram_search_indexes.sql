@@ -0,0 +1,8 @@
+-- Расширение pg_trgm для поиска по подстроке
+-- Начиная с PostgreSQL 13 расширение доверенное и может быть установлено владельцем базы
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Триграммные индексы для поиска книг по названию и автору
+-- Ускоряют условия ILIKE '%...%' и оператор схожести %
+CREATE INDEX IF NOT EXISTS books_title_trgm_idx ON books USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS books_author_trgm_idx ON books USING gin (author gin_trgm_ops);
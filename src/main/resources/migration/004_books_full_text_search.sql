@@ -0,0 +1,12 @@
+-- Поисковый вектор книги для полнотекстового поиска
+-- Вычисляется базой из названия (вес A) и автора (вес B), поэтому совпадение
+-- в названии ранжируется выше; словарь simple не зависит от языка текста
+ALTER TABLE books
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (
+            setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+            setweight(to_tsvector('simple', coalesce(author, '')), 'B')
+        ) STORED;
+
+-- GIN-индекс для поиска по вектору (BooksDao.search)
+CREATE INDEX IF NOT EXISTS books_search_vector_idx ON books USING gin (search_vector);
@@ -22,6 +22,25 @@
 </head>
 <body>
 <h1>Books List</h1>
+<form action="${PageContext.request.contextPath}/books" method="get">
+  <input type="search" name="q" value="${fn:escapeXml(param.q)}" placeholder="Title or author" list="suggestions"
+         oninput="suggest(this.value)">
+  <datalist id="suggestions"></datalist>
+  <button type="submit">Search</button>
+</form>
+<script>
+  function suggest(prefix) {
+    if (prefix.trim().length < 2) {
+      return;
+    }
+    fetch('${PageContext.request.contextPath}/books/suggest?q=' + encodeURIComponent(prefix))
+      .then(response => response.json())
+      .then(suggestions => {
+        const list = document.getElementById('suggestions');
+        list.replaceChildren(...suggestions.map(text => Object.assign(document.createElement('option'), {value: text})));
+      });
+  }
+</script>
 <table>
   <tr>
     <th>Name</th>
@@ -36,6 +55,9 @@
     </tr>
   </c:forEach>
 </table>
+<c:if test="${not empty requestScope.nextCursor}">
+  <a href="${PageContext.request.contextPath}/books?cursor=${requestScope.nextCursor}&limit=${param.limit}">Next page</a>
+</c:if>
 <br>
 <table>
   <tr>
@@ -47,6 +47,9 @@
         </tr>
     </c:forEach>
 </table>
+<c:if test="${not empty requestScope.nextCursor}">
+    <a href="${PageContext.request.contextPath}/libraries?cursor=${requestScope.nextCursor}&limit=${param.limit}">Next page</a>
+</c:if>
 
 <h2>Add New Library</h2>
     <form action="libraries" method="post">
@@ -63,6 +63,9 @@
             <input type="hidden" name="id" value="${requestScope.reader.id()}"/>
             <input type="submit" value="Add"/>
         </form>
+        <c:if test="${not empty requestScope.booksNotNextCursor}">
+            <a href="${PageContext.request.contextPath}/readers?id=${requestScope.reader.id()}&booksCursor=${requestScope.booksNotNextCursor}">More books</a>
+        </c:if>
     </c:when>
     <c:otherwise>
         You already added all books.
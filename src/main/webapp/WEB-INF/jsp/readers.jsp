@@ -47,6 +47,9 @@
         </tr>
     </c:forEach>
 </table>
+<c:if test="${not empty requestScope.nextCursor}">
+    <a href="${PageContext.request.contextPath}/readers?cursor=${requestScope.nextCursor}&limit=${param.limit}">Next page</a>
+</c:if>
 
 <h2>Create a New Reader</h2>
 <form action="readers" method="post">
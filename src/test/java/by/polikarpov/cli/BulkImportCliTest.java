@@ -0,0 +1,44 @@
+package by.polikarpov.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImportCliTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        return BulkImportCli.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void missingArgumentsPrintUsage() {
+        assertEquals(2, run("books"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("Usage:"));
+    }
+
+    @Test
+    void unknownTableIsRejected() {
+        assertEquals(2, run("authors", "authors.csv"));
+    }
+
+    @Test
+    void unknownOptionIsRejected() {
+        assertEquals(2, run("books", "books.csv", "--delimiter=;"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("--delimiter=;"));
+    }
+
+    @Test
+    void missingFileFails() {
+        assertEquals(1, run("books", "does-not-exist.csv", "--format=tsv"));
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+    }
+}
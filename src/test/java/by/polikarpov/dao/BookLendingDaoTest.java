@@ -6,19 +6,27 @@ import by.polikarpov.entity.Library;
 import by.polikarpov.entity.Readers;
 import by.polikarpov.exception.DaoException;
 import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.QueryCounter;
+import by.polikarpov.util.StatementMonitor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -56,9 +64,7 @@ class BookLendingDaoTest {
         Books book2 = new Books("Title 2", "Author 2", library);
         book2.setId(2L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<BooksDao> booksDaoMock = mockStatic(BooksDao.class);
-             MockedStatic<ReadersDao> readerDaoMock = mockStatic(ReadersDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
@@ -68,29 +74,31 @@ class BookLendingDaoTest {
                     .thenReturn(true)
                     .thenReturn(false);
             when(mockResultSet.getLong("reader_id")).thenReturn(1L, 2L);
+            when(mockResultSet.getString("readers_name")).thenReturn("Reader 1", "Reader 2");
             when(mockResultSet.getLong("book_id")).thenReturn(1L, 2L);
-
-            BooksDao mockBooksDao = mock(BooksDao.class);
-            booksDaoMock.when(BooksDao::getInstance).thenReturn(mockBooksDao);
-            when(mockBooksDao.findById(book1.getId())).thenReturn(Optional.of(book1));
-            when(mockBooksDao.findById(book2.getId())).thenReturn(Optional.of(book2));
-
-            ReadersDao mockReadersDao = mock(ReadersDao.class);
-            readerDaoMock.when(ReadersDao::getInstance).thenReturn(mockReadersDao);
-            when(mockReadersDao.findById(reader1.getId())).thenReturn(Optional.of(reader1));
-            when(mockReadersDao.findById(reader2.getId())).thenReturn(Optional.of(reader2));
+            when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2");
+            when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
 
             List<BookLending> bookLendings = bookLendingDao.findAll();
 
             assertNotNull(bookLendings);
             assertEquals(2, bookLendings.size());
+            assertEquals(book1, bookLendings.get(0).getBook());
             assertEquals(book1.getId(), bookLendings.get(0).getBook().getId());
+            assertEquals(reader1, bookLendings.get(0).getReader());
             assertEquals(reader1.getId(), bookLendings.get(0).getReader().getId());
+            assertEquals(book2, bookLendings.get(1).getBook());
             assertEquals(book2.getId(), bookLendings.get(1).getBook().getId());
+            assertEquals(reader2, bookLendings.get(1).getReader());
             assertEquals(reader2.getId(), bookLendings.get(1).getReader().getId());
+            assertSame(bookLendings.get(0).getBook().getLibrary(), bookLendings.get(1).getBook().getLibrary());
 
-            verify(mockConnection).prepareStatement(anyString());
-            verify(mockStatement).executeQuery();
+            // Весь результат должен загружаться одним запросом на одном соединении
+            connectionManagerMock.verify(ConnectionManager::getConnection, times(1));
+            verify(mockConnection, times(1)).prepareStatement(anyString());
+            verify(mockStatement, times(1)).executeQuery();
         } catch (SQLException e) {
             fail("SQLException occurred: " + e.getMessage());
         }
@@ -112,6 +120,72 @@ class BookLendingDaoTest {
         }
     }
 
+    @Test
+    void testStreamAll() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, true, false);
+            when(mockResultSet.getLong("reader_id")).thenReturn(1L, 1L, 1L, 1L, 2L, 2L);
+            when(mockResultSet.getString("readers_name")).thenReturn("Reader 1", "Reader 2");
+            when(mockResultSet.getLong("book_id")).thenReturn(1L, 2L, 1L);
+            when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2", "Title 1");
+            when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2", "Author 1");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
+
+            List<BookLending> bookLendings;
+            try (Stream<BookLending> stream = bookLendingDao.streamAll()) {
+                bookLendings = stream.toList();
+            }
+
+            assertEquals(3, bookLendings.size());
+            assertSame(bookLendings.get(0).getReader(), bookLendings.get(1).getReader());
+            assertEquals(2L, bookLendings.get(2).getReader().getId());
+            assertEquals("Reader 2", bookLendings.get(2).getReader().getReadersName());
+            assertEquals("Title 1", bookLendings.get(2).getBook().getTitle());
+
+            verify(mockConnection).setAutoCommit(false);
+            verify(mockStatement).setFetchSize(anyInt());
+            verify(mockResultSet).close();
+            verify(mockStatement).close();
+            verify(mockConnection).close();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testFindPage() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getLong("reader_id")).thenReturn(3L, 3L);
+            when(mockResultSet.getString("readers_name")).thenReturn("Reader 3");
+            when(mockResultSet.getLong("book_id")).thenReturn(1L, 2L);
+            when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2");
+            when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
+
+            List<BookLending> bookLendings = bookLendingDao.findPage(2L, 1);
+
+            assertEquals(2, bookLendings.size());
+            assertSame(bookLendings.get(0).getReader(), bookLendings.get(1).getReader());
+            assertEquals(1L, bookLendings.get(0).getBook().getId());
+            assertEquals(2L, bookLendings.get(1).getBook().getId());
+
+            verify(mockStatement).setLong(1, 2L);
+            verify(mockStatement).setInt(2, 1);
+            verify(mockStatement, times(1)).executeQuery();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
     @Test
     void testFindByReaderId() {
         Library library = new Library("Main Library");
@@ -123,18 +197,16 @@ class BookLendingDaoTest {
         Books book2 = new Books("Title 2", "Author 2", library);
         book2.setId(2L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<BooksDao> booksDaoMock = mockStatic(BooksDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
             when(mockResultSet.next()).thenReturn(true, true, false);
             when(mockResultSet.getLong("book_id")).thenReturn(1L, 2L);
-
-            BooksDao mockBooksDao = mock(BooksDao.class);
-            booksDaoMock.when(BooksDao::getInstance).thenReturn(mockBooksDao);
-            when(mockBooksDao.findById(book1.getId())).thenReturn(Optional.of(book1));
-            when(mockBooksDao.findById(book2.getId())).thenReturn(Optional.of(book2));
+            when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2");
+            when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
 
             List<Books> books = bookLendingDao.findByReaderId(reader.getId());
 
@@ -143,8 +215,10 @@ class BookLendingDaoTest {
             assertEquals(book1.getTitle(), books.get(0).getTitle());
             assertEquals(book2.getId(), books.get(1).getId());
             assertEquals(book2.getTitle(), books.get(1).getTitle());
+            assertEquals(library, books.get(0).getLibrary());
 
-            verify(mockConnection).prepareStatement(anyString());
+            connectionManagerMock.verify(ConnectionManager::getConnection, times(1));
+            verify(mockConnection, times(1)).prepareStatement(anyString());
             verify(mockStatement).setLong(1, reader.getId());
             verify(mockStatement).executeQuery();
 
@@ -157,36 +231,35 @@ class BookLendingDaoTest {
     void testFindByNotReaderId() {
         Library library = new Library("Main Library");
         library.setId(1L);
-        Readers reader = new Readers("Reader 1");
-        reader.setId(1L);
         Books book1 = new Books("Title 1", "Author 1", library);
         book1.setId(1L);
         Books book2 = new Books("Title 2", "Author 2", library);
         book2.setId(2L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<BooksDao> booksDaoMock = mockStatic(BooksDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
             when(mockResultSet.next()).thenReturn(true, true, false);
-            when(mockResultSet.getLong("id")).thenReturn(1L, 2L);
-
-            BooksDao mockBooksDao = mock(BooksDao.class);
-            booksDaoMock.when(BooksDao::getInstance).thenReturn(mockBooksDao);
-            when(mockBooksDao.findById(book1.getId())).thenReturn(Optional.of(book1));
-            when(mockBooksDao.findById(book2.getId())).thenReturn(Optional.of(book2));
+            when(mockResultSet.getLong("book_id")).thenReturn(1L, 2L);
+            when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2");
+            when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
 
-            List<Books> books = bookLendingDao.findByNotReaderId(2L);
+            List<Books> books = bookLendingDao.findByNotReaderId(2L, null, 10);
 
-            assertFalse(books.isEmpty());
+            assertEquals(2, books.size());
+            assertEquals(book1, books.get(0));
             assertEquals(book1.getId(), books.get(0).getId());
-            assertEquals(book1.getTitle(), books.get(0).getTitle());
+            assertEquals(book2, books.get(1));
             assertEquals(book2.getId(), books.get(1).getId());
-            assertEquals(book2.getTitle(), books.get(1).getTitle());
 
-            verify(mockConnection).prepareStatement(anyString());
-            verify(mockStatement).setLong(1, 2L);
+            connectionManagerMock.verify(ConnectionManager::getConnection, times(1));
+            verify(mockConnection, times(1)).prepareStatement(anyString());
+            verify(mockStatement).setLong(1, 0L);
+            verify(mockStatement).setLong(2, 2L);
+            verify(mockStatement).setInt(3, 10);
             verify(mockStatement).executeQuery();
 
         } catch (SQLException e) {
@@ -194,6 +267,25 @@ class BookLendingDaoTest {
         }
     }
 
+    @Test
+    void testFindByNotReaderIdAfterCursor() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+
+            List<Books> books = bookLendingDao.findByNotReaderId(2L, 5L, 10);
+
+            assertTrue(books.isEmpty());
+            verify(mockStatement).setLong(1, 5L);
+            verify(mockStatement).setLong(2, 2L);
+            verify(mockStatement).setInt(3, 10);
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
     @Test
     void testFindByReaderIdFails() throws SQLException {
         long readerId = 1L;
@@ -221,18 +313,13 @@ class BookLendingDaoTest {
         Books book = new Books("Title 2", "Author 2", library);
         book.setId(1L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<ReadersDao> readerDaoMock = mockStatic(ReadersDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
             when(mockResultSet.next()).thenReturn(true, true, false);
             when(mockResultSet.getLong("reader_id")).thenReturn(1L, 2L);
-
-            ReadersDao mockReadersDao = mock(ReadersDao.class);
-            readerDaoMock.when(ReadersDao::getInstance).thenReturn(mockReadersDao);
-            when(mockReadersDao.findById(reader1.getId())).thenReturn(Optional.of(reader1));
-            when(mockReadersDao.findById(reader2.getId())).thenReturn(Optional.of(reader2));
+            when(mockResultSet.getString("readers_name")).thenReturn("Reader 1", "Reader 2");
 
             List<Readers> readers = bookLendingDao.findByBookId(book.getId());
 
@@ -242,7 +329,8 @@ class BookLendingDaoTest {
             assertEquals(reader2.getId(), readers.get(1).getId());
             assertEquals(reader2.getReadersName(), readers.get(1).getReadersName());
 
-            verify(mockConnection).prepareStatement(anyString());
+            connectionManagerMock.verify(ConnectionManager::getConnection, times(1));
+            verify(mockConnection, times(1)).prepareStatement(anyString());
             verify(mockStatement).setLong(1, book.getId());
             verify(mockStatement).executeQuery();
 
@@ -370,4 +458,155 @@ class BookLendingDaoTest {
             verify(mockConnection).prepareStatement(anyString());
         }
     }
+
+    @Test
+    void testExistsByReaderIdAndBookId() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getBoolean(1)).thenReturn(true, false);
+
+            assertTrue(bookLendingDao.existsByReaderId(1L));
+            assertFalse(bookLendingDao.existsByBookId(2L));
+
+            verify(mockConnection).prepareStatement(contains("WHERE reader_id = ?"));
+            verify(mockConnection).prepareStatement(contains("WHERE book_id = ?"));
+            verify(mockStatement).setLong(1, 1L);
+            verify(mockStatement).setLong(1, 2L);
+        }
+    }
+
+    @Test
+    void testDeleteLendingOutcomes() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getBoolean("deleted")).thenReturn(true, false, false, false);
+            when(mockResultSet.getBoolean("reader_exists")).thenReturn(false, true, true);
+            when(mockResultSet.getBoolean("book_exists")).thenReturn(false, true);
+
+            assertEquals(BookLendingDao.DeleteOutcome.DELETED, bookLendingDao.deleteLending(1L, 2L));
+            assertEquals(BookLendingDao.DeleteOutcome.READER_MISSING, bookLendingDao.deleteLending(1L, 2L));
+            assertEquals(BookLendingDao.DeleteOutcome.BOOK_MISSING, bookLendingDao.deleteLending(1L, 2L));
+            assertEquals(BookLendingDao.DeleteOutcome.NOT_LENT, bookLendingDao.deleteLending(1L, 2L));
+
+            verify(mockConnection, times(4)).prepareStatement(contains("DELETE FROM book_lending"));
+            verify(mockStatement, times(4)).executeQuery();
+            verify(mockStatement, times(4)).setLong(3, 1L);
+            verify(mockStatement, times(4)).setLong(4, 2L);
+        }
+    }
+
+    @Test
+    void testSaveAll() throws SQLException {
+        Readers reader = new Readers("Reader 1");
+        reader.setId(1L);
+        Books book1 = new Books("Title 1", "Author 1", null);
+        book1.setId(10L);
+        Books book2 = new Books("Title 2", "Author 2", null);
+        book2.setId(11L);
+        Array readerIds = mock(Array.class);
+        Array bookIds = mock(Array.class);
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockConnection.createArrayOf("bigint", new Object[]{1L, 1L})).thenReturn(readerIds);
+            when(mockConnection.createArrayOf("bigint", new Object[]{10L, 11L})).thenReturn(bookIds);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getLong("reader_id")).thenReturn(1L, 1L);
+            when(mockResultSet.getLong("book_id")).thenReturn(10L, 11L);
+            when(mockResultSet.getBoolean("reader_exists")).thenReturn(true, true);
+            when(mockResultSet.getBoolean("book_exists")).thenReturn(true, true);
+            // book 10 is already lent to the reader
+            when(mockResultSet.getBoolean("inserted")).thenReturn(false, true);
+
+            BookLending existing = new BookLending(reader, book1);
+            BookLending lent = new BookLending(reader, book2);
+            List<BookLending> saved = bookLendingDao.saveAll(List.of(existing, lent));
+
+            assertEquals(1, saved.size());
+            assertSame(lent, saved.get(0));
+            verify(mockConnection).prepareStatement(contains("ON CONFLICT DO NOTHING"));
+            verify(mockStatement).setArray(1, readerIds);
+            verify(mockStatement).setArray(2, bookIds);
+            verify(mockStatement).executeQuery();
+        }
+    }
+
+    @Test
+    void testSaveAllWithMissingBook() throws SQLException {
+        Readers reader = new Readers("Reader 1");
+        reader.setId(1L);
+        Books book = new Books("Title 1", "Author 1", null);
+        book.setId(99L);
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getLong("reader_id")).thenReturn(1L);
+            when(mockResultSet.getLong("book_id")).thenReturn(99L);
+            when(mockResultSet.getBoolean("inserted")).thenReturn(false);
+            when(mockResultSet.getBoolean("reader_exists")).thenReturn(true);
+            when(mockResultSet.getBoolean("book_exists")).thenReturn(false);
+
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> bookLendingDao.saveAll(List.of(new BookLending(reader, book))));
+
+            assertEquals("Books [99] do not exist", exception.getMessage());
+        }
+    }
+
+    @Test
+    void testQueryBudgets() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection)
+                    .thenAnswer(invocation -> StatementMonitor.wrap(mockConnection));
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            // three rows per query, each with its own reader, book and library
+            when(mockResultSet.next()).thenReturn(true, true, true, false, true, true, true, false, true, true, true, false);
+            when(mockResultSet.getLong(anyString())).thenReturn(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+
+            assertEquals(3, QueryCounter.withBudget(1, bookLendingDao::findAll).size());
+            assertEquals(3, QueryCounter.withBudget(1, () -> bookLendingDao.findByReaderId(1L)).size());
+            assertEquals(3, QueryCounter.withBudget(1, () -> bookLendingDao.findByBookId(1L)).size());
+        }
+    }
+
+    @Test
+    void testExportAll() throws SQLException, IOException {
+        PGConnection mockPgConnection = mock(PGConnection.class);
+        CopyManager mockCopyManager = mock(CopyManager.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.unwrap(PGConnection.class)).thenReturn(mockPgConnection);
+            when(mockPgConnection.getCopyAPI()).thenReturn(mockCopyManager);
+            when(mockCopyManager.copyOut(contains("TO STDOUT (FORMAT csv, HEADER true)"), eq(out))).thenReturn(3L);
+
+            assertEquals(3L, bookLendingDao.exportAll(out));
+            verify(mockConnection).close();
+        }
+    }
+
+    @Test
+    void testExportAllFails() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.unwrap(PGConnection.class)).thenThrow(new SQLException("Database error"));
+
+            DaoException daoException = assertThrows(DaoException.class,
+                    () -> bookLendingDao.exportAll(new ByteArrayOutputStream()));
+            assertEquals("Database error", daoException.getCause().getMessage());
+        }
+    }
 }
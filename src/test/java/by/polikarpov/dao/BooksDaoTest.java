@@ -4,6 +4,9 @@ import by.polikarpov.entity.Books;
 import by.polikarpov.entity.Library;
 import by.polikarpov.exception.DaoException;
 import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.IdentityMap;
+import by.polikarpov.util.QueryCounter;
+import by.polikarpov.util.StatementMonitor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,9 +20,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -113,8 +119,7 @@ class BooksDaoTest {
         Books book2 = new Books("Title 2", "Author 2", library);
         book2.setId(2L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<LibraryDao> libraryDaoMock = mockStatic(LibraryDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
@@ -129,10 +134,7 @@ class BooksDaoTest {
             when(mockResultSet.getString("author"))
                     .thenReturn("Author 1", "Author 2");
             when(mockResultSet.getLong("library_id")).thenReturn(1L);
-
-            LibraryDao mockLibraryDao = mock(LibraryDao.class);
-            libraryDaoMock.when(LibraryDao::getInstance).thenReturn(mockLibraryDao);
-            when(mockLibraryDao.findById(library.getId())).thenReturn(Optional.of(library));
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
 
             List<Books> books = booksDao.findAll();
 
@@ -146,9 +148,11 @@ class BooksDaoTest {
             assertEquals(book2.getTitle(), books.get(1).getTitle());
             assertEquals(book2.getAuthor(), books.get(1).getAuthor());
             assertEquals(library, books.get(1).getLibrary());
+            assertSame(books.get(0).getLibrary(), books.get(1).getLibrary());
 
             verify(mockConnection).prepareStatement(anyString());
             verify(mockStatement).executeQuery();
+            verify(mockResultSet, times(1)).getString("library_name");
         } catch (SQLException e) {
             fail("SQLException occurred: " + e.getMessage());
         }
@@ -170,6 +174,83 @@ class BooksDaoTest {
         }
     }
 
+    @Test
+    void testStreamAll() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                    .thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getLong("id")).thenReturn(1L, 2L);
+            when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2");
+            when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
+
+            List<Books> books;
+            try (Stream<Books> stream = booksDao.streamAll()) {
+                verify(mockConnection).setAutoCommit(false);
+                verify(mockStatement).setFetchSize(anyInt());
+                verify(mockResultSet, never()).next();
+                books = stream.toList();
+                verify(mockConnection, never()).close();
+            }
+
+            assertEquals(2, books.size());
+            assertEquals("Title 2", books.get(1).getTitle());
+            assertSame(books.get(0).getLibrary(), books.get(1).getLibrary());
+
+            var order = inOrder(mockResultSet, mockStatement, mockConnection);
+            order.verify(mockResultSet).close();
+            order.verify(mockStatement).close();
+            order.verify(mockConnection).close();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testStreamAllReleasesConnectionWhenQueryFails() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenThrow(new SQLException("Database error"));
+
+            assertThrows(DaoException.class, () -> booksDao.streamAll());
+
+            verify(mockStatement).close();
+            verify(mockConnection).close();
+        }
+    }
+
+    @Test
+    void testFindPage() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getLong("id")).thenReturn(6L);
+            when(mockResultSet.getString("title")).thenReturn("Title 6");
+            when(mockResultSet.getString("author")).thenReturn("Author 6");
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
+
+            List<Books> books = booksDao.findPage(5L, 1);
+
+            assertEquals(1, books.size());
+            assertEquals(6L, books.get(0).getId());
+            assertEquals("Main Library", books.get(0).getLibrary().getLibraryName());
+
+            verify(mockStatement).setLong(1, 5L);
+            verify(mockStatement).setInt(2, 1);
+            verify(mockStatement).executeQuery();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
     @Test
     void testFindById() {
         Library library = new Library("Main Library");
@@ -177,8 +258,7 @@ class BooksDaoTest {
         Books expectedBook = new Books("Title 1", "Author 1", library);
         expectedBook.setId(1L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<LibraryDao> libraryDaoMock = mockStatic(LibraryDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
@@ -187,10 +267,7 @@ class BooksDaoTest {
             when(mockResultSet.getString("title")).thenReturn("Title 1");
             when(mockResultSet.getString("author")).thenReturn("Author 1");
             when(mockResultSet.getLong("library_id")).thenReturn(1L);
-
-            LibraryDao mockLibraryDao = mock(LibraryDao.class);
-            libraryDaoMock.when(LibraryDao::getInstance).thenReturn(mockLibraryDao);
-            when(mockLibraryDao.findById(library.getId())).thenReturn(Optional.of(library));
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
 
             Optional<Books> book = booksDao.findById(expectedBook.getId());
 
@@ -209,6 +286,25 @@ class BooksDaoTest {
         }
     }
 
+    @Test
+    void testFindByIdLoadsOncePerIdentityMap() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
+             IdentityMap.Binding ignored = IdentityMap.bind(new IdentityMap())) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getLong("id")).thenReturn(1L);
+            when(mockResultSet.getLong("library_id")).thenReturn(1L);
+
+            Books first = booksDao.findById(1L).orElseThrow();
+            Books second = booksDao.findById(1L).orElseThrow();
+
+            assertSame(first, second);
+            verify(mockStatement, times(1)).executeQuery();
+        }
+    }
+
     @Test
     void testFindByLibraryId() {
         Library library = new Library("Main Library");
@@ -218,8 +314,7 @@ class BooksDaoTest {
         Books expectedBook2 = new Books("Title 2", "Author 2", library);
         expectedBook2.setId(2L);
 
-        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class);
-             MockedStatic<LibraryDao> libraryDaoMock = mockStatic(LibraryDao.class)) {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
             connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
             when(mockStatement.executeQuery()).thenReturn(mockResultSet);
@@ -228,10 +323,7 @@ class BooksDaoTest {
             when(mockResultSet.getString("title")).thenReturn("Title 1", "Title 2");
             when(mockResultSet.getString("author")).thenReturn("Author 1", "Author 2");
             when(mockResultSet.getLong("library_id")).thenReturn(1L, 1L);
-
-            LibraryDao mockLibraryDao = mock(LibraryDao.class);
-            libraryDaoMock.when(LibraryDao::getInstance).thenReturn(mockLibraryDao);
-            when(mockLibraryDao.findById(library.getId())).thenReturn(Optional.of(library));
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
 
             List<Books> book = booksDao.findAllByLibraryId(library.getId());
 
@@ -367,4 +459,98 @@ class BooksDaoTest {
             verify(mockConnection).prepareStatement(anyString());
         }
     }
+
+    @Test
+    void testSaveAll() throws SQLException {
+        Library library = new Library("Library 1");
+        library.setId(7L);
+        List<Books> books = List.of(new Books("Title 1", "Author 1", library), new Books("Title 2", "Author 2", library));
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), any(String[].class))).thenReturn(mockStatement);
+            when(mockStatement.getGeneratedKeys()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getLong("id")).thenReturn(10L, 11L);
+
+            List<Books> saved = booksDao.saveAll(books);
+
+            assertEquals(List.of(10L, 11L), saved.stream().map(Books::getId).toList());
+            verify(mockStatement).setString(1, "Title 1");
+            verify(mockStatement).setString(2, "Author 2");
+            verify(mockStatement, times(2)).setLong(3, 7L);
+            verify(mockStatement, times(2)).addBatch();
+            verify(mockStatement).executeBatch();
+            verify(mockConnection).commit();
+        }
+    }
+
+    @Test
+    void testSearch() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getLong("id")).thenReturn(1L);
+            when(mockResultSet.getString("title")).thenReturn("War and Peace");
+            when(mockResultSet.getString("author")).thenReturn("Leo Tolstoy");
+            when(mockResultSet.getLong("library_id")).thenReturn(2L);
+            when(mockResultSet.getString("library_name")).thenReturn("Library");
+
+            List<Books> books = booksDao.search("war pea", 20);
+
+            assertEquals(1, books.size());
+            assertEquals("War and Peace", books.get(0).getTitle());
+            verify(mockStatement).setString(1, "war:* & pea:*");
+            verify(mockStatement).setInt(2, 20);
+        }
+    }
+
+    @Test
+    void testQueryBudgets() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection)
+                    .thenAnswer(invocation -> StatementMonitor.wrap(mockConnection));
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            // three rows per query, each book in a different library
+            when(mockResultSet.next()).thenReturn(true, true, true, false, true, true, true, false, true, false);
+            when(mockResultSet.getLong("library_id")).thenReturn(1L, 2L, 3L, 1L, 2L, 3L, 1L);
+
+            assertEquals(3, QueryCounter.withBudget(1, booksDao::findAll).size());
+            assertEquals(3, QueryCounter.withBudget(1, () -> booksDao.findAllByLibraryId(1L)).size());
+            assertTrue(QueryCounter.withBudget(1, () -> booksDao.findById(1L)).isPresent());
+        }
+    }
+
+    @Test
+    void testQueryBudgetExceeded() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection)
+                    .thenAnswer(invocation -> StatementMonitor.wrap(mockConnection));
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                    QueryCounter.withBudget(1, () -> List.of(booksDao.findById(1L), booksDao.findById(2L))));
+
+            assertTrue(exception.getMessage().contains("2 were executed"), exception.getMessage());
+        }
+    }
+
+    @Test
+    void testSearchWithoutWordsSkipsDatabase() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            assertTrue(booksDao.search(" !&| ", 20).isEmpty());
+            connectionManagerMock.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void testToPrefixQueryDropsTsQuerySyntax() {
+        assertEquals("война:* & мир:*", BooksDao.toPrefixQuery("Война & (мир)"));
+        assertEquals("o:* & brien:*", BooksDao.toPrefixQuery("O'Brien:*"));
+        assertEquals("", BooksDao.toPrefixQuery(null));
+    }
 }
@@ -0,0 +1,136 @@
+package by.polikarpov.dao;
+
+import by.polikarpov.util.ConnectionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportDaoTest {
+
+    private BulkImportDao bulkImportDao;
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private PGConnection mockPgConnection;
+
+    @Mock
+    private CopyManager mockCopyManager;
+
+    @Mock
+    private PreparedStatement mockStatement;
+
+    @Mock
+    private ResultSet mockResultSet;
+
+    @BeforeEach
+    void setUp() {
+        bulkImportDao = BulkImportDao.getInstance();
+    }
+
+    @Test
+    void testImportRows() throws SQLException, IOException {
+        Reader input = new StringReader("title,author,library_id\nTitle 1,Author 1,1\nTitle 2,Author 2,1\n");
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.unwrap(PGConnection.class)).thenReturn(mockPgConnection);
+            when(mockPgConnection.getCopyAPI()).thenReturn(mockCopyManager);
+            when(mockCopyManager.copyIn(anyString(), eq(input), anyInt())).thenReturn(2L);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getLong("missing")).thenReturn(0L);
+            when(mockStatement.executeLargeUpdate()).thenReturn(2L);
+
+            BulkImportDao.Result result = bulkImportDao.importRows(
+                    BulkImportDao.Target.BOOKS, input, BulkImportDao.Format.CSV, true);
+
+            assertEquals(2, result.rowsRead());
+            assertEquals(2, result.rowsInserted());
+            verify(mockCopyManager).copyIn(
+                    eq("COPY import_books (title, author, library_id) FROM STDIN (FORMAT csv, HEADER true)"),
+                    eq(input), anyInt());
+            verify(mockConnection).prepareStatement(startsWith("CREATE TEMPORARY TABLE import_books ON COMMIT DROP"));
+            verify(mockConnection).prepareStatement(contains("FROM library r WHERE r.id = s.library_id"));
+            verify(mockConnection).commit();
+            verify(mockConnection, never()).rollback();
+        }
+    }
+
+    @Test
+    void testImportRowsWithMissingForeignKey() throws SQLException, IOException {
+        Reader input = new StringReader("Title 1\tAuthor 1\t42\n");
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.unwrap(PGConnection.class)).thenReturn(mockPgConnection);
+            when(mockPgConnection.getCopyAPI()).thenReturn(mockCopyManager);
+            when(mockCopyManager.copyIn(anyString(), eq(input), anyInt())).thenReturn(1L);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getLong("missing")).thenReturn(1L);
+            when(mockResultSet.getObject("example")).thenReturn(42L);
+
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> bulkImportDao.importRows(BulkImportDao.Target.BOOKS, input, BulkImportDao.Format.TSV, false));
+
+            assertTrue(exception.getMessage().contains("42"));
+            verify(mockStatement, never()).executeLargeUpdate();
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+        }
+    }
+
+    @Test
+    void testImportRowsKeepsErrorWhenRollbackFails() throws SQLException, IOException {
+        Reader input = new StringReader("Title 1\tAuthor 1\t42\n");
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.unwrap(PGConnection.class)).thenReturn(mockPgConnection);
+            when(mockPgConnection.getCopyAPI()).thenReturn(mockCopyManager);
+            when(mockCopyManager.copyIn(anyString(), eq(input), anyInt())).thenReturn(1L);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getLong("missing")).thenReturn(1L);
+            when(mockResultSet.getObject("example")).thenReturn(42L);
+            doThrow(new SQLException("connection lost")).when(mockConnection).rollback();
+
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> bulkImportDao.importRows(BulkImportDao.Target.BOOKS, input, BulkImportDao.Format.TSV, false));
+
+            assertTrue(exception.getMessage().contains("42"));
+            assertEquals("connection lost", exception.getSuppressed()[0].getMessage());
+        }
+    }
+
+    @Test
+    void testImportRowsRejectsHeaderForTsv() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            assertThrows(IllegalArgumentException.class, () -> bulkImportDao.importRows(
+                    BulkImportDao.Target.READERS, new StringReader(""), BulkImportDao.Format.TSV, true));
+            connectionManagerMock.verifyNoInteractions();
+        }
+    }
+}
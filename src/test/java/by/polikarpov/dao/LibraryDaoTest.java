@@ -14,6 +14,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +38,7 @@ class LibraryDaoTest {
     @BeforeEach
     public void setUp() {
         libraryDao = LibraryDao.getInstance();
+        libraryDao.invalidateCache();
     }
 
     @Test
@@ -145,6 +147,47 @@ class LibraryDaoTest {
         }
     }
 
+    @Test
+    void testFindPage() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getLong("id")).thenReturn(3L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
+
+            List<Library> libraries = libraryDao.findPage(2L, 1);
+
+            assertEquals(1, libraries.size());
+            assertEquals(3L, libraries.get(0).getId());
+            assertEquals("Main Library", libraries.get(0).getLibraryName());
+
+            verify(mockStatement).setLong(1, 2L);
+            verify(mockStatement).setInt(2, 1);
+            verify(mockStatement).executeQuery();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testFindPageFromStart() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+
+            assertTrue(libraryDao.findPage(null, 10).isEmpty());
+
+            verify(mockStatement).setLong(1, 0L);
+            verify(mockStatement).setInt(2, 10);
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
     @Test
     void testFindById() {
         Library expectedLibrary = new Library("Main Library");
@@ -173,6 +216,77 @@ class LibraryDaoTest {
         }
     }
 
+    @Test
+    void testFindByIdIsCached() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getLong("id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library");
+            long hitsBefore = libraryDao.getCacheStats().hits();
+
+            Optional<Library> first = libraryDao.findById(1L);
+            first.get().setLibraryName("Changed by caller");
+            Optional<Library> second = libraryDao.findById(1L);
+
+            assertEquals("Main Library", second.get().getLibraryName());
+            assertNotSame(first.get(), second.get());
+            assertEquals(hitsBefore + 1, libraryDao.getCacheStats().hits());
+            connectionManagerMock.verify(ConnectionManager::getConnection, times(1));
+            verify(mockStatement, times(1)).executeQuery();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testUpdateInvalidatesCache() {
+        Library library = new Library("Renamed Library");
+        library.setId(1L);
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockStatement.executeUpdate()).thenReturn(1);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getLong("id")).thenReturn(1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library", "Renamed Library");
+
+            libraryDao.findById(1L);
+            libraryDao.update(library);
+
+            assertEquals("Renamed Library", libraryDao.findById(1L).get().getLibraryName());
+            verify(mockStatement, times(2)).executeQuery();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testFindAllIsCachedUntilSave() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockStatement.getGeneratedKeys()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false, true, true, false);
+            when(mockResultSet.getLong("id")).thenReturn(1L, 2L, 1L);
+            when(mockResultSet.getString("library_name")).thenReturn("Main Library", "Main Library");
+
+            assertEquals(1, libraryDao.findAll().size());
+            assertEquals(1, libraryDao.findAll().size());
+            libraryDao.save(new Library("New Library"));
+            List<Library> libraries = libraryDao.findAll();
+
+            assertEquals(1, libraries.size());
+            verify(mockStatement, times(2)).executeQuery();
+        }
+    }
+
     @Test
     void testFindByIdFails() throws SQLException {
         Long libraryId = 1L;
@@ -280,4 +394,23 @@ class LibraryDaoTest {
             verify(mockConnection).prepareStatement(anyString());
         }
     }
+
+    @Test
+    void testSaveAll() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), any(String[].class))).thenReturn(mockStatement);
+            when(mockStatement.getGeneratedKeys()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getLong("id")).thenReturn(3L);
+
+            List<Library> saved = libraryDao.saveAll(List.of(new Library("Library 3")));
+
+            assertEquals(1, saved.size());
+            assertEquals(3L, saved.get(0).getId());
+            verify(mockStatement).setString(1, "Library 3");
+            verify(mockStatement).executeBatch();
+            verify(mockConnection).commit();
+        }
+    }
 }
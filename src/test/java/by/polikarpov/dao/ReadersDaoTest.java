@@ -146,6 +146,30 @@ class ReadersDaoTest {
         }
     }
 
+    @Test
+    void testFindPage() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+            when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getLong("id")).thenReturn(3L, 4L);
+            when(mockResultSet.getString("readers_name")).thenReturn("Reader 3", "Reader 4");
+
+            List<Readers> readers = readersDao.findPage(2L, 2);
+
+            assertEquals(2, readers.size());
+            assertEquals(3L, readers.get(0).getId());
+            assertEquals("Reader 4", readers.get(1).getReadersName());
+
+            verify(mockStatement).setLong(1, 2L);
+            verify(mockStatement).setInt(2, 2);
+            verify(mockStatement).executeQuery();
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+
     @Test
     void testFindById() {
         Readers expectedReaders = new Readers("Readers 1");
@@ -281,4 +305,51 @@ class ReadersDaoTest {
             verify(mockConnection).prepareStatement(anyString());
         }
     }
+
+    @Test
+    void testSaveAll() throws SQLException {
+        List<Readers> readers = List.of(new Readers("Reader 1"), new Readers("Reader 2"));
+
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), any(String[].class))).thenReturn(mockStatement);
+            when(mockStatement.getGeneratedKeys()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getLong("id")).thenReturn(1L, 2L);
+
+            List<Readers> saved = readersDao.saveAll(readers);
+
+            assertEquals(List.of(1L, 2L), saved.stream().map(Readers::getId).toList());
+            verify(mockStatement).setString(1, "Reader 1");
+            verify(mockStatement).setString(1, "Reader 2");
+            verify(mockStatement, times(2)).addBatch();
+            verify(mockStatement).executeBatch();
+            verify(mockConnection).setAutoCommit(false);
+            verify(mockConnection).commit();
+        }
+    }
+
+    @Test
+    void testSaveAllRollsBackOnFailure() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), any(String[].class))).thenReturn(mockStatement);
+            when(mockStatement.executeBatch()).thenThrow(new SQLException("Database error"));
+
+            DaoException daoException = assertThrows(DaoException.class,
+                    () -> readersDao.saveAll(List.of(new Readers("Reader 1"))));
+
+            assertEquals("Database error", daoException.getCause().getMessage());
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+        }
+    }
+
+    @Test
+    void testSaveAllEmpty() {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            assertTrue(readersDao.saveAll(List.of()).isEmpty());
+            connectionManagerMock.verifyNoInteractions();
+        }
+    }
 }
@@ -3,6 +3,7 @@ package by.polikarpov.service;
 import by.polikarpov.dao.BookLendingDao;
 import by.polikarpov.dto.BookLendingDto;
 import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.BookLending;
 import by.polikarpov.entity.Books;
@@ -14,13 +15,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,6 +78,48 @@ class BookLendingServiceTest {
         verify(bookLendingDaoMock).findAll();
     }
 
+    @Test
+    void getPageKeepsWholeReaders() {
+        Library library = new Library("Library");
+        Readers reader1 = new Readers("Reader One");
+        reader1.setId(1L);
+        Readers reader2 = new Readers("Reader Two");
+        reader2.setId(2L);
+        Books book1 = new Books("Title 1", "Author", library);
+        book1.setId(1L);
+        Books book2 = new Books("Title 2", "Author", library);
+        book2.setId(2L);
+
+        when(bookLendingDaoMock.findPage(null, 2)).thenReturn(Arrays.asList(
+                new BookLending(reader1, book1),
+                new BookLending(reader1, book2),
+                new BookLending(reader2, book1)
+        ));
+
+        Page<Long, BookLendingDto> result = bookLendingService.getPage(null, 1);
+
+        assertEquals(2, result.items().size());
+        assertEquals("Reader One", result.items().get(0).readers().readerName());
+        assertEquals("Title 2", result.items().get(1).books().title());
+        assertEquals(1L, result.nextCursor());
+    }
+
+    @Test
+    void getLastPage() {
+        Library library = new Library("Library");
+        Readers reader = new Readers("Reader One");
+        reader.setId(1L);
+        Books book = new Books("Title 1", "Author", library);
+        book.setId(1L);
+
+        when(bookLendingDaoMock.findPage(null, 2)).thenReturn(List.of(new BookLending(reader, book)));
+
+        Page<Long, BookLendingDto> result = bookLendingService.getPage(null, 1);
+
+        assertEquals(1, result.items().size());
+        assertNull(result.nextCursor());
+    }
+
     @Test
     void getByReaderIdWhenExists() {
         // Подготовка данных
@@ -113,17 +163,38 @@ class BookLendingServiceTest {
         Books book2 = new Books("Title 2", "Author", library);
         book2.setId(1L);
 
-        when(bookLendingDaoMock.findByNotReaderId(1L)).thenReturn(Arrays.asList(book1, book2));
+        when(bookLendingDaoMock.findByNotReaderId(1L, null, 3)).thenReturn(Arrays.asList(book1, book2));
 
         // Вызов метода
-        List<BooksDto> result = bookLendingService.getByNotReaderId(1L);
+        Page<Long, BooksDto> result = bookLendingService.getByNotReaderId(1L, null, 2);
 
         // Проверка результата
-        assertEquals(2, result.size());
-        assertEquals("Title 1", result.get(0).title());
-        assertEquals("Title 2", result.get(1).title());
+        assertEquals(2, result.items().size());
+        assertEquals("Title 1", result.items().get(0).title());
+        assertEquals("Title 2", result.items().get(1).title());
+        assertNull(result.nextCursor());
+
+        verify(bookLendingDaoMock).findByNotReaderId(1L, null, 3);
+    }
+
+    @Test
+    void getByNotReaderIdWithNextPage() {
+        // Подготовка данных
+        Library library = new Library("Library");
+        Books book1 = new Books("Title 1", "Author", library);
+        book1.setId(1L);
+        Books book2 = new Books("Title 2", "Author", library);
+        book2.setId(2L);
+
+        when(bookLendingDaoMock.findByNotReaderId(1L, null, 2)).thenReturn(Arrays.asList(book1, book2));
+
+        // Вызов метода
+        Page<Long, BooksDto> result = bookLendingService.getByNotReaderId(1L, null, 1);
 
-        verify(bookLendingDaoMock).findByNotReaderId(1L);
+        // Проверка результата
+        assertEquals(1, result.items().size());
+        assertEquals("Title 1", result.items().get(0).title());
+        assertEquals(1L, result.nextCursor());
     }
 
     @Test
@@ -184,34 +255,83 @@ class BookLendingServiceTest {
 
     @Test
     void deleteWhenExists() {
-        Library library = new Library("Library");
         Long readerId = 1L;
-        Readers reader = new Readers("Reader 1");
         Long bookId = 1L;
-        Books book = new Books("New Title", "author", library);
-
-        when(bookLendingDaoMock.findByReaderId(readerId)).thenReturn(List.of(book));
-        when(bookLendingDaoMock.findByBookId(bookId)).thenReturn(List.of(reader));
-        when(bookLendingDaoMock.delete(readerId, bookId)).thenReturn(true);
+        when(bookLendingDaoMock.deleteLending(readerId, bookId)).thenReturn(BookLendingDao.DeleteOutcome.DELETED);
 
         // Вызов метода
-        bookLendingService.delete(readerId, bookId);
+        assertTrue(bookLendingService.delete(readerId, bookId));
 
-        // Проверка, что readerDao.delete был вызван
-        verify(bookLendingDaoMock).delete(readerId, bookId);
-        verify(bookLendingDaoMock).findByReaderId(readerId);
-        verify(bookLendingDaoMock).findByBookId(bookId);
+        // Проверка, что проверка и удаление выполнены одним запросом
+        verify(bookLendingDaoMock).deleteLending(readerId, bookId);
+        verify(bookLendingDaoMock, never()).findByReaderId(any());
+        verify(bookLendingDaoMock, never()).findByBookId(any());
+    }
+
+    @Test
+    void deleteWhenNotLent() {
+        Long readerId = 1L;
+        Long bookId = 2L;
+        when(bookLendingDaoMock.deleteLending(readerId, bookId)).thenReturn(BookLendingDao.DeleteOutcome.NOT_LENT);
+
+        assertFalse(bookLendingService.delete(readerId, bookId));
     }
 
     @Test
     void deleteWhenReaderDoesNotExist() {
         Long readerId = 1L;
         Long bookId = 1L;
-        when(bookLendingDaoMock.findByReaderId(readerId)).thenReturn(new ArrayList<>());
+        when(bookLendingDaoMock.deleteLending(readerId, bookId)).thenReturn(BookLendingDao.DeleteOutcome.READER_MISSING);
 
         // Проверка вызова IllegalArgumentException
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookLendingService.delete(readerId, bookId));
 
         assertEquals("Reader " + readerId + " does not exist", exception.getMessage());
     }
+
+    @Test
+    void deleteWhenBookDoesNotExist() {
+        Long readerId = 1L;
+        Long bookId = 2L;
+        when(bookLendingDaoMock.deleteLending(readerId, bookId)).thenReturn(BookLendingDao.DeleteOutcome.BOOK_MISSING);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookLendingService.delete(readerId, bookId));
+
+        assertEquals("Book " + bookId + " does not exist", exception.getMessage());
+    }
+
+    @Test
+    void addAllLendings() {
+        ReadersDto reader = new ReadersDto(1L, "Reader One");
+        List<BookLendingDto> lendings = List.of(
+                new BookLendingDto(reader, new BooksDto(10L, "Title 1", "Author 1", null)),
+                new BookLendingDto(reader, new BooksDto(11L, "Title 2", "Author 2", null)));
+        // the first lending already exists and is skipped
+        when(bookLendingDaoMock.saveAll(anyList()))
+                .thenAnswer(invocation -> List.of(((List<BookLending>) invocation.getArgument(0)).get(1)));
+
+        List<BookLendingDto> result = bookLendingService.addAll(lendings);
+
+        assertEquals(List.of(lendings.get(1)), result);
+        verify(bookLendingDaoMock).saveAll(argThat(saved -> saved.size() == 2
+                && saved.stream().allMatch(lending -> lending.getReader().getId() == 1L)));
+    }
+
+    @Test
+    void lendAllReturnsTheLentBooks() {
+        when(bookLendingDaoMock.saveAll(anyList()))
+                .thenAnswer(invocation -> List.of(((List<BookLending>) invocation.getArgument(0)).get(1)));
+
+        assertEquals(List.of(11L), bookLendingService.lendAll(1L, List.of(10L, 11L)));
+        verify(bookLendingDaoMock).saveAll(argThat(saved -> saved.size() == 2
+                && saved.stream().allMatch(lending -> lending.getReader().getId() == 1L)));
+    }
+
+    @Test
+    void exportAllDelegatesToDao() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(bookLendingDaoMock.exportAll(out)).thenReturn(5L);
+
+        assertEquals(5L, bookLendingService.exportAll(out));
+    }
 }
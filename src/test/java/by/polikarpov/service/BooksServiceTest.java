@@ -2,20 +2,31 @@ package by.polikarpov.service;
 
 import by.polikarpov.dao.BooksDao;
 import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.entity.Books;
 import by.polikarpov.entity.Library;
+import by.polikarpov.util.TableVersions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -57,6 +68,24 @@ class BooksServiceTest {
         verify(booksDaoMock).findAll();
     }
 
+    @Test
+    void getPage() {
+        Library library = new Library("Library");
+        Books book1 = new Books("Title 1", "Author", library);
+        book1.setId(1L);
+        Books book2 = new Books("Title 2", "Author", library);
+        book2.setId(2L);
+
+        when(booksDaoMock.findPage(null, 3)).thenReturn(List.of(book1, book2));
+
+        Page<Long, BooksDto> result = booksService.getPage(null, 2);
+
+        verify(booksDaoMock).findPage(null, 3);
+        assertEquals(2, result.items().size());
+        assertEquals("Title 2", result.items().get(1).title());
+        assertNull(result.nextCursor());
+    }
+
     @Test
     void getByIdWhenExists() {
         // Подготовка данных
@@ -194,4 +223,117 @@ class BooksServiceTest {
 
         assertEquals("Books " + bookId + " does not exist", exception.getMessage());
     }
+
+    @Test
+    void addAllBooks() {
+        Library library = new Library("Library 1");
+        library.setId(1L);
+        when(booksDaoMock.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Books> books = invocation.getArgument(0);
+            for (int i = 0; i < books.size(); i++) {
+                books.get(i).setId(10L + i);
+            }
+            return books;
+        });
+
+        List<BooksDto> result = booksService.addAll(List.of(
+                new BooksDto(null, "Title 1", "Author 1", library),
+                new BooksDto(null, "Title 2", "Author 2", library)));
+
+        assertEquals(2, result.size());
+        assertEquals(10L, result.get(0).id());
+        assertEquals("Title 2", result.get(1).title());
+        assertEquals(11L, result.get(1).id());
+    }
+
+    @Test
+    void searchBooks() {
+        Library library = new Library("Library 1");
+        Books book = new Books("War and Peace", "Leo Tolstoy", library);
+        book.setId(1L);
+        when(booksDaoMock.search("war", 10)).thenReturn(List.of(book));
+
+        List<BooksDto> result = booksService.search("war", 10);
+
+        assertEquals(List.of(new BooksDto(1L, "War and Peace", "Leo Tolstoy", library)), result);
+    }
+
+    @Test
+    void suggestLoadsOnceAndFollowsWrites() {
+        Library library = new Library("Library 1");
+        Books book = new Books("War and Peace", "Leo Tolstoy", library);
+        book.setId(1L);
+        when(booksDaoMock.streamAll()).thenReturn(Stream.of(book));
+
+        assertEquals(List.of("Leo Tolstoy"), booksService.suggest("leo", 10));
+        assertEquals(List.of("War and Peace"), booksService.suggest("pea", 10));
+        verify(booksDaoMock, times(1)).streamAll();
+
+        when(booksDaoMock.save(any(Books.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        booksService.add(new BooksDto(null, "Leaves of Grass", "Walt Whitman", library));
+        assertEquals(List.of("Leaves of Grass", "Leo Tolstoy"), booksService.suggest("le", 10));
+
+        when(booksDaoMock.findById(1L)).thenReturn(Optional.of(book));
+        booksService.delete(1L);
+        assertEquals(List.of("Leaves of Grass"), booksService.suggest("le", 10));
+    }
+
+    @Test
+    void suggestReloadsAfterChangeAroundTheService() {
+        Library library = new Library("Library 1");
+        Books book = new Books("War and Peace", "Leo Tolstoy", library);
+        book.setId(1L);
+        when(booksDaoMock.streamAll()).thenReturn(Stream.of(book), Stream.empty());
+
+        assertEquals(List.of("Leo Tolstoy"), booksService.suggest("leo", 10));
+        // the library of the book was deleted and the book with it
+        TableVersions.changed(TableVersions.Table.LIBRARY, TableVersions.Table.BOOKS);
+
+        assertEquals(List.of(), booksService.suggest("leo", 10));
+        verify(booksDaoMock, times(2)).streamAll();
+    }
+
+    @Test
+    void suggestDuringReloadSeesTheWholeIndex() throws Exception {
+        Library library = new Library("Library 1");
+        Books book = new Books("War and Peace", "Leo Tolstoy", library);
+        book.setId(1L);
+        when(booksDaoMock.streamAll()).thenAnswer(invocation -> {
+            Thread.sleep(1);
+            return Stream.of(book);
+        });
+        booksService.suggest("leo", 10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                while (running.get()) {
+                    TableVersions.changed(TableVersions.Table.BOOKS);
+                    Thread.sleep(2);
+                }
+                return null;
+            });
+            List<Future<List<String>>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    for (int j = 0; j < 20_000; j++) {
+                        List<String> suggestions = booksService.suggest("leo", 10);
+                        if (!suggestions.equals(List.of("Leo Tolstoy"))) {
+                            return suggestions;
+                        }
+                    }
+                    return List.of("Leo Tolstoy");
+                }));
+            }
+            for (Future<List<String>> reader : readers) {
+                assertEquals(List.of("Leo Tolstoy"), reader.get(30, TimeUnit.SECONDS));
+            }
+            running.set(false);
+            writer.get(30, TimeUnit.SECONDS);
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package by.polikarpov.service;
+
+import by.polikarpov.dao.LibraryDao;
+import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.ReadersDto;
+import by.polikarpov.entity.Library;
+import by.polikarpov.util.BoundedCache;
+import by.polikarpov.util.ConnectionManager;
+import by.polikarpov.util.TableVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingServiceTest {
+
+    @Mock
+    private ReadersService readersServiceMock;
+
+    private CachingService<Long, ReadersDto> cachingService;
+
+    @BeforeEach
+    void setUp() {
+        cachingService = new CachingService<>("readers", readersServiceMock, ReadersDto::id,
+                new BoundedCache<>(10, 60_000, BoundedCache.Policy.TINY_LFU));
+    }
+
+    @Test
+    void getByIdIsCached() {
+        ReadersDto reader = new ReadersDto(1L, "Reader One");
+        when(readersServiceMock.getById(1L)).thenReturn(Optional.of(reader));
+
+        assertEquals(Optional.of(reader), cachingService.getById(1L));
+        assertEquals(Optional.of(reader), cachingService.getById(1L));
+
+        verify(readersServiceMock, times(1)).getById(1L);
+        assertEquals(1, cachingService.getStats().hits());
+        assertEquals(1, cachingService.getStats().misses());
+    }
+
+    @Test
+    void missingEntityIsNotCached() {
+        when(readersServiceMock.getById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(cachingService.getById(1L).isEmpty());
+        assertTrue(cachingService.getById(1L).isEmpty());
+
+        verify(readersServiceMock, times(2)).getById(1L);
+    }
+
+    @Test
+    void updateInvalidatesEntry() {
+        ReadersDto reader = new ReadersDto(1L, "Reader One");
+        ReadersDto renamed = new ReadersDto(1L, "Reader Renamed");
+        when(readersServiceMock.getById(1L)).thenReturn(Optional.of(reader), Optional.of(renamed));
+
+        cachingService.getById(1L);
+        cachingService.update(renamed);
+
+        assertEquals(Optional.of(renamed), cachingService.getById(1L));
+        verify(readersServiceMock).update(renamed);
+    }
+
+    @Test
+    void failedDeleteStillInvalidatesEntry() {
+        ReadersDto reader = new ReadersDto(1L, "Reader One");
+        when(readersServiceMock.getById(1L)).thenReturn(Optional.of(reader));
+        doThrow(new IllegalArgumentException("Readers 1 does not exist")).when(readersServiceMock).delete(1L);
+
+        cachingService.getById(1L);
+        assertThrows(IllegalArgumentException.class, () -> cachingService.delete(1L));
+        cachingService.getById(1L);
+
+        verify(readersServiceMock, times(2)).getById(1L);
+    }
+
+    @Test
+    void libraryDeleteDropsCachedBooks() throws SQLException {
+        BooksService booksServiceMock = mock(BooksService.class);
+        Library library = new Library("library");
+        library.setId(1L);
+        BooksDto book = new BooksDto(1L, "title", "author", library);
+        when(booksServiceMock.getById(1L)).thenReturn(Optional.of(book), Optional.empty());
+        CachingService<Long, BooksDto> booksCache = new CachingService<>("books", booksServiceMock, BooksDto::id,
+                new BoundedCache<>(10, 60_000), TableVersions.Table.BOOKS, TableVersions.Table.LIBRARY);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        assertEquals(Optional.of(book), booksCache.getById(1L));
+        assertEquals(Optional.of(book), booksCache.getById(1L));
+        try (MockedStatic<ConnectionManager> connectionManager = mockStatic(ConnectionManager.class)) {
+            connectionManager.when(ConnectionManager::getConnection).thenReturn(connection);
+            LibraryDao.getInstance().delete(1L);
+        }
+
+        assertTrue(booksCache.getById(1L).isEmpty());
+        verify(booksServiceMock, times(2)).getById(1L);
+    }
+
+    @Test
+    void listsArePassedThrough() {
+        cachingService.getAll();
+        cachingService.getPage(null, 10);
+        cachingService.add(new ReadersDto(null, "Reader"));
+
+        verify(readersServiceMock).getAll();
+        verify(readersServiceMock).getPage(null, 10);
+        verify(readersServiceMock).add(new ReadersDto(null, "Reader"));
+    }
+
+    @Test
+    void decorateSharesOneDecoratorPerService() {
+        Service<Long, ReadersDto> first = CachingService.decorate("readers", readersServiceMock, ReadersDto::id);
+        Service<Long, ReadersDto> second = CachingService.decorate("readers", readersServiceMock, ReadersDto::id);
+
+        assertInstanceOf(CachingService.class, first);
+        assertSame(first, second);
+        assertTrue(CachingService.getAllStats().containsKey("readers"));
+    }
+
+    @Test
+    void decorateReturnsDelegateWhenDisabled() {
+        assertSame(readersServiceMock, CachingService.decorate("libraries", readersServiceMock, ReadersDto::id));
+    }
+}
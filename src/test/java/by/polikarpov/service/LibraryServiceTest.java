@@ -2,6 +2,7 @@ package by.polikarpov.service;
 
 import by.polikarpov.dao.LibraryDao;
 import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.entity.Library;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +16,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 
 
@@ -50,6 +52,35 @@ class LibraryServiceTest {
         assertEquals(2, result.size());
     }
 
+    @Test
+    void getPage() {
+        Library library1 = new Library("Main Library");
+        library1.setId(1L);
+        Library library2 = new Library("University Library");
+        library2.setId(2L);
+
+        when(libraryDaoMock.findPage(null, 2)).thenReturn(List.of(library1, library2));
+
+        Page<Long, LibraryDto> result = libraryService.getPage(null, 1);
+
+        verify(libraryDaoMock).findPage(null, 2);
+        assertEquals(List.of(new LibraryDto(1L, "Main Library")), result.items());
+        assertEquals(1L, result.nextCursor());
+    }
+
+    @Test
+    void getLastPage() {
+        Library library = new Library("Main Library");
+        library.setId(3L);
+
+        when(libraryDaoMock.findPage(2L, 11)).thenReturn(List.of(library));
+
+        Page<Long, LibraryDto> result = libraryService.getPage(2L, 10);
+
+        assertEquals(1, result.items().size());
+        assertNull(result.nextCursor());
+    }
+
     @Test
     void getByIdReturnsLibraryWhenExists() {
         // Подготовка данных
@@ -174,4 +205,17 @@ class LibraryServiceTest {
 
         assertEquals("Library 1 does not exist", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void addAllLibraries() {
+        when(libraryDaoMock.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Library> libraries = invocation.getArgument(0);
+            libraries.get(0).setId(5L);
+            return libraries;
+        });
+
+        List<LibraryDto> result = libraryService.addAll(List.of(new LibraryDto(null, "Library 5")));
+
+        assertEquals(List.of(new LibraryDto(5L, "Library 5")), result);
+    }
+}
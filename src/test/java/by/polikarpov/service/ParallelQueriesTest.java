@@ -0,0 +1,83 @@
+package by.polikarpov.service;
+
+import by.polikarpov.exception.DaoException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelQueriesTest {
+
+    @Test
+    void forkedQueriesRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Supplier<Boolean> query = () -> {
+            bothStarted.countDown();
+            try {
+                return bothStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        try (ParallelQueries queries = new ParallelQueries()) {
+            Supplier<Boolean> first = queries.fork(query);
+            Supplier<Boolean> second = queries.fork(query);
+            queries.join();
+
+            assertTrue(first.get());
+            assertTrue(second.get());
+        }
+    }
+
+    @Test
+    void joinReturnsResultsOfEveryQuery() {
+        try (ParallelQueries queries = new ParallelQueries()) {
+            Supplier<List<String>> books = queries.fork(() -> List.of("War and Peace"));
+            Supplier<Integer> count = queries.fork(() -> 42);
+            queries.join();
+
+            assertEquals(List.of("War and Peace"), books.get());
+            assertEquals(42, count.get());
+        }
+    }
+
+    @Test
+    void joinRethrowsFirstFailureWithoutWaitingForSlowQueries() {
+        CountDownLatch release = new CountDownLatch(1);
+        DaoException failure = new DaoException(new SQLException("connection refused"));
+
+        try (ParallelQueries queries = new ParallelQueries()) {
+            queries.fork(() -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            queries.fork(() -> {
+                throw failure;
+            });
+
+            assertSame(failure, assertThrows(DaoException.class, queries::join));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void resultIsNotAvailableBeforeJoin() {
+        try (ParallelQueries queries = new ParallelQueries()) {
+            Supplier<Integer> result = queries.fork(() -> 1);
+
+            assertThrows(IllegalStateException.class, result::get);
+            queries.join();
+            assertThrows(IllegalStateException.class, () -> queries.fork(() -> 2));
+        }
+    }
+}
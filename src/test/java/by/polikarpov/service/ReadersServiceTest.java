@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import by.polikarpov.dao.ReadersDao;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.Readers;
 import org.junit.jupiter.api.BeforeEach;
@@ -52,6 +53,22 @@ class ReadersServiceTest {
         verify(readersDaoMock).findAll();
     }
 
+    @Test
+    void getPage() {
+        Readers reader1 = new Readers("Reader One");
+        reader1.setId(1L);
+        Readers reader2 = new Readers("Reader Two");
+        reader2.setId(2L);
+
+        when(readersDaoMock.findPage(null, 2)).thenReturn(List.of(reader1, reader2));
+
+        Page<Long, ReadersDto> result = readersService.getPage(null, 1);
+
+        verify(readersDaoMock).findPage(null, 2);
+        assertEquals(List.of(new ReadersDto(1L, "Reader One")), result.items());
+        assertEquals(1L, result.nextCursor());
+    }
+
     @Test
     void getByIdWhenExists() {
         // Подготовка данных
@@ -156,4 +173,20 @@ class ReadersServiceTest {
 
         assertEquals("Readers " + readerId + " does not exist", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void addAllReaders() {
+        when(readersDaoMock.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Readers> readers = invocation.getArgument(0);
+            for (int i = 0; i < readers.size(); i++) {
+                readers.get(i).setId(i + 1L);
+            }
+            return readers;
+        });
+
+        List<ReadersDto> result = readersService.addAll(
+                List.of(new ReadersDto(null, "Reader One"), new ReadersDto(null, "Reader Two")));
+
+        assertEquals(List.of(new ReadersDto(1L, "Reader One"), new ReadersDto(2L, "Reader Two")), result);
+    }
+}
@@ -2,12 +2,15 @@ package by.polikarpov.setvlet;
 
 import by.polikarpov.dto.BooksDto;
 import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.Library;
+import by.polikarpov.exception.DaoException;
 import by.polikarpov.service.BookLendingService;
 import by.polikarpov.service.BooksService;
 import by.polikarpov.service.LibraryService;
 import by.polikarpov.servlet.BookServlet;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,9 +23,13 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -83,16 +90,40 @@ class BookServletTest {
 
         when(req.getParameter("id")).thenReturn(null);
 
-        when(booksService.getAll()).thenReturn(Arrays.asList(book1, book2));
+        when(booksService.getPage(null, 50)).thenReturn(new Page<>(Arrays.asList(book1, book2), book2.id()));
         when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
 
         bookServlet.doGet(req, resp);
 
-        verify(booksService).getAll();
+        verify(booksService).getPage(null, 50);
         verify(req).setAttribute("books", Arrays.asList(book1, book2));
+        verify(req).setAttribute("nextCursor", book2.id());
         verify(requestDispatcher).forward(req, resp);
     }
 
+    @Test
+    void doGetAllBooksAsJson() throws ServletException, IOException {
+        Library library = new Library("Library");
+        library.setId(3L);
+        BooksDto book1 = new BooksDto(1L, "title \"1\"", "author", library);
+        BooksDto book2 = new BooksDto(2L, "title 2", "author", library);
+        StringWriter body = new StringWriter();
+
+        when(req.getParameter("id")).thenReturn(null);
+        when(req.getHeader("Accept")).thenReturn("application/json");
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        when(booksService.getPage(null, 50)).thenReturn(new Page<>(Arrays.asList(book1, book2), null));
+
+        bookServlet.doGet(req, resp);
+
+        verify(resp).setContentType("application/json");
+        verify(req, never()).getRequestDispatcher(anyString());
+        assertEquals("{\"items\":["
+                     + "{\"id\":1,\"title\":\"title \\\"1\\\"\",\"author\":\"author\",\"library\":{\"id\":3,\"libraryName\":\"Library\"}},"
+                     + "{\"id\":2,\"title\":\"title 2\",\"author\":\"author\",\"library\":{\"id\":3,\"libraryName\":\"Library\"}}"
+                     + "],\"nextCursor\":null}", body.toString());
+    }
+
     @Test
     void doGetWithIdNotExistsBook() throws ServletException, IOException {
         when(req.getParameter("id")).thenReturn("1");
@@ -214,4 +245,134 @@ class BookServletTest {
         verify(resp).sendError(HttpServletResponse.SC_NOT_FOUND, "Not exists book");
     }
 
-}
\ No newline at end of file
+    @Test
+    void doPostBulk() throws ServletException, IOException {
+        Library library = new Library("library");
+        library.setId(1L);
+        LibraryDto libraryDto = new LibraryDto(library.getId(), library.getLibraryName());
+        StringWriter body = new StringWriter();
+
+        try (MockedStatic<LibraryService> libraryServiceMockedStatic = mockStatic(LibraryService.class)) {
+            when(req.getServletPath()).thenReturn("/books/bulk");
+            when(req.getParameterValues("title")).thenReturn(new String[]{"title 1", "title 2"});
+            when(req.getParameterValues("author")).thenReturn(new String[]{"author 1", "author 2"});
+            when(req.getParameterValues("libraryId")).thenReturn(new String[]{"1"});
+            when(resp.getWriter()).thenReturn(new PrintWriter(body));
+
+            LibraryService libraryService = mock(LibraryService.class);
+            libraryServiceMockedStatic.when(LibraryService::getInstance).thenReturn(libraryService);
+            when(libraryService.getById(1L)).thenReturn(Optional.of(libraryDto));
+            when(booksService.addAll(List.of(
+                    new BooksDto(null, "title 1", "author 1", library),
+                    new BooksDto(null, "title 2", "author 2", library))))
+                    .thenReturn(List.of(
+                            new BooksDto(5L, "title 1", "author 1", library),
+                            new BooksDto(6L, "title 2", "author 2", library)));
+
+            bookServlet.doPost(req, resp);
+
+            verify(libraryService).getById(1L);
+            verify(resp).setStatus(HttpServletResponse.SC_CREATED);
+            assertEquals("{\"created\":2,\"ids\":[5,6]}", body.toString());
+        }
+    }
+
+    @Test
+    void doPostBulkWithMismatchedParameters() throws ServletException, IOException {
+        when(req.getServletPath()).thenReturn("/books/bulk");
+        when(req.getParameterValues("title")).thenReturn(new String[]{"title 1", "title 2"});
+        when(req.getParameterValues("author")).thenReturn(new String[]{"author 1"});
+        when(req.getParameterValues("libraryId")).thenReturn(new String[]{"1"});
+
+        bookServlet.doPost(req, resp);
+
+        verify(resp).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(booksService, never()).addAll(any());
+    }
+
+    @Test
+    void doPostBulkWithMalformedLibraryId() throws ServletException, IOException {
+        when(req.getServletPath()).thenReturn("/books/bulk");
+        when(req.getParameterValues("title")).thenReturn(new String[]{"title 1", "title 2"});
+        when(req.getParameterValues("author")).thenReturn(new String[]{"author 1", "author 2"});
+        when(req.getParameterValues("libraryId")).thenReturn(new String[]{"1", "x"});
+
+        bookServlet.doPost(req, resp);
+
+        verify(resp).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(booksService, never()).addAll(any());
+    }
+
+    @Test
+    void doGetSearch() throws ServletException, IOException {
+        Library library = new Library("Library");
+        BooksDto book = new BooksDto(1L, "War and Peace", "Leo Tolstoy", library);
+        BooksService searchService = mock(BooksService.class);
+        bookServlet.setSearchService(searchService);
+
+        when(req.getParameter("id")).thenReturn(null);
+        when(req.getParameter("q")).thenReturn("war");
+        when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+        when(searchService.search("war", 50)).thenReturn(List.of(book));
+
+        bookServlet.doGet(req, resp);
+
+        verify(booksService, never()).getPage(any(), anyInt());
+        verify(req).setAttribute("books", List.of(book));
+        verify(req).setAttribute("nextCursor", null);
+        verify(requestDispatcher).forward(req, resp);
+    }
+
+    @Test
+    void doGetSuggestions() throws ServletException, IOException {
+        StringWriter body = new StringWriter();
+        BooksService searchService = mock(BooksService.class);
+        bookServlet.setSearchService(searchService);
+
+        when(req.getServletPath()).thenReturn("/books/suggest");
+        when(req.getParameter("q")).thenReturn("leo");
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        when(searchService.suggest("leo", 10)).thenReturn(List.of("Leo Tolstoy", "Leonid Andreyev"));
+
+        bookServlet.doGet(req, resp);
+
+        verify(resp).setContentType("application/json");
+        assertEquals("[\"Leo Tolstoy\",\"Leonid Andreyev\"]", body.toString());
+    }
+
+    @Test
+    void doGetAsyncDispatchesToView() throws ServletException, IOException {
+        BooksDto book = new BooksDto(1L, "title", "author", new Library("library"));
+        AsyncContext asyncContext = mock(AsyncContext.class);
+
+        when(req.isAsyncSupported()).thenReturn(true);
+        when(req.startAsync(req, resp)).thenReturn(asyncContext);
+        when(asyncContext.getRequest()).thenReturn(req);
+        when(asyncContext.getResponse()).thenReturn(resp);
+        when(booksService.getPage(null, 50)).thenReturn(new Page<>(List.of(book), null));
+        when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+
+        bookServlet.doGet(req, resp);
+
+        verify(asyncContext, timeout(5000)).dispatch("/WEB-INF/jsp/books.jsp");
+        verify(req).setAttribute("books", List.of(book));
+        verify(requestDispatcher, never()).forward(any(), any());
+        verify(asyncContext, never()).complete();
+    }
+
+    @Test
+    void doGetAsyncFailureSendsError() throws ServletException, IOException {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+
+        when(req.isAsyncSupported()).thenReturn(true);
+        when(req.startAsync(req, resp)).thenReturn(asyncContext);
+        when(asyncContext.getRequest()).thenReturn(req);
+        when(asyncContext.getResponse()).thenReturn(resp);
+        when(booksService.getPage(null, 50)).thenThrow(new DaoException(new RuntimeException("connection refused")));
+
+        bookServlet.doGet(req, resp);
+
+        verify(asyncContext, timeout(5000)).complete();
+        verify(resp).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+}
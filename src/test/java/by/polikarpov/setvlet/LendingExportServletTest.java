@@ -0,0 +1,101 @@
+package by.polikarpov.setvlet;
+
+import by.polikarpov.service.BookLendingService;
+import by.polikarpov.servlet.LendingExportServlet;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LendingExportServletTest {
+
+    private static final String CSV = "reader_id,readers_name,book_id\n1,reader,2\n";
+
+    private LendingExportServlet exportServlet;
+
+    @Mock
+    private HttpServletRequest req;
+
+    @Mock
+    private HttpServletResponse resp;
+
+    @Mock
+    private BookLendingService bookLendingService;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        exportServlet = new LendingExportServlet();
+        exportServlet.setBookLendingService(bookLendingService);
+        when(resp.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        when(bookLendingService.exportAll(any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+    }
+
+    @Test
+    void doGetWritesPlainCsv() throws IOException {
+        when(req.getHeader("Accept-Encoding")).thenReturn(null);
+
+        exportServlet.doGet(req, resp);
+
+        verify(resp).setContentType("text/csv");
+        verify(resp, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(CSV, body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doGetCompressesWhenClientAcceptsGzip() throws IOException {
+        when(req.getHeader("Accept-Encoding")).thenReturn("br;q=1.0, gzip;q=0.8");
+
+        exportServlet.doGet(req, resp);
+
+        verify(resp).setHeader("Content-Encoding", "gzip");
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            assertEquals(CSV, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void doGetIgnoresGzipWithZeroQuality() throws IOException {
+        when(req.getHeader("Accept-Encoding")).thenReturn("gzip;q=0");
+
+        exportServlet.doGet(req, resp);
+
+        verify(resp, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(CSV, body.toString(StandardCharsets.UTF_8));
+    }
+}
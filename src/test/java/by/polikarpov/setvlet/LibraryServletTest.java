@@ -2,10 +2,12 @@ package by.polikarpov.setvlet;
 
 import by.polikarpov.dto.BooksDto;
 import by.polikarpov.dto.LibraryDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.entity.Library;
 import by.polikarpov.service.BooksService;
 import by.polikarpov.service.LibraryService;
 import by.polikarpov.servlet.LibraryServlet;
+import by.polikarpov.util.TableVersions;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,15 +15,20 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -83,16 +90,36 @@ class LibraryServletTest {
 
         when(req.getParameter("id")).thenReturn(null);
 
-        when(libraryService.getAll()).thenReturn(Arrays.asList(libraryDto1, libraryDto2));
+        when(libraryService.getPage(null, 50)).thenReturn(new Page<>(Arrays.asList(libraryDto1, libraryDto2), libraryDto2.id()));
         when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
 
         libraryServlet.doGet(req, resp);
 
-        verify(libraryService).getAll();
+        verify(libraryService).getPage(null, 50);
         verify(req).setAttribute("libraries", Arrays.asList(libraryDto1, libraryDto2));
+        verify(req).setAttribute("nextCursor", libraryDto2.id());
         verify(requestDispatcher).forward(req, resp);
     }
 
+    @Test
+    void doGetAllLibrariesAsJson() throws ServletException, IOException {
+        LibraryDto libraryDto1 = new LibraryDto(1L, "lib1");
+        LibraryDto libraryDto2 = new LibraryDto(2L, "lib2");
+        StringWriter body = new StringWriter();
+
+        when(req.getParameter("id")).thenReturn(null);
+        when(req.getHeader("Accept")).thenReturn("text/html;q=0.9, application/json");
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        when(libraryService.getPage(null, 50)).thenReturn(new Page<>(Arrays.asList(libraryDto1, libraryDto2), libraryDto2.id()));
+
+        libraryServlet.doGet(req, resp);
+
+        verify(resp).setContentType("application/json");
+        verify(req, never()).getRequestDispatcher(anyString());
+        assertEquals("{\"items\":[{\"id\":1,\"libraryName\":\"lib1\"},{\"id\":2,\"libraryName\":\"lib2\"}],"
+                     + "\"nextCursor\":2}", body.toString());
+    }
+
     @Test
     void doGetWithIdNotExistsBook() throws ServletException, IOException {
         when(req.getParameter("id")).thenReturn("1");
@@ -179,4 +206,72 @@ class LibraryServletTest {
 
         verify(resp).sendError(HttpServletResponse.SC_NOT_FOUND, "Not exists library");
     }
+
+    @Test
+    void doGetNotModified() throws ServletException, IOException {
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        when(req.getParameter("id")).thenReturn(null);
+        when(libraryService.getPage(null, 50)).thenReturn(new Page<>(List.of(), null));
+        when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+        libraryServlet.doGet(req, resp);
+        verify(resp).setHeader(eq("ETag"), etag.capture());
+        verify(resp).setHeader("Cache-Control", "no-cache");
+
+        HttpServletRequest conditional = mock(HttpServletRequest.class);
+        HttpServletResponse notModified = mock(HttpServletResponse.class);
+        when(conditional.getHeader("Accept")).thenReturn("text/html");
+        when(conditional.getHeader("If-None-Match")).thenReturn("\"other\", " + etag.getValue());
+        libraryServlet.doGet(conditional, notModified);
+
+        verify(notModified).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(notModified).setHeader("ETag", etag.getValue());
+        verify(libraryService, times(1)).getPage(null, 50);
+    }
+
+    @Test
+    void doGetModifiedAfterChange() throws ServletException, IOException {
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        when(req.getHeader("Accept")).thenReturn("text/html");
+        when(req.getParameter("id")).thenReturn(null);
+        when(libraryService.getPage(null, 50)).thenReturn(new Page<>(List.of(), null));
+        when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+        libraryServlet.doGet(req, resp);
+        verify(resp).setHeader(eq("ETag"), etag.capture());
+
+        TableVersions.changed(TableVersions.Table.BOOKS);
+        when(req.getHeader("If-None-Match")).thenReturn(etag.getValue());
+        libraryServlet.doGet(req, resp);
+
+        verify(resp, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(libraryService, times(2)).getPage(null, 50);
+        verify(requestDispatcher, times(2)).forward(req, resp);
+    }
+
+    @Test
+    void doPostBulk() throws ServletException, IOException {
+        StringWriter body = new StringWriter();
+
+        when(req.getServletPath()).thenReturn("/libraries/bulk");
+        when(req.getParameterValues("libraryName")).thenReturn(new String[]{"lib1", "lib2"});
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        when(libraryService.addAll(List.of(new LibraryDto(null, "lib1"), new LibraryDto(null, "lib2"))))
+                .thenReturn(List.of(new LibraryDto(1L, "lib1"), new LibraryDto(2L, "lib2")));
+
+        libraryServlet.doPost(req, resp);
+
+        verify(resp).setStatus(HttpServletResponse.SC_CREATED);
+        verify(resp).setContentType("application/json");
+        assertEquals("{\"created\":2,\"ids\":[1,2]}", body.toString());
+    }
+
+    @Test
+    void doPostBulkNotValid() throws ServletException, IOException {
+        when(req.getServletPath()).thenReturn("/libraries/bulk");
+        when(req.getParameterValues("libraryName")).thenReturn(new String[]{"lib1", " "});
+
+        libraryServlet.doPost(req, resp);
+
+        verify(resp).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(libraryService, never()).addAll(any());
+    }
 }
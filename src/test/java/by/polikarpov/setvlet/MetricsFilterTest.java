@@ -0,0 +1,95 @@
+package by.polikarpov.setvlet;
+
+import by.polikarpov.servlet.MetricsFilter;
+import by.polikarpov.servlet.MetricsServlet;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsFilterTest {
+
+    @Mock
+    private HttpServletRequest req;
+
+    @Mock
+    private HttpServletResponse resp;
+
+    @Mock
+    private HttpServletMapping mapping;
+
+    @Mock
+    private FilterChain chain;
+
+    private final MetricsFilter filter = new MetricsFilter();
+
+    @BeforeEach
+    void setUp() {
+        when(req.getHttpServletMapping()).thenReturn(mapping);
+    }
+
+    @Test
+    void recordsSynchronousRequestsAndErrors() throws Exception {
+        when(mapping.getServletName()).thenReturn("MetricsFilterTestSync");
+        when(req.getMethod()).thenReturn("GET");
+        when(resp.getStatus()).thenReturn(200);
+
+        filter.doFilter(req, resp, chain);
+        doThrow(new ServletException("boom")).when(chain).doFilter(req, resp);
+        assertThrows(ServletException.class, () -> filter.doFilter(req, resp, chain));
+
+        String metrics = scrape();
+        String labels = "{servlet=\"MetricsFilterTestSync\",method=\"GET\"}";
+        assertTrue(metrics.contains("http_request_duration_seconds_count" + labels + " 2\n"), metrics);
+        assertTrue(metrics.contains("http_request_errors_total" + labels + " 1\n"), metrics);
+    }
+
+    @Test
+    void recordsAsynchronousRequestWhenComplete() throws Exception {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        when(mapping.getServletName()).thenReturn("MetricsFilterTestAsync");
+        when(req.getMethod()).thenReturn("DELETE");
+        when(req.isAsyncStarted()).thenReturn(true);
+        when(req.getAsyncContext()).thenReturn(asyncContext);
+        when(resp.getStatus()).thenReturn(503);
+
+        filter.doFilter(req, resp, chain);
+        String labels = "{servlet=\"MetricsFilterTestAsync\",method=\"DELETE\"}";
+        assertTrue(scrape().contains("http_request_duration_seconds_count" + labels + " 0\n"));
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onComplete(new AsyncEvent(asyncContext, req, resp));
+
+        String metrics = scrape();
+        assertTrue(metrics.contains("http_request_duration_seconds_count" + labels + " 1\n"), metrics);
+        assertTrue(metrics.contains("http_request_errors_total" + labels + " 1\n"), metrics);
+    }
+
+    private static String scrape() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter body = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        new MetricsServlet().doGet(mock(HttpServletRequest.class), response);
+        verify(response).setContentType("text/plain; version=0.0.4");
+        return body.toString();
+    }
+}
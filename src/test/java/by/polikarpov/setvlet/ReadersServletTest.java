@@ -2,12 +2,14 @@ package by.polikarpov.setvlet;
 
 import by.polikarpov.dto.BookLendingDto;
 import by.polikarpov.dto.BooksDto;
+import by.polikarpov.dto.Page;
 import by.polikarpov.dto.ReadersDto;
 import by.polikarpov.entity.Library;
 import by.polikarpov.service.BookLendingService;
 import by.polikarpov.service.BooksService;
 import by.polikarpov.service.ReadersService;
 import by.polikarpov.servlet.ReadersServlet;
+import by.polikarpov.util.ConnectionManager;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,10 +22,16 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,7 +71,8 @@ class ReadersServletTest {
             BookLendingService bookLendingService = mock(BookLendingService.class);
             bookLendingServiceMockedStatic.when(BookLendingService::getInstance).thenReturn(bookLendingService);
             when(bookLendingService.getByReaderId(readerDto.id())).thenReturn(Arrays.asList(bookDto1, bookDto2));
-            when(bookLendingService.getByNotReaderId(readerDto.id())).thenReturn(Arrays.asList(bookDto3, bookDto4));
+            when(bookLendingService.getByNotReaderId(readerDto.id(), null, 50))
+                    .thenReturn(new Page<>(Arrays.asList(bookDto3, bookDto4), 4L));
 
             when(readersService.getById(readerDto.id())).thenReturn(Optional.of(readerDto));
 
@@ -72,11 +81,12 @@ class ReadersServletTest {
             readersServlet.doGet(req, resp);
 
             verify(bookLendingService).getByReaderId(readerDto.id());
-            verify(bookLendingService).getByNotReaderId(readerDto.id());
+            verify(bookLendingService).getByNotReaderId(readerDto.id(), null, 50);
             verify(readersService).getById(readerDto.id());
             verify(req).setAttribute("reader", readerDto);
             verify(req).setAttribute("books", Arrays.asList(bookDto1, bookDto2));
             verify(req).setAttribute("booksNot", Arrays.asList(bookDto3, bookDto4));
+            verify(req).setAttribute("booksNotNextCursor", 4L);
             verify(requestDispatcher).forward(req, resp);
         }
     }
@@ -88,13 +98,50 @@ class ReadersServletTest {
 
         when(req.getParameter("id")).thenReturn(null);
 
-        when(readersService.getAll()).thenReturn(Arrays.asList(reader1, reader2));
+        when(readersService.getPage(null, 50)).thenReturn(new Page<>(Arrays.asList(reader1, reader2), reader2.id()));
         when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
 
         readersServlet.doGet(req, resp);
 
-        verify(readersService).getAll();
+        verify(readersService).getPage(null, 50);
         verify(req).setAttribute("readers", Arrays.asList(reader1, reader2));
+        verify(req).setAttribute("nextCursor", reader2.id());
+        verify(requestDispatcher).forward(req, resp);
+    }
+
+    @Test
+    void doGetAllReadersAsJson() throws ServletException, IOException {
+        ReadersDto reader1 = new ReadersDto(1L, "reader 1");
+        ReadersDto reader2 = new ReadersDto(2L, "reader 2");
+        StringWriter body = new StringWriter();
+
+        when(req.getParameter("id")).thenReturn(null);
+        when(req.getParameter("cursor")).thenReturn(null);
+        when(req.getParameter("limit")).thenReturn(null);
+        when(req.getParameter("format")).thenReturn("json");
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        when(readersService.getPage(null, 50)).thenReturn(new Page<>(Arrays.asList(reader1, reader2), reader2.id()));
+
+        readersServlet.doGet(req, resp);
+
+        verify(resp).setContentType("application/json");
+        verify(req, never()).getRequestDispatcher(anyString());
+        assertEquals("{\"items\":[{\"id\":1,\"readerName\":\"reader 1\"},{\"id\":2,\"readerName\":\"reader 2\"}],"
+                     + "\"nextCursor\":2}", body.toString());
+    }
+
+    @Test
+    void doGetAllReadersKeepsHtmlForBrowsers() throws ServletException, IOException {
+        ReadersDto reader = new ReadersDto(1L, "reader 1");
+
+        when(req.getParameter("id")).thenReturn(null);
+        when(req.getHeader("Accept")).thenReturn("text/html,application/xhtml+xml,application/json;q=0.9,*/*;q=0.8");
+        when(readersService.getPage(null, 50)).thenReturn(new Page<>(List.of(reader), null));
+        when(req.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+
+        readersServlet.doGet(req, resp);
+
+        verify(resp, never()).getWriter();
         verify(requestDispatcher).forward(req, resp);
     }
 
@@ -127,13 +174,19 @@ class ReadersServletTest {
     }
 
     @Test
-    void doPostWithBookIdSave() throws ServletException, IOException {
+    void doPostWithBookIdSave() throws ServletException, IOException, SQLException {
         BooksDto booksDto = new BooksDto(1L, "book", "author", new Library("library"));
         ReadersDto readerDto = new ReadersDto(1L, "reader");
         BookLendingDto bookLendingDto = new BookLendingDto(readerDto, booksDto);
 
+        BooksService booksService = mock(BooksService.class);
+        readersServlet.setBooksService(booksService);
+
+        Connection connection = mock(Connection.class);
+
         try (MockedStatic<BookLendingService> bookLendingServiceMockedStatic = mockStatic(BookLendingService.class);
-             MockedStatic<BooksService> booksServiceMockedStatic = mockStatic(BooksService.class)) {
+             MockedStatic<ConnectionManager> connectionManagerMockedStatic = mockStatic(ConnectionManager.class)) {
+            connectionManagerMockedStatic.when(ConnectionManager::getConnection).thenReturn(connection);
             when(req.getParameter("id")).thenReturn("1");
             when(req.getParameter("readerName")).thenReturn(null);
             when(req.getParameter("bookIdSave")).thenReturn("1");
@@ -144,8 +197,6 @@ class ReadersServletTest {
 
             when(readersService.getById(readerDto.id())).thenReturn(Optional.of(readerDto));
 
-            BooksService booksService = mock(BooksService.class);
-            booksServiceMockedStatic.when(BooksService::getInstance).thenReturn(booksService);
             when(booksService.getById(booksDto.id())).thenReturn(Optional.of(booksDto));
 
             readersServlet.doPost(req, resp);
@@ -153,6 +204,7 @@ class ReadersServletTest {
             verify(bookLendingService).add(bookLendingDto);
             verify(readersService).getById(readerDto.id());
             verify(booksService).getById(booksDto.id());
+            verify(connection).commit();
             verify(req).getContextPath();
             verify(resp).sendRedirect("/WEB-INF" + "/readers?id=" + readerDto.id());
         }
@@ -237,4 +289,105 @@ class ReadersServletTest {
 
         verify(resp).sendError(HttpServletResponse.SC_NOT_FOUND, "Reader not exists");
     }
+
+    @Test
+    void doDeleteLendingWithMalformedBookId() throws ServletException, IOException {
+        try (MockedStatic<BookLendingService> bookLendingServiceMockedStatic = mockStatic(BookLendingService.class)) {
+            when(req.getParameter("id")).thenReturn("1");
+            when(req.getParameter("bookId")).thenReturn("abc");
+
+            readersServlet.doDelete(req, resp);
+
+            verify(resp).sendError(HttpServletResponse.SC_BAD_REQUEST, "Reader and book IDs must be numbers");
+            bookLendingServiceMockedStatic.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void doDeleteLendingOfMissingBook() throws ServletException, IOException {
+        try (MockedStatic<BookLendingService> bookLendingServiceMockedStatic = mockStatic(BookLendingService.class)) {
+            when(req.getParameter("id")).thenReturn("1");
+            when(req.getParameter("bookId")).thenReturn("2");
+
+            BookLendingService bookLendingService = mock(BookLendingService.class);
+            bookLendingServiceMockedStatic.when(BookLendingService::getInstance).thenReturn(bookLendingService);
+            when(bookLendingService.delete(1L, 2L)).thenThrow(new IllegalArgumentException("Book 2 does not exist"));
+
+            readersServlet.doDelete(req, resp);
+
+            verify(resp).sendError(HttpServletResponse.SC_NOT_FOUND, "Book 2 does not exist");
+        }
+    }
+
+    @Test
+    void doPostBulk() throws ServletException, IOException {
+        StringWriter body = new StringWriter();
+
+        when(req.getServletPath()).thenReturn("/readers/bulk");
+        when(req.getParameterValues("readerName")).thenReturn(new String[]{"reader 1", "reader 2"});
+        when(req.getParameterValues("bookIdSave")).thenReturn(null);
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        when(readersService.addAll(List.of(new ReadersDto(null, "reader 1"), new ReadersDto(null, "reader 2"))))
+                .thenReturn(List.of(new ReadersDto(3L, "reader 1"), new ReadersDto(4L, "reader 2")));
+
+        readersServlet.doPost(req, resp);
+
+        verify(resp).setStatus(HttpServletResponse.SC_CREATED);
+        assertEquals("{\"created\":2,\"ids\":[3,4]}", body.toString());
+    }
+
+    @Test
+    void doPostBulkWithBookIdSave() throws ServletException, IOException {
+        StringWriter body = new StringWriter();
+
+        try (MockedStatic<BookLendingService> bookLendingServiceMockedStatic = mockStatic(BookLendingService.class)) {
+            when(req.getServletPath()).thenReturn("/readers/bulk");
+            when(req.getParameter("id")).thenReturn("1");
+            when(req.getParameterValues("readerName")).thenReturn(null);
+            when(req.getParameterValues("bookIdSave")).thenReturn(new String[]{"7", "8"});
+            when(resp.getWriter()).thenReturn(new PrintWriter(body));
+
+            BookLendingService bookLendingService = mock(BookLendingService.class);
+            bookLendingServiceMockedStatic.when(BookLendingService::getInstance).thenReturn(bookLendingService);
+            // book 7 is already lent to the reader
+            when(bookLendingService.lendAll(1L, List.of(7L, 8L))).thenReturn(List.of(8L));
+
+            readersServlet.doPost(req, resp);
+
+            verify(resp).setStatus(HttpServletResponse.SC_CREATED);
+            assertEquals("{\"created\":1,\"ids\":[8]}", body.toString());
+        }
+    }
+
+    @Test
+    void doPostBulkWithMissingBook() throws ServletException, IOException {
+        try (MockedStatic<BookLendingService> bookLendingServiceMockedStatic = mockStatic(BookLendingService.class)) {
+            when(req.getServletPath()).thenReturn("/readers/bulk");
+            when(req.getParameter("id")).thenReturn("1");
+            when(req.getParameterValues("readerName")).thenReturn(null);
+            when(req.getParameterValues("bookIdSave")).thenReturn(new String[]{"7", "99"});
+
+            BookLendingService bookLendingService = mock(BookLendingService.class);
+            bookLendingServiceMockedStatic.when(BookLendingService::getInstance).thenReturn(bookLendingService);
+            when(bookLendingService.lendAll(1L, List.of(7L, 99L)))
+                    .thenThrow(new IllegalArgumentException("Books [99] do not exist"));
+
+            readersServlet.doPost(req, resp);
+
+            verify(resp).sendError(HttpServletResponse.SC_NOT_FOUND, "Books [99] do not exist");
+            verify(resp, never()).setStatus(HttpServletResponse.SC_CREATED);
+        }
+    }
+
+    @Test
+    void doPostBulkWithMalformedBookId() throws ServletException, IOException {
+        when(req.getServletPath()).thenReturn("/readers/bulk");
+        when(req.getParameter("id")).thenReturn("1");
+        when(req.getParameterValues("readerName")).thenReturn(null);
+        when(req.getParameterValues("bookIdSave")).thenReturn(new String[]{"7", "x"});
+
+        readersServlet.doPost(req, resp);
+
+        verify(resp).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+    }
 }
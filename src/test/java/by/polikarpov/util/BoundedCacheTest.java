@@ -0,0 +1,138 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load(String value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+    @Test
+    void secondLookupIsAHit() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 1_000, now::get);
+
+        assertEquals("a", cache.get(1L, () -> load("a")));
+        assertEquals("a", cache.get(1L, () -> load("b")));
+
+        assertEquals(1, loads.get());
+        assertEquals(new BoundedCache.Stats(1, 1, 0, 0, 1), cache.getStats());
+        assertEquals(0.5, cache.getStats().hitRatio());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(2, 1_000, now::get);
+
+        cache.get(1L, () -> load("a"));
+        cache.get(2L, () -> load("b"));
+        cache.get(1L, () -> load("a"));
+        cache.get(3L, () -> load("c"));
+        cache.get(1L, () -> load("a"));
+        cache.get(2L, () -> load("b"));
+
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.getStats().evictions());
+        assertEquals(2, cache.getStats().size());
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 1_000, now::get);
+
+        cache.get(1L, () -> load("a"));
+        now.addAndGet(999_000_000L);
+        cache.get(1L, () -> load("a"));
+        now.addAndGet(1_000_000L);
+        cache.get(1L, () -> load("a"));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStats().expirations());
+    }
+
+    @Test
+    void tinyLfuKeepsPopularEntriesThroughScan() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(100, 1_000, BoundedCache.Policy.TINY_LFU, now::get);
+        for (int round = 0; round < 5; round++) {
+            for (long key = 0; key < 50; key++) {
+                long id = key;
+                cache.get(id, () -> load("hot " + id));
+            }
+        }
+        loads.set(0);
+
+        for (long key = 1_000; key < 2_000; key++) {
+            long id = key;
+            cache.get(id, () -> load("cold " + id));
+        }
+        loads.set(0);
+        for (long key = 0; key < 50; key++) {
+            long id = key;
+            cache.get(id, () -> load("hot " + id));
+        }
+
+        assertTrue(loads.get() <= 5, "Most popular entries must survive the scan, reloaded " + loads.get());
+        assertEquals(100, cache.getStats().size());
+    }
+
+    @Test
+    void lruLosesPopularEntriesToScan() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(100, 1_000, BoundedCache.Policy.LRU, now::get);
+        for (long key = 0; key < 50; key++) {
+            long id = key;
+            cache.get(id, () -> load("hot " + id));
+            cache.get(id, () -> load("hot " + id));
+        }
+
+        for (long key = 1_000; key < 2_000; key++) {
+            long id = key;
+            cache.get(id, () -> load("cold " + id));
+        }
+        loads.set(0);
+        for (long key = 0; key < 50; key++) {
+            long id = key;
+            cache.get(id, () -> load("hot " + id));
+        }
+
+        assertEquals(50, loads.get());
+    }
+
+    @Test
+    void nullIsNotCached() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 1_000, now::get);
+
+        assertNull(cache.get(1L, () -> load(null)));
+        assertNull(cache.get(1L, () -> load(null)));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getStats().size());
+    }
+
+    @Test
+    void valueLoadedBeforeInvalidationIsNotStored() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 1_000, now::get);
+
+        cache.get(1L, () -> {
+            cache.invalidate(1L);
+            return load("stale");
+        });
+
+        assertEquals("fresh", cache.get(1L, () -> load("fresh")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<Long, String>(0, 1_000));
+    }
+}
@@ -0,0 +1,148 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private final List<Connection> physical = new ArrayList<>();
+
+    private ConnectionPool pool;
+
+    private ConnectionPool createPool(int minSize, int maxSize, long validationIdleMillis) {
+        pool = new ConnectionPool(() -> {
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            physical.add(connection);
+            return connection;
+        }, new ConnectionPool.Config(minSize, maxSize, 100, 1, validationIdleMillis, 60_000, 0, 60_000));
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void closeReturnsConnectionToPool() throws SQLException {
+        createPool(0, 1, 60_000);
+
+        Connection first = pool.getConnection();
+        first.close();
+        Connection second = pool.getConnection();
+        second.close();
+
+        assertEquals(1, physical.size());
+        verify(physical.get(0), never()).close();
+        assertEquals(1, pool.getStats().created());
+        assertEquals(2, pool.getStats().borrows());
+        assertEquals(1, pool.getStats().idle());
+        assertEquals(0, pool.getStats().active());
+    }
+
+    @Test
+    void closedHandleRejectsFurtherUse() throws SQLException {
+        createPool(0, 1, 60_000);
+
+        Connection connection = pool.getConnection();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+    }
+
+    @Test
+    void getConnectionTimesOutWhenPoolIsExhausted() throws SQLException {
+        createPool(0, 1, 60_000);
+
+        try (Connection ignored = pool.getConnection()) {
+            assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        }
+        assertEquals(1, pool.getStats().timeouts());
+    }
+
+    @Test
+    void invalidIdleConnectionIsReplaced() throws SQLException {
+        createPool(0, 1, 0);
+
+        pool.getConnection().close();
+        when(physical.get(0).isValid(anyInt())).thenReturn(false);
+
+        try (Connection ignored = pool.getConnection()) {
+            assertEquals(2, physical.size());
+            verify(physical.get(0)).close();
+            assertEquals(1, pool.getStats().validationFailures());
+        }
+    }
+
+    @Test
+    void releaseRollsBackOpenTransaction() throws SQLException {
+        createPool(0, 1, 60_000);
+
+        Connection connection = pool.getConnection();
+        when(physical.get(0).getAutoCommit()).thenReturn(false);
+        connection.close();
+
+        verify(physical.get(0)).rollback();
+        verify(physical.get(0)).setAutoCommit(true);
+    }
+
+    @Test
+    void statementsAreCachedAcrossBorrows() throws SQLException {
+        pool = new ConnectionPool(() -> {
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+            physical.add(connection);
+            return connection;
+        }, new ConnectionPool.Config(0, 1, 100, 1, 60_000, 60_000, 0, 60_000, 8));
+
+        for (int i = 0; i < 4; i++) {
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                assertSame(connection, statement.getConnection());
+            }
+        }
+
+        verify(physical.get(0), times(1)).prepareStatement("SELECT 1");
+        assertEquals(3, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+        assertEquals(0.75, pool.getStats().statementCacheHitRatio());
+    }
+
+    @Test
+    void failedConnectionAttemptReleasesPermit() {
+        pool = new ConnectionPool(() -> {
+            throw new SQLException("Connection refused");
+        }, new ConnectionPool.Config(0, 1, 100, 1, 500, 60_000, 0, 60_000));
+
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        SQLException exception = assertThrows(SQLException.class, () -> pool.getConnection());
+
+        assertEquals("Connection refused", exception.getMessage());
+        assertEquals(0, pool.getStats().timeouts());
+    }
+
+    @Test
+    void invalidSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConnectionPool(() -> mock(Connection.class),
+                        new ConnectionPool.Config(5, 2, 100, 1, 500, 60_000, 0, 60_000)));
+    }
+}
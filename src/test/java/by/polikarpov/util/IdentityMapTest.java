@@ -0,0 +1,161 @@
+package by.polikarpov.util;
+
+import by.polikarpov.entity.Books;
+import by.polikarpov.entity.Library;
+import by.polikarpov.exception.DaoException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityMapTest {
+
+    @Test
+    void withoutBoundMapEveryLookupLoads() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<Library>> loader = counting(loads, library(1L));
+
+        IdentityMap.find(Library.class, 1L, loader);
+        IdentityMap.find(Library.class, 1L, loader);
+
+        assertNull(IdentityMap.current());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void boundMapLoadsEveryIdOnceAndReturnsSameInstance() {
+        AtomicInteger loads = new AtomicInteger();
+
+        try (IdentityMap.Binding ignored = IdentityMap.bind(new IdentityMap())) {
+            Optional<Library> first = IdentityMap.find(Library.class, 1L, counting(loads, library(1L)));
+            Optional<Library> second = IdentityMap.find(Library.class, 1L, counting(loads, library(1L)));
+            IdentityMap.find(Library.class, 2L, counting(loads, library(2L)));
+
+            assertSame(first.get(), second.get());
+            assertEquals(2, loads.get());
+        }
+        assertNull(IdentityMap.current());
+    }
+
+    @Test
+    void entitiesOfDifferentTypesDoNotCollide() {
+        Library library = new Library("Main Library");
+        library.setId(1L);
+        Books book = new Books("Title", "Author", library);
+        book.setId(1L);
+
+        try (IdentityMap.Binding ignored = IdentityMap.bind(new IdentityMap())) {
+            IdentityMap.find(Library.class, 1L, () -> Optional.of(library));
+
+            assertSame(book, IdentityMap.find(Books.class, 1L, () -> Optional.of(book)).get());
+        }
+    }
+
+    @Test
+    void missingAndFailedLoadsAreNotKept() {
+        AtomicInteger loads = new AtomicInteger();
+        IdentityMap map = new IdentityMap();
+
+        try (IdentityMap.Binding ignored = IdentityMap.bind(map)) {
+            IdentityMap.find(Library.class, 1L, counting(loads, Optional.empty()));
+            assertThrows(DaoException.class, () -> IdentityMap.find(Library.class, 1L, () -> {
+                throw new DaoException(new SQLException("connection refused"));
+            }));
+            IdentityMap.find(Library.class, 1L, counting(loads, library(1L)));
+
+            assertEquals(2, loads.get());
+            assertEquals(1, map.size());
+        }
+    }
+
+    @Test
+    void evictForcesReload() {
+        AtomicInteger loads = new AtomicInteger();
+
+        try (IdentityMap.Binding ignored = IdentityMap.bind(new IdentityMap())) {
+            IdentityMap.find(Library.class, 1L, counting(loads, library(1L)));
+            IdentityMap.evict(Library.class, 1L);
+            IdentityMap.find(Library.class, 1L, counting(loads, library(1L)));
+            IdentityMap.evictAll(Library.class);
+            IdentityMap.find(Library.class, 1L, counting(loads, library(1L)));
+
+            assertEquals(3, loads.get());
+        }
+    }
+
+    @Test
+    void bindRestoresPreviousMap() {
+        IdentityMap outer = new IdentityMap();
+
+        try (IdentityMap.Binding ignoredOuter = IdentityMap.bind(outer)) {
+            try (IdentityMap.Binding ignoredInner = IdentityMap.bind(null)) {
+                assertNull(IdentityMap.current());
+            }
+            assertSame(outer, IdentityMap.current());
+        }
+    }
+
+    @Test
+    void concurrentLookupsShareOneLoad() throws Exception {
+        IdentityMap map = new IdentityMap();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Optional<Library>> slowLoader = () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return library(1L);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Library>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> {
+                    try (IdentityMap.Binding ignored = IdentityMap.bind(map)) {
+                        return IdentityMap.find(Library.class, 1L, slowLoader).get();
+                    }
+                }));
+                started.await(5, TimeUnit.SECONDS);
+            }
+            release.countDown();
+
+            Library first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Library> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Supplier<Optional<Library>> counting(AtomicInteger loads, Optional<Library> result) {
+        return () -> {
+            loads.incrementAndGet();
+            return result;
+        };
+    }
+
+    private static Optional<Library> library(Long id) {
+        Library library = new Library("Library " + id);
+        library.setId(id);
+        return Optional.of(library);
+    }
+}
@@ -0,0 +1,73 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonWriterTest {
+
+    private final StringWriter out = new StringWriter();
+
+    private final JsonWriter json = new JsonWriter(out);
+
+    @Test
+    void writesNestedObjectsAndArrays() throws IOException {
+        json.beginObject()
+                .name("id").value(1L)
+                .name("tags").beginArray().value("a").value("b").endArray()
+                .name("empty").beginArray().endArray()
+                .name("nested").beginObject().name("flag").value(true).endObject()
+                .name("missing").value((Long) null)
+                .endObject();
+
+        assertEquals("{\"id\":1,\"tags\":[\"a\",\"b\"],\"empty\":[],\"nested\":{\"flag\":true},\"missing\":null}",
+                out.toString());
+    }
+
+    @Test
+    void writesArrayOfObjects() throws IOException {
+        json.beginArray();
+        for (long id = 1; id <= 3; id++) {
+            json.beginObject().name("id").value(id).endObject();
+        }
+        json.endArray();
+
+        assertEquals("[{\"id\":1},{\"id\":2},{\"id\":3}]", out.toString());
+    }
+
+    @Test
+    void supportsDeepNesting() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            json.beginArray();
+        }
+        json.value(0L);
+        for (int i = 0; i < 20; i++) {
+            json.endArray().value(0L);
+        }
+
+        assertTrue(out.toString().startsWith("[[[[[[[[[[[[[[[[[[[[0],0],0]"));
+    }
+
+    @Test
+    void escapesStrings() throws IOException {
+        json.value("quote \" backslash \\ newline \n tab \t bell \u0007 separator   кириллица");
+
+        assertEquals("\"quote \\\" backslash \\\\ newline \\n tab \\t bell \\u0007 separator \\u2028 кириллица\"",
+                out.toString());
+    }
+
+    @Test
+    void nullStringIsWrittenAsNull() throws IOException {
+        json.beginArray().value((String) null).endArray();
+
+        assertEquals("[null]", out.toString());
+    }
+
+    @Test
+    void closingWithoutOpeningFails() {
+        assertThrows(IllegalStateException.class, json::endObject);
+    }
+}
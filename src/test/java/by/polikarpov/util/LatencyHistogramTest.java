@@ -0,0 +1,61 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueWithBoundedError() {
+        long[] values = {0, 1, 31, 32, 33, 1_000, 123_456, 1_000_000, 987_654_321, LatencyHistogram.MAX_TRACKABLE_NANOS};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            long upper = LatencyHistogram.upperBoundOf(index);
+            long lower = index == 0 ? 0 : LatencyHistogram.upperBoundOf(index - 1) + 1;
+
+            assertTrue(lower <= value && value <= upper, "value " + value);
+            assertTrue(upper - lower <= Math.max(1, value / 8), "bucket too wide for " + value);
+        }
+    }
+
+    @Test
+    void recordsCountSumMaxAndPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(5_050_000_000L, histogram.sum());
+        assertEquals(100_000_000L, histogram.max());
+        assertEquals(50_000_000L, histogram.valueAtPercentile(50), 50_000_000L * 0.07);
+        assertEquals(99_000_000L, histogram.valueAtPercentile(99), 99_000_000L * 0.07);
+        assertEquals(100_000_000L, histogram.valueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.valueAtPercentile(101));
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.count());
+        assertEquals(0, histogram.valueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.max());
+    }
+
+    @Test
+    void cumulativeCountsAreMonotonic() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(400_000);
+        histogram.record(3_000_000);
+        histogram.record(3_000_000);
+        histogram.record(2_000_000_000);
+
+        long[] counts = histogram.cumulativeCounts(new long[]{1_000_000, 5_000_000, 1_000_000_000});
+
+        assertArrayEquals(new long[]{1, 3, 3, 4}, counts);
+    }
+}
@@ -0,0 +1,75 @@
+package by.polikarpov.util;
+
+import by.polikarpov.exception.DaoException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void timerCountsCallsRowsAndErrors() {
+        Metrics.Timer timer = Metrics.family("test_timer", "Test calls", true).timer("method", "find");
+
+        timer.record(() -> List.of(1, 2, 3));
+        timer.record(() -> Optional.empty());
+        assertThrows(DaoException.class, () -> timer.record(() -> {
+            throw new DaoException(new SQLException("connection refused"));
+        }));
+
+        assertEquals(3, timer.count());
+        assertEquals(3, timer.rows());
+        assertEquals(1, timer.errors());
+    }
+
+    @Test
+    void sameLabelsReturnSameTimer() {
+        Metrics.Family family = Metrics.family("test_same", "Test calls", false);
+
+        assertSame(family.timer("dao", "BooksDao", "method", "findAll"),
+                family.timer("dao", "BooksDao", "method", "findAll"));
+        assertNotSame(family.timer("dao", "BooksDao", "method", "findAll"),
+                family.timer("dao", "BooksDao", "method", "findById"));
+        assertThrows(IllegalArgumentException.class, () -> family.timer("dao"));
+    }
+
+    @Test
+    void rowsOfResultTypes() {
+        assertEquals(0, Metrics.rowsOf(null));
+        assertEquals(2, Metrics.rowsOf(List.of("a", "b")));
+        assertEquals(1, Metrics.rowsOf(Optional.of("a")));
+        assertEquals(0, Metrics.rowsOf(false));
+        assertEquals(42, Metrics.rowsOf(42L));
+        assertEquals(0, Metrics.rowsOf(Stream.of("a")));
+        assertEquals(1, Metrics.rowsOf(new Object()));
+    }
+
+    @Test
+    void writesPrometheusTextFormat() throws IOException {
+        Metrics.Timer timer = Metrics.family("test_export", "Exported calls", true)
+                .timer("dao", "Books\"Dao", "method", "findAll");
+        timer.success(System.nanoTime() - 3_000_000, 7);
+        Metrics.gauge("test_export_gauge", "A gauge", () -> 2.5);
+
+        StringWriter out = new StringWriter();
+        Metrics.writePrometheus(out);
+        String text = out.toString();
+
+        String labels = "dao=\"Books\\\"Dao\",method=\"findAll\"";
+        assertTrue(text.contains("# TYPE test_export_duration_seconds histogram\n"));
+        assertTrue(text.contains("test_export_duration_seconds_bucket{" + labels + ",le=\"0.001\"} 0\n"));
+        assertTrue(text.contains("test_export_duration_seconds_bucket{" + labels + ",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("test_export_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("test_export_duration_seconds_count{" + labels + "} 1\n"));
+        assertTrue(text.contains("test_export_errors_total{" + labels + "} 0\n"));
+        assertTrue(text.contains("test_export_rows_total{" + labels + "} 7\n"));
+        assertTrue(text.contains("# TYPE test_export_gauge gauge\ntest_export_gauge 2.5\n"));
+    }
+}
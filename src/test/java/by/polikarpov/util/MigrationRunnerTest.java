@@ -0,0 +1,118 @@
+package by.polikarpov.util;
+
+import by.polikarpov.exception.DaoException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MigrationRunnerTest {
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private Statement mockStatement;
+
+    @Mock
+    private PreparedStatement mockPreparedStatement;
+
+    @Mock
+    private ResultSet mockResultSet;
+
+    @Test
+    void scriptsAreOrderedByVersion() {
+        int previous = 0;
+        for (String script : MigrationRunner.SCRIPTS) {
+            int version = MigrationRunner.version(script);
+            assertTrue(version > previous, script);
+            previous = version;
+        }
+    }
+
+    @Test
+    void everyScriptExists() {
+        for (String script : MigrationRunner.SCRIPTS) {
+            assertNotNull(getClass().getClassLoader().getResource("migration/" + script), script);
+        }
+    }
+
+    @Test
+    void migrateAppliesOnlyPendingScripts() throws SQLException, IOException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.createStatement()).thenReturn(mockStatement);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getInt("version")).thenReturn(1);
+            when(mockResultSet.getLong("checksum")).thenReturn(MigrationRunner.checksum(read("001_create_tables.sql")));
+
+            assertEquals(MigrationRunner.SCRIPTS.size() - 1, MigrationRunner.migrate());
+
+            verify(mockStatement, never()).execute(read("001_create_tables.sql"));
+            verify(mockStatement).execute(read("002_index_foreign_keys.sql"));
+            verify(mockStatement).execute(read("003_trigram_search_indexes.sql"));
+            verify(mockStatement).execute(read("004_books_full_text_search.sql"));
+            verify(mockPreparedStatement).setInt(1, 2);
+            verify(mockPreparedStatement).setInt(1, 3);
+            verify(mockConnection).commit();
+        }
+    }
+
+    @Test
+    void migrateRollsBackWhenScriptFails() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.createStatement()).thenReturn(mockStatement);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+            when(mockStatement.execute(anyString())).thenReturn(false).thenThrow(new SQLException("syntax error"));
+
+            DaoException exception = assertThrows(DaoException.class, MigrationRunner::migrate);
+
+            assertEquals("syntax error", exception.getCause().getMessage());
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+        }
+    }
+
+    @Test
+    void migrateKeepsScriptErrorWhenRollbackFails() throws SQLException {
+        try (MockedStatic<ConnectionManager> connectionManagerMock = mockStatic(ConnectionManager.class)) {
+            connectionManagerMock.when(ConnectionManager::getConnection).thenReturn(mockConnection);
+            when(mockConnection.createStatement()).thenReturn(mockStatement);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+            when(mockStatement.execute(anyString())).thenReturn(false).thenThrow(new SQLException("syntax error"));
+            doThrow(new SQLException("connection lost")).when(mockConnection).rollback();
+
+            DaoException exception = assertThrows(DaoException.class, MigrationRunner::migrate);
+
+            assertEquals("syntax error", exception.getCause().getMessage());
+            assertEquals("connection lost", exception.getCause().getSuppressed()[0].getMessage());
+        }
+    }
+
+    private String read(String script) throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("migration/" + script)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    private final PrefixIndex index = new PrefixIndex();
+
+    @Test
+    void suggestsPhrasesByAnyWordPrefix() {
+        index.add("War and Peace");
+        index.add("Leo Tolstoy");
+        index.add("Anna Karenina");
+
+        assertEquals(List.of("Leo Tolstoy"), index.suggest("tol", 10));
+        assertEquals(List.of("War and Peace", "Anna Karenina"), index.suggest("an", 10));
+        assertEquals(List.of("War and Peace"), index.suggest("  WAR   and p", 10));
+        assertEquals(List.of(), index.suggest("x", 10));
+    }
+
+    @Test
+    void respectsLimitAndDeduplicates() {
+        index.add("Alpha Alpine");
+        index.add("Alpha Beta");
+        index.add("Alps");
+
+        List<String> suggestions = index.suggest("alp", 2);
+
+        assertEquals(2, suggestions.size());
+        assertEquals("Alpha Alpine", suggestions.get(0));
+    }
+
+    @Test
+    void phraseStaysUntilEveryOccurrenceIsRemoved() {
+        index.add("Leo Tolstoy");
+        index.add("Leo Tolstoy");
+
+        index.remove("Leo Tolstoy");
+        assertEquals(List.of("Leo Tolstoy"), index.suggest("leo", 10));
+
+        index.remove("Leo Tolstoy");
+        assertEquals(List.of(), index.suggest("leo", 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void replaceMovesOneOccurrence() {
+        index.add("Old Title");
+
+        index.replace("Old Title", "New Title");
+
+        assertEquals(List.of(), index.suggest("old", 10));
+        assertEquals(List.of("New Title"), index.suggest("title", 10));
+    }
+
+    @Test
+    void ignoresBlankInput() {
+        index.add(null);
+        index.add("   ");
+        index.remove("unknown");
+
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.suggest("", 10));
+        assertEquals(List.of(), index.suggest(null, 10));
+    }
+}
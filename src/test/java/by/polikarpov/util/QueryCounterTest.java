@@ -0,0 +1,49 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCounterTest {
+
+    @Test
+    void shapeIgnoresLiteralsAndWhitespace() {
+        assertEquals("SELECT * FROM books WHERE id = ? AND title = ?",
+                QueryCounter.shapeOf("SELECT *\n  FROM books\n  WHERE id = 42 AND title = 'It''s'"));
+        assertEquals(QueryCounter.shapeOf("SELECT id FROM readers WHERE id = ?"),
+                QueryCounter.shapeOf("SELECT id   FROM readers WHERE id = 7"));
+    }
+
+    @Test
+    void countsOnlyWhileBound() {
+        QueryCounter counter = new QueryCounter();
+
+        QueryCounter.record("SELECT 1");
+        try (QueryCounter.Binding ignored = QueryCounter.bind(counter)) {
+            QueryCounter.record("SELECT id FROM books WHERE library_id = 1");
+            QueryCounter.record("SELECT id FROM books WHERE library_id = 2");
+            QueryCounter.record("SELECT id FROM library");
+        }
+        QueryCounter.record("SELECT 1");
+
+        assertNull(QueryCounter.current());
+        assertEquals(3, counter.count());
+        assertEquals(Map.of("SELECT id FROM books WHERE library_id = ?", 2L), counter.repeatedShapes(1));
+        assertTrue(counter.repeatedShapes(2).isEmpty());
+    }
+
+    @Test
+    void budgetIsEnforced() {
+        assertEquals("ok", QueryCounter.withBudget(1, () -> {
+            QueryCounter.record("SELECT 1");
+            return "ok";
+        }));
+        assertThrows(IllegalStateException.class, () -> QueryCounter.withBudget(1, () -> {
+            QueryCounter.record("SELECT 1");
+            QueryCounter.record("SELECT 2");
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,117 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementCacheTest {
+
+    private static final String FIND_BY_ID_SQL = "SELECT id, full_name FROM readers WHERE id = ?";
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Connection owner;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private StatementCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StatementCache(connection, 2, hits, misses);
+    }
+
+    @Test
+    void closedStatementIsReusedForSameSql() throws SQLException {
+        PreparedStatement physical = mock(PreparedStatement.class);
+        when(connection.prepareStatement(FIND_BY_ID_SQL)).thenReturn(physical);
+
+        try (PreparedStatement statement = cache.prepare(FIND_BY_ID_SQL, null, owner)) {
+            statement.setLong(1, 1L);
+            assertSame(owner, statement.getConnection());
+        }
+        try (PreparedStatement statement = cache.prepare(FIND_BY_ID_SQL, null, owner)) {
+            statement.setLong(1, 2L);
+        }
+
+        verify(connection, times(1)).prepareStatement(FIND_BY_ID_SQL);
+        verify(physical, times(2)).clearParameters();
+        verify(physical, never()).close();
+        assertEquals(1, hits.sum());
+        assertEquals(1, misses.sum());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void generatedKeysStatementIsCachedSeparately() throws SQLException {
+        PreparedStatement plain = mock(PreparedStatement.class);
+        PreparedStatement withKeys = mock(PreparedStatement.class);
+        when(connection.prepareStatement("INSERT")).thenReturn(plain);
+        when(connection.prepareStatement("INSERT", Statement.RETURN_GENERATED_KEYS)).thenReturn(withKeys);
+
+        cache.prepare("INSERT", null, owner).close();
+        cache.prepare("INSERT", Statement.RETURN_GENERATED_KEYS, owner).close();
+        cache.prepare("INSERT", Statement.RETURN_GENERATED_KEYS, owner).executeUpdate();
+
+        verify(withKeys).executeUpdate();
+        verify(plain, never()).executeUpdate();
+        assertEquals(1, hits.sum());
+    }
+
+    @Test
+    void closingHandleClosesResultSetAndRejectsFurtherUse() throws SQLException {
+        PreparedStatement physical = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(FIND_BY_ID_SQL)).thenReturn(physical);
+        when(physical.executeQuery()).thenReturn(resultSet);
+
+        PreparedStatement statement = cache.prepare(FIND_BY_ID_SQL, null, owner);
+        statement.executeQuery();
+        statement.close();
+
+        verify(resultSet).close();
+        assertTrue(statement.isClosed());
+        assertThrows(SQLException.class, statement::executeQuery);
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsClosedWhenCacheIsFull() throws SQLException {
+        PreparedStatement first = mock(PreparedStatement.class);
+        PreparedStatement second = mock(PreparedStatement.class);
+        PreparedStatement third = mock(PreparedStatement.class);
+        when(connection.prepareStatement("SELECT 1")).thenReturn(first);
+        when(connection.prepareStatement("SELECT 2")).thenReturn(second);
+        when(connection.prepareStatement("SELECT 3")).thenReturn(third);
+
+        cache.prepare("SELECT 1", null, owner).close();
+        cache.prepare("SELECT 2", null, owner).close();
+        cache.prepare("SELECT 3", null, owner).close();
+
+        verify(first).close();
+        verify(second, never()).close();
+        assertEquals(2, cache.size());
+
+        cache.clear();
+
+        verify(second).close();
+        verify(third).close();
+        assertEquals(0, cache.size());
+    }
+}
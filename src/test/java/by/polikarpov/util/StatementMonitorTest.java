@@ -0,0 +1,142 @@
+package by.polikarpov.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementMonitorTest {
+
+    private static final String FIND_SQL = "SELECT id, title FROM books WHERE library_id = ? AND author = ?";
+
+    @Mock
+    private Connection physical;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private long previousThreshold;
+
+    @BeforeEach
+    void setUp() {
+        previousThreshold = SlowQueryLog.getThresholdMillis();
+        SlowQueryLog.setThresholdMillis(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SlowQueryLog.setThresholdMillis(previousThreshold);
+    }
+
+    @Test
+    void queryIsLoggedWithBindsRowsAndOperationWhenClosed() throws SQLException {
+        when(physical.prepareStatement(FIND_SQL)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        Connection connection = StatementMonitor.wrap(physical);
+
+        String previous = StatementMonitor.enterOperation("BooksDao.search");
+        try (PreparedStatement monitored = connection.prepareStatement(FIND_SQL)) {
+            monitored.setLong(1, 7L);
+            monitored.setNull(2, java.sql.Types.VARCHAR);
+            ResultSet result = monitored.executeQuery();
+            while (result.next()) {
+                result.getLong("id");
+            }
+            assertSame(connection, monitored.getConnection());
+            assertSame(monitored, result.getStatement());
+        } finally {
+            StatementMonitor.exitOperation(previous);
+        }
+
+        SlowQueryLog.SlowQuery query = SlowQueryLog.recent(1).get(0);
+        assertEquals("BooksDao.search", query.operation());
+        assertEquals(FIND_SQL, query.sql());
+        assertEquals(List.of("7", "NULL"), query.parameters());
+        assertEquals(2, query.rows());
+        verify(resultSet, times(2)).getLong("id");
+        verify(statement).close();
+    }
+
+    @Test
+    void updateIsLoggedWithAffectedRowsAndCaller() throws SQLException {
+        when(physical.prepareStatement("DELETE FROM readers WHERE id = ?")).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        try (Connection connection = StatementMonitor.wrap(physical);
+             PreparedStatement monitored = connection.prepareStatement("DELETE FROM readers WHERE id = ?")) {
+            monitored.setLong(1, 3L);
+            monitored.executeUpdate();
+        }
+
+        SlowQueryLog.SlowQuery query = SlowQueryLog.recent(1).get(0);
+        assertEquals("StatementMonitorTest.updateIsLoggedWithAffectedRowsAndCaller", query.operation());
+        assertEquals(1, query.rows());
+        verify(physical).close();
+    }
+
+    @Test
+    void failedStatementIsLoggedAndRethrown() throws SQLException {
+        when(physical.prepareStatement("SELECT pg_sleep(10)")).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException("canceling statement due to statement timeout"));
+        Connection connection = StatementMonitor.wrap(physical);
+
+        PreparedStatement monitored = connection.prepareStatement("SELECT pg_sleep(10)");
+        assertThrows(SQLException.class, monitored::executeQuery);
+
+        assertEquals("SELECT pg_sleep(10)", SlowQueryLog.recent(1).get(0).sql());
+    }
+
+    @Test
+    void fastStatementIsNotLogged() throws SQLException {
+        SlowQueryLog.setThresholdMillis(60_000);
+        when(physical.prepareStatement("SELECT 1")).thenReturn(statement);
+        List<SlowQueryLog.SlowQuery> before = SlowQueryLog.recent(1);
+
+        try (PreparedStatement monitored = StatementMonitor.wrap(physical).prepareStatement("SELECT 1")) {
+            monitored.executeUpdate();
+        }
+
+        assertEquals(before, SlowQueryLog.recent(1));
+    }
+
+    @Test
+    void disabledLogReportsNegativeThresholdAndLogsNothing() throws SQLException {
+        SlowQueryLog.setThresholdMillis(-1);
+        when(physical.prepareStatement("SELECT 1")).thenReturn(statement);
+        List<SlowQueryLog.SlowQuery> before = SlowQueryLog.recent(1);
+
+        try (PreparedStatement monitored = StatementMonitor.wrap(physical).prepareStatement("SELECT 1")) {
+            monitored.executeUpdate();
+        }
+
+        assertEquals(-1, SlowQueryLog.getThresholdMillis());
+        assertEquals(before, SlowQueryLog.recent(1));
+    }
+
+    @Test
+    void logKeepsNewestEntriesFirst() {
+        SlowQueryLog.add("A.first", "SELECT 1", List.of(), 0, 1);
+        SlowQueryLog.add("A.second", "SELECT 2", List.of(), 0, 1);
+
+        List<SlowQueryLog.SlowQuery> recent = SlowQueryLog.recent(2);
+
+        assertEquals(List.of("A.second", "A.first"), recent.stream().map(SlowQueryLog.SlowQuery::operation).toList());
+        assertTrue(recent.get(0).sequence() > recent.get(1).sequence());
+    }
+}
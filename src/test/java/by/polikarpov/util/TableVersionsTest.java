@@ -0,0 +1,87 @@
+package by.polikarpov.util;
+
+import by.polikarpov.dao.ReadersDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TableVersionsTest {
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private PreparedStatement mockStatement;
+
+    private MockedStatic<ConnectionManager> connectionManagerMock;
+
+    @BeforeEach
+    void setUp() {
+        connectionManagerMock = mockStatic(ConnectionManager.class);
+        connectionManagerMock.when(ConnectionManager::getConnection).thenAnswer(invocation -> {
+            Connection transactional = TransactionManager.currentConnection();
+            return transactional != null ? transactional : mockConnection;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManagerMock.close();
+    }
+
+    @Test
+    void deleteChangesTheTableAndTheCascadedTables() throws SQLException {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeUpdate()).thenReturn(1);
+        long readers = TableVersions.version(TableVersions.Table.READERS);
+        long lendings = TableVersions.version(TableVersions.Table.BOOK_LENDING);
+        long libraries = TableVersions.version(TableVersions.Table.LIBRARY);
+        String tag = TableVersions.tag(TableVersions.Table.READERS);
+
+        ReadersDao.getInstance().delete(1L);
+
+        assertEquals(readers + 1, TableVersions.version(TableVersions.Table.READERS));
+        assertEquals(lendings + 1, TableVersions.version(TableVersions.Table.BOOK_LENDING));
+        assertEquals(libraries, TableVersions.version(TableVersions.Table.LIBRARY));
+        assertNotEquals(tag, TableVersions.tag(TableVersions.Table.READERS));
+    }
+
+    @Test
+    void changeInTransactionIsVisibleAfterCompletion() throws SQLException {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeUpdate()).thenReturn(1);
+        long readers = TableVersions.version(TableVersions.Table.READERS);
+
+        TransactionManager.execute(() -> {
+            ReadersDao.getInstance().delete(1L);
+            assertEquals(readers, TableVersions.version(TableVersions.Table.READERS));
+            return null;
+        });
+
+        assertEquals(readers + 1, TableVersions.version(TableVersions.Table.READERS));
+    }
+
+    @Test
+    void lastModifiedIsTheLatestChangeOfTheTables() {
+        long before = System.currentTimeMillis();
+
+        TableVersions.changed(TableVersions.Table.LIBRARY);
+
+        long lastModified = TableVersions.lastModified(TableVersions.Table.READERS, TableVersions.Table.LIBRARY);
+        assertTrue(lastModified >= before);
+        assertTrue(lastModified <= System.currentTimeMillis());
+        assertTrue(TableVersions.tag(TableVersions.Table.LIBRARY, TableVersions.Table.BOOKS).matches("\\w+-\\d+-\\d+"));
+    }
+}
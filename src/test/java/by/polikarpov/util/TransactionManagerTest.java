@@ -0,0 +1,163 @@
+package by.polikarpov.util;
+
+import by.polikarpov.dao.ReadersDao;
+import by.polikarpov.entity.Readers;
+import by.polikarpov.exception.DaoException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionManagerTest {
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private PreparedStatement mockStatement;
+
+    private MockedStatic<ConnectionManager> connectionManagerMock;
+
+    @BeforeEach
+    void setUp() {
+        connectionManagerMock = mockStatic(ConnectionManager.class);
+        // like the real ConnectionManager: the transaction's connection wins over the pool
+        connectionManagerMock.when(ConnectionManager::getConnection).thenAnswer(invocation -> {
+            Connection transactional = TransactionManager.currentConnection();
+            return transactional != null ? transactional : mockConnection;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManagerMock.close();
+    }
+
+    @Test
+    void daoOperationsShareOneConnectionAndCommitOnce() throws SQLException {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeUpdate()).thenReturn(1);
+        ReadersDao readersDao = ReadersDao.getInstance();
+
+        boolean deleted = TransactionManager.execute(() -> readersDao.delete(1L) && readersDao.delete(2L));
+
+        assertTrue(deleted);
+        assertFalse(TransactionManager.isActive());
+        verify(mockConnection).setAutoCommit(false);
+        verify(mockConnection, times(2)).prepareStatement(anyString());
+        verify(mockConnection).commit();
+        verify(mockConnection, never()).rollback();
+        verify(mockConnection, times(1)).close();
+    }
+
+    @Test
+    void failureRollsBackAndRethrows() throws SQLException {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("constraint violated"));
+        ReadersDao readersDao = ReadersDao.getInstance();
+
+        assertThrows(DaoException.class, () -> TransactionManager.execute(() -> {
+            readersDao.update(reader(1L));
+            return readersDao.update(reader(2L));
+        }));
+
+        verify(mockConnection).rollback();
+        verify(mockConnection, never()).commit();
+        verify(mockConnection).close();
+    }
+
+    @Test
+    void nestedTransactionJoinsOuterOne() throws SQLException {
+        Connection inner = TransactionManager.execute(() ->
+                TransactionManager.execute(() -> {
+                    try (Connection connection = ConnectionManager.getConnection()) {
+                        connection.commit();
+                        return connection;
+                    } catch (SQLException e) {
+                        throw new DaoException(e);
+                    }
+                }));
+
+        assertNotNull(inner);
+        verify(mockConnection, times(1)).setAutoCommit(false);
+        verify(mockConnection, times(1)).commit();
+        verify(mockConnection, times(1)).close();
+    }
+
+    @Test
+    void caughtNestedFailureStillRollsBack() throws SQLException {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                TransactionManager.execute(() -> {
+                    try {
+                        TransactionManager.execute(() -> {
+                            throw new DaoException(new SQLException("deadlock detected"));
+                        });
+                    } catch (DaoException ignored) {
+                        // the caller decides to go on, but the transaction is already doomed
+                    }
+                    return null;
+                }));
+
+        assertTrue(exception.getMessage().contains("nested operation failed"));
+        verify(mockConnection, never()).commit();
+        verify(mockConnection, atLeastOnce()).rollback();
+    }
+
+    @Test
+    void readOnlyTransaction() throws SQLException {
+        Integer result = TransactionManager.executeReadOnly(() -> 42);
+
+        assertEquals(42, result);
+        verify(mockConnection).setReadOnly(true);
+        verify(mockConnection).commit();
+        assertThrows(IllegalStateException.class, () ->
+                TransactionManager.executeReadOnly(() -> TransactionManager.execute(() -> 1)));
+    }
+
+    @Test
+    void rollbackOnlyTransactionIsRolledBackWithoutError() throws SQLException {
+        String result = TransactionManager.execute(() -> {
+            TransactionManager.setRollbackOnly();
+            return "dry run";
+        });
+
+        assertEquals("dry run", result);
+        verify(mockConnection).rollback();
+        verify(mockConnection, never()).commit();
+        assertThrows(IllegalStateException.class, TransactionManager::setRollbackOnly);
+    }
+
+    @Test
+    void afterCompletionRunsWhenTransactionEnds() throws SQLException {
+        List<String> events = new ArrayList<>();
+        doAnswer(invocation -> events.add("commit")).when(mockConnection).commit();
+
+        TransactionManager.execute(() -> {
+            TransactionManager.afterCompletion(() -> events.add("invalidate"));
+            events.add("work");
+            return null;
+        });
+        TransactionManager.afterCompletion(() -> events.add("immediately"));
+
+        assertEquals(List.of("work", "commit", "invalidate", "immediately"), events);
+    }
+
+    private static Readers reader(Long id) {
+        Readers reader = new Readers("Reader " + id);
+        reader.setId(id);
+        return reader;
+    }
+}